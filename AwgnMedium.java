@@ -0,0 +1,118 @@
+// =============================================================================
+// IMPORTS
+
+import java.util.Iterator;
+import java.util.Random;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * A medium that models BPSK signalling over a channel with additive white
+ * Gaussian noise.  Each bit is sent as an amplitude of <code>+1</code> for a
+ * <code>1</code> or <code>-1</code> for a <code>0</code>, and each receiver
+ * hears that amplitude plus its own Gaussian noise.  Rather than deciding
+ * what bit was sent, the medium delivers the log-likelihood ratio of the
+ * received amplitude, so that a data link layer may decode soft decisions.
+ *
+ * The signal-to-noise ratio per channel bit, Es/N0 in decibels, is taken
+ * from the system property <code>AwgnMedium.esN0</code>.
+ *
+ * @file   AwgnMedium.java
+ * @author Ikram Gabiyev
+ * @date   October 2026
+ */
+public class AwgnMedium extends Medium {
+// =============================================================================
+
+
+
+    // =========================================================================
+    // PUBLIC METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The constructor.  Derive the noise level from the signal-to-noise
+     * ratio.
+     */
+    public AwgnMedium () {
+
+	double esN0 = Math.pow(10.0, Double.parseDouble(
+				   System.getProperty("AwgnMedium.esN0",
+						      DEFAULT_ES_N0)) / 10.0);
+
+	// With unit energy per bit, the noise variance is N0 / 2.
+	sigma      = Math.sqrt(1.0 / (2.0 * esN0));
+	llrPerUnit = 2.0 / (sigma * sigma);
+
+    } // AwgnMedium ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Send a bit from one client to the other clients, each of which receives
+     * the log-likelihood ratio of what it heard.
+     *
+     * @param sender The client physical layer sending the bit.
+     * @param bit The value to be sent, where <code>false</code> sends a
+     *            <code>0</code> bit, and <code>true</code> sends a
+     *            <code>1</code> bit.
+     * @throws RuntimeException if the sender is not registered with this
+     *                          medium.
+     */
+    public void transmit (PhysicalLayer sender, boolean bit) {
+
+	// Only registered clients may send.
+	if (!clients.contains(sender)) {
+	    throw new RuntimeException("Unregistered sender on the medium");
+	}
+
+	double amplitude = bit ? 1.0 : -1.0;
+
+	// Deliver the noisy bit to each client that is not the sender.
+	Iterator<PhysicalLayer> clientIterator = clients.iterator();
+	while (clientIterator.hasNext()) {
+
+	    PhysicalLayer receiver = clientIterator.next();
+	    if (receiver != sender) {
+		double received = amplitude + sigma * noise.nextGaussian();
+		if (debug && ((received > 0) != bit)) {
+		    System.out.println("AwgnMedium.transmit(): Bit in error!");
+		}
+		receiver.receive(sender.station(), received * llrPerUnit);
+	    }
+
+	}
+
+    } // transmit ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The standard deviation of the noise. */
+    private final double sigma;
+
+    /** The log-likelihood ratio of a received amplitude of 1. */
+    private final double llrPerUnit;
+
+    /** The source of noise. */
+    private final Random noise = new Random();
+
+    /** The default Es/N0, in decibels. */
+    private static final String DEFAULT_ES_N0 = "2.0";
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class AwgnMedium
+// =============================================================================
@@ -0,0 +1,154 @@
+// =============================================================================
+/**
+ * A block interleaver over bytes.  Bytes are written into a block of
+ * <code>rows</code> by <code>columns</code> row by row, and read out column
+ * by column, so that bytes adjacent on the wire were <code>columns</code>
+ * apart in the stream.  A burst that damages up to <code>rows</code>
+ * consecutive bytes on the wire then damages bytes that are far apart once
+ * deinterleaved, typically in different frames.  The deinterleaver is the
+ * same block with rows and columns exchanged.
+ *
+ * Bytes fill one buffer while the last completed block sits, already
+ * permuted, in the other; each completed block is permuted with a single
+ * gather through a precomputed table.  Interleaving thus delays the data by
+ * one block and costs a table lookup per byte.
+ *
+ * @file   BlockInterleaver.java
+ * @author Ikram Gabiyev
+ * @date   October 2026
+ */
+public class BlockInterleaver {
+// =============================================================================
+
+
+
+    // =========================================================================
+    // PUBLIC METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The constructor.
+     *
+     * @param  rows    The number of rows in a block.
+     * @param  columns The number of columns in a block.
+     * @param  inverse Whether to deinterleave rather than interleave.
+     * @throws RuntimeException if the block is empty.
+     */
+    public BlockInterleaver (int rows, int columns, boolean inverse) {
+
+	if ((rows < 1) || (columns < 1)) {
+	    throw new RuntimeException("Invalid interleaver block " + rows +
+				       "x" + columns);
+	}
+
+	// The kth byte out is the one written at row (k mod rows) and column
+	// (k / rows); deinterleaving reads it back by the transposed block.
+	int size = rows * columns;
+	permutation = new int[size];
+	for (int k = 0; k < size; k += 1) {
+	    int source = (k % rows) * columns + (k / rows);
+	    if (inverse) {
+		permutation[source] = k;
+	    } else {
+		permutation[k] = source;
+	    }
+	}
+
+	filling = new byte[size];
+	ready   = new byte[size];
+
+    } // BlockInterleaver ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Add a byte to the block being filled.
+     *
+     * @param  value The byte to add.
+     * @return <code>true</code> if the byte completed a block, which is then
+     *         available, permuted, from <code>ready()</code>.
+     */
+    public boolean put (byte value) {
+
+	filling[filled++] = value;
+	if (filled < filling.length) {
+	    return false;
+	}
+
+	for (int k = 0; k < ready.length; k += 1) {
+	    ready[k] = filling[permutation[k]];
+	}
+	filled = 0;
+	return true;
+
+    } // put ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Complete a partly filled block with fill bytes.
+     *
+     * @return <code>true</code> if a block was completed, which is then
+     *         available, permuted, from <code>ready()</code>;
+     *         <code>false</code> if no bytes were waiting.
+     */
+    public boolean flush () {
+
+	if (filled == 0) {
+	    return false;
+	}
+	while (!put(FILL)) {
+	}
+	return true;
+
+    } // flush ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return The most recently completed block, permuted.  Valid until the
+     *         next block is completed.
+     */
+    public byte[] ready () {
+
+	return ready;
+
+    } // ready ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** For each position in a permuted block, the position it comes from. */
+    private final int[]  permutation;
+
+    /** The block being filled. */
+    private final byte[] filling;
+
+    /** The most recently completed block, permuted. */
+    private final byte[] ready;
+
+    /** The number of bytes in the block being filled. */
+    private int          filled = 0;
+
+    /** The byte that pads a block completed early.  Between frames, the
+     *  receiver discards it as it would any noise. */
+    public static final byte FILL = 0;
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class BlockInterleaver
+// =============================================================================
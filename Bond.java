@@ -0,0 +1,776 @@
+// =============================================================================
+// IMPORTS
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * A bond stripes one host's traffic across several links, each a data link
+ * layer over a physical layer on a medium of its own, so that their
+ * bandwidth adds up.  Sent data is cut into runs, each filling a whole number
+ * of frames behind a short header, and the runs are dealt to the links by
+ * smooth weighted round robin.  Each link has a worker thread that sends the
+ * runs dealt to it, so that the links carry their frames at once.  Received
+ * runs, from whichever link, are put back in order by their sequence numbers
+ * before they are delivered.
+ *
+ * A run's header holds a marker, its sequence number, its length, and a check
+ * over the run, so that the header is paid once per run rather than once per
+ * frame.  A frame lost within a run spoils only that run:  its check fails,
+ * and the receiver looks for the next header at the start of each frame that
+ * follows on that link.
+ *
+ * Each link's weight starts at the one configured, and once frames carry
+ * acknowledgements, it follows the fraction of the link's frames that the
+ * other end acknowledges, so that a noisy link, whose damaged frames are
+ * dropped, is given less of the traffic, in shorter runs that each risk
+ * fewer frames.  A lost run leaves a gap that the receiver waits on until it
+ * holds a window's worth of later runs, or until the data is retrieved, and
+ * then skips.
+ *
+ * @file   Bond.java
+ * @author Ikram Gabiyev
+ * @date   October 2026
+ */
+public class Bond {
+// =============================================================================
+
+
+
+    // =========================================================================
+    // PUBLIC METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The constructor.  Start a sending thread for each link.
+     *
+     * @param  links   The data link layers of the links, all of one type and
+     *                 configured alike.
+     * @param  weights The relative share of the traffic to give each link
+     *                 before any is acknowledged, or <code>null</code> to
+     *                 share it evenly.
+     * @throws RuntimeException if the layers' frames cannot each deliver
+     *                          their own data, or the weights do not match
+     *                          the links.
+     */
+    public Bond (DataLinkLayer[] links, double[] weights) {
+
+	if ((weights != null) && (weights.length != links.length)) {
+	    throw new RuntimeException("Expected " + links.length +
+				       " link weights, not " + weights.length);
+	}
+	if (!links[0].carriesHeaders()) {
+	    throw new RuntimeException(links[0].getClass().getName() +
+				       " frames cannot carry bonded runs");
+	}
+
+	this.links        = links;
+	this.configured   = new double[links.length];
+	this.weights      = new double[links.length];
+	this.delivered    = new double[links.length];
+	this.current      = new double[links.length];
+	this.runFrames    = new int[links.length];
+	this.queues       = new ArrayList<BlockingQueue<byte[]>>(links.length);
+	this.inbound      = new Inbound[links.length];
+	this.bytesPerLink = new long[links.length];
+	this.dataPerFrame = links[0].dataPerFrame();
+	this.minRunFrames = HEADER_LENGTH / dataPerFrame + 1;
+	this.maxRunFrames = Math.max(minRunFrames,
+				     Math.min(MAX_RUN_FRAMES,
+					      (HEADER_LENGTH + MAX_RUN_DATA) /
+					      dataPerFrame));
+
+	for (int link = 0; link < links.length; link += 1) {
+	    configured[link] = (weights == null) ? 1 : weights[link];
+	    if (!(configured[link] > 0)) {
+		throw new RuntimeException("Invalid link weight " +
+					   configured[link]);
+	    }
+	    this.weights[link] = configured[link];
+	    runFrames[link]    = maxRunFrames;
+	    queues.add(new ArrayBlockingQueue<byte[]>(WINDOW));
+	    inbound[link]      = new Inbound();
+	    Thread worker = new Thread(new Worker(link), "bond-link-" + link);
+	    worker.setDaemon(true);
+	    worker.start();
+	}
+
+    } // Bond ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Stripe a sequence of bytes across the links, returning once every link
+     * has sent its share.  Expected to be called by one thread at a time.
+     *
+     * @param  data The sequence of bytes to send.
+     * @throws RuntimeException if a link failed to send.
+     */
+    public void send (byte[] data) {
+
+	int offset = 0;
+	while (offset < data.length) {
+
+	    // Deal no run a window or more past the earliest still being sent,
+	    // so that however far one link falls behind the others, the
+	    // receiver holds every run that arrives ahead of it, and keep only
+	    // so many frames waiting to be sent, so that the links are judged
+	    // on acknowledgements of recent frames.
+	    int sequence;
+	    synchronized (done) {
+		while ((nextSent - oldestUnsent >= WINDOW) ||
+		       (framesUnsent >= MAX_FRAMES_UNSENT)) {
+		    awaitProgress();
+		}
+		sequence  = nextSent & SEQUENCE_MASK;
+		nextSent += 1;
+	    }
+	    if ((sequence & (REWEIGHT_RUNS - 1)) == 0) {
+		reweigh();
+	    }
+
+	    int    link   = pick();
+	    int    length = Math.min(runFrames[link] * dataPerFrame -
+				     HEADER_LENGTH,
+				     data.length - offset);
+	    byte[] run    = new byte[HEADER_LENGTH + length];
+	    synchronized (done) {
+		framesUnsent += frames(run);
+	    }
+	    run[MARKER_INDEX] = MARKER;
+	    writeShort(run, SEQUENCE_INDEX, sequence);
+	    writeShort(run, LENGTH_INDEX,   length);
+	    System.arraycopy(data, offset, run, HEADER_LENGTH, length);
+	    writeShort(run, CHECK_INDEX,    check(run, run.length));
+	    offset += length;
+
+	    bytesPerLink[link] += length;
+	    queues.get(link).add(run);
+	}
+
+	synchronized (done) {
+	    while (oldestUnsent != nextSent) {
+		awaitProgress();
+	    }
+	}
+	if (failure != null) {
+	    RuntimeException e = failure;
+	    failure = null;
+	    throw e;
+	}
+
+    } // send ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Take the data of a frame received on one of the links, and deliver the
+     * data of each run it completes, and of any runs those were holding up,
+     * in order.  Expected to be called by one thread at a time.
+     *
+     * @param link     The data link layer of the link that received it.
+     * @param frame    The data of the frame.
+     * @param delivery Where to deliver the data of runs in order.
+     */
+    public void receive (DataLinkLayer    link,
+			 byte[]           frame,
+			 Consumer<byte[]> delivery) {
+
+	if (frame.length == 0) {
+	    return;
+	}
+	for (int index = 0; index < links.length; index += 1) {
+	    if (links[index] == link) {
+		inbound[index].add(frame);
+		takeRuns(inbound[index], false, delivery);
+		return;
+	    }
+	}
+
+    } // receive ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Deliver the data of every run still held, in order, skipping the gaps
+     * before them.  A run whose frames were not all received is dropped, and
+     * any runs after it on its link are taken.  Expected to be called before
+     * the data received is taken, once nothing more is arriving.
+     *
+     * @param delivery Where to deliver the data of runs in order.
+     */
+    public void flush (Consumer<byte[]> delivery) {
+
+	for (Inbound in : inbound) {
+	    takeRuns(in, true, delivery);
+	}
+	while (heldCount > 0) {
+	    release(delivery);
+	}
+
+    } // flush ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return The number of bytes of data dealt to each link so far.
+     */
+    public long[] bytesPerLink () {
+
+	return bytesPerLink.clone();
+
+    } // bytesPerLink ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return The number of runs received that were skipped as lost.
+     */
+    public long runsSkipped () {
+
+	return runsSkipped;
+
+    } // runsSkipped ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // PRIVATE METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Wait, holding the lock on done, for a worker to finish sending.
+    private void awaitProgress () {
+
+	try {
+	    done.wait();
+	} catch (InterruptedException e) {
+	    throw new RuntimeException("Interrupted striping a send");
+	}
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Mark the runs of a batch sent, and move past every run sent in order.
+    private void sent (int[] sequences, int count, int frames) {
+
+	synchronized (done) {
+	    framesUnsent -= frames;
+	    for (int i = 0; i < count; i += 1) {
+		done[sequences[i] & (WINDOW - 1)] = true;
+	    }
+	    while (done[oldestUnsent & (WINDOW - 1)]) {
+		done[oldestUnsent & (WINDOW - 1)] = false;
+		oldestUnsent += 1;
+	    }
+	    done.notifyAll();
+	}
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Choose the link for the next run by smooth weighted round robin:  each
+    // link gains its weight, and the one furthest ahead is chosen and set back
+    // by the total, so that the choices interleave evenly.  Each link's weight
+    // is divided by the frames in its runs, so that the links share out bytes,
+    // rather than runs, by weight.
+    private int pick () {
+
+	int    best  = 0;
+	double total = 0;
+	for (int link = 0; link < links.length; link += 1) {
+	    double weight = weights[link] / runFrames[link];
+	    current[link] += weight;
+	    total         += weight;
+	    if (current[link] > current[best]) {
+		best = link;
+	    }
+	}
+	current[best] -= total;
+	return best;
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Scale each link's configured weight by how the fraction of its frames
+    // acknowledged compares with the best link's, raised to a high power, so
+    // that a link losing even a few frames more than the others, which costs
+    // gaps in the data, is given much less of it.  Comparing with the best
+    // link discounts the frames still awaiting acknowledgement on all of
+    // them.  Then make each link's runs as long as pays:  a longer run spreads
+    // its header thinner, but is lost whole with any one of its frames.
+    // Links are judged only once each has sent enough and the other end has
+    // acknowledged anything at all, and none falls below a floor, so that one
+    // that recovers is noticed.
+    private void reweigh () {
+
+	double best = 0;
+	for (int link = 0; link < links.length; link += 1) {
+	    int framesSent = links[link].framesSent();
+	    if ((framesSent < MIN_SAMPLE_FRAMES) ||
+		(links[link].framesAcknowledged() == 0)) {
+		return;
+	    }
+	    delivered[link] = Math.min(1.0,
+				       (double)links[link].framesAcknowledged() /
+				       framesSent);
+	    best = Math.max(best, delivered[link]);
+	}
+
+	for (int link = 0; link < links.length; link += 1) {
+	    double relative = delivered[link] / best;
+	    weights[link] = configured[link] *
+		Math.max(MIN_SHARE, Math.pow(relative, LOSS_EXPONENT));
+
+	    double bestYield = 0;
+	    for (int frames = minRunFrames; frames <= maxRunFrames;
+		 frames += 1) {
+		double bytes = frames * dataPerFrame;
+		double yield = (bytes - HEADER_LENGTH) / bytes *
+		    Math.pow(relative, frames);
+		if (yield > bestYield) {
+		    bestYield       = yield;
+		    runFrames[link] = frames;
+		}
+	    }
+	}
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Take every whole run at the front of a link's frames, and put each in
+    // order.  A frame that does not begin a run with a sound header and check,
+    // as after a lost frame, is dropped, and the search resumes at the next.
+    // At the end of what is arriving, a run not yet whole never will be, and
+    // its first frame is dropped too.
+    private void takeRuns (Inbound          in,
+			   boolean          finished,
+			   Consumer<byte[]> delivery) {
+
+	while (in.length > 0) {
+	    if (in.length < HEADER_LENGTH) {
+		if (!finished) {
+		    return;
+		}
+		in.consume(in.frameAfter(0));
+		continue;
+	    }
+	    int length = readShort(in.bytes, LENGTH_INDEX);
+	    if ((in.bytes[MARKER_INDEX] != MARKER) || (length == 0)) {
+		in.consume(in.frameAfter(0));
+		continue;
+	    }
+	    int end = HEADER_LENGTH + length;
+	    if (in.length < end) {
+		if (!finished) {
+		    return;
+		}
+		in.consume(in.frameAfter(0));
+		continue;
+	    }
+	    if (check(in.bytes, end) != readShort(in.bytes, CHECK_INDEX)) {
+		in.consume(in.frameAfter(0));
+		continue;
+	    }
+	    int    sequence = readShort(in.bytes, SEQUENCE_INDEX);
+	    byte[] data     = Arrays.copyOfRange(in.bytes, HEADER_LENGTH, end);
+	    in.consume(in.frameAfter(end - 1));
+	    order(sequence, data, delivery);
+	}
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Hold the data of a run received until every run before it is delivered
+    // or skipped.  A run from before the window, as one given up for lost, is
+    // dropped, and one beyond the window shows the runs it skips to be lost.
+    private void order (int              sequence,
+			byte[]           data,
+			Consumer<byte[]> delivery) {
+
+	int distance = (sequence - nextReceived) & SEQUENCE_MASK;
+	if (distance > SEQUENCE_MASK / 2) {
+	    return;
+	}
+	while (distance >= WINDOW) {
+	    release(delivery);
+	    distance -= 1;
+	}
+
+	int slot = (nextReceived + distance) & (WINDOW - 1);
+	if (held[slot] != null) {
+	    return;
+	}
+	held[slot] = data;
+	heldCount += 1;
+	while (held[nextReceived & (WINDOW - 1)] != null) {
+	    release(delivery);
+	}
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Deliver the data of the next run in order, or count it lost if it is
+    // missing, and move on.
+    private void release (Consumer<byte[]> delivery) {
+
+	int    slot = nextReceived & (WINDOW - 1);
+	byte[] data = held[slot];
+	if (data == null) {
+	    runsSkipped += 1;
+	} else {
+	    held[slot] = null;
+	    heldCount -= 1;
+	    delivery.accept(data);
+	}
+	nextReceived = (nextReceived + 1) & SEQUENCE_MASK;
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // The 16-bit check of a run, the given number of bytes at the front of a
+    // buffer:  its sequence number, length and data.
+    private static int check (byte[] run, int length) {
+
+	CRC32 crc = new CRC32();
+	crc.update(run, SEQUENCE_INDEX, CHECK_INDEX - SEQUENCE_INDEX);
+	crc.update(run, HEADER_LENGTH, length - HEADER_LENGTH);
+	return (int)crc.getValue() & SEQUENCE_MASK;
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // The number of frames that a run fills.
+    private int frames (byte[] run) {
+
+	return (run.length + dataPerFrame - 1) / dataPerFrame;
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Write a 16-bit field of a run's header, most significant byte first.
+    private static void writeShort (byte[] run, int index, int value) {
+
+	run[index]     = (byte)(value >>> Byte.SIZE);
+	run[index + 1] = (byte)value;
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Read a 16-bit field of a run's header.
+    private static int readShort (byte[] run, int index) {
+
+	return ((run[index] & 0xFF) << Byte.SIZE) | (run[index + 1] & 0xFF);
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The data of the frames received on one link and not yet taken as runs,
+     * end to end, with where each frame begins.
+     */
+    private static class Inbound {
+
+	// Append the data of a frame.
+	public void add (byte[] frame) {
+	    if (length + frame.length > bytes.length) {
+		bytes = Arrays.copyOf(bytes, Math.max(2 * bytes.length,
+						      length + frame.length));
+	    }
+	    if (frames == starts.length) {
+		starts = Arrays.copyOf(starts, 2 * starts.length);
+	    }
+	    starts[frames] = length;
+	    frames        += 1;
+	    System.arraycopy(frame, 0, bytes, length, frame.length);
+	    length        += frame.length;
+	}
+
+	// Return where the first frame after the given index begins, or the
+	// length held if there is none.
+	public int frameAfter (int index) {
+	    for (int i = 0; i < frames; i += 1) {
+		if (starts[i] > index) {
+		    return starts[i];
+		}
+	    }
+	    return length;
+	}
+
+	// Drop the given number of bytes, up to where a frame begins, from
+	// the front.
+	public void consume (int count) {
+	    System.arraycopy(bytes, count, bytes, 0, length - count);
+	    length -= count;
+	    int kept = 0;
+	    for (int i = 0; i < frames; i += 1) {
+		if (starts[i] >= count) {
+		    starts[kept] = starts[i] - count;
+		    kept        += 1;
+		}
+	    }
+	    frames = kept;
+	}
+
+	/** The data of the frames, end to end. */
+	public byte[] bytes  = new byte[INBOUND_CAPACITY];
+
+	/** The number of bytes held. */
+	public int    length = 0;
+
+	/** Where each frame held begins. */
+	public int[]  starts = new int[INBOUND_CAPACITY];
+
+	/** The number of frames held. */
+	public int    frames = 0;
+
+    } // class Inbound
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * A link's sending thread.  It takes every run waiting for its link at
+     * once and sends them in a single call, so that they leave in as many
+     * frames and the medium is flushed once.  A run that ends part way into a
+     * frame, the last of a send, ends a batch, so that every run begins a
+     * frame.
+     */
+    private class Worker implements Runnable {
+
+	public Worker (int link) {
+	    this.link = link;
+	}
+
+	public void run () {
+	    byte[][] batch     = new byte[BATCH_RUNS][];
+	    int[]    sequences = new int[BATCH_RUNS];
+	    while (true) {
+		int count  = 0;
+		int length = 0;
+		try {
+		    batch[count] = queues.get(link).take();
+		} catch (InterruptedException e) {
+		    return;
+		}
+		do {
+		    length += batch[count].length;
+		    count  += 1;
+		} while ((count < BATCH_RUNS) &&
+			 (batch[count - 1].length % dataPerFrame == 0) &&
+			 ((batch[count] = queues.get(link).poll()) != null));
+
+		byte[] data     = new byte[length];
+		int    position = 0;
+		int    frames   = 0;
+		for (int i = 0; i < count; i += 1) {
+		    sequences[i] = readShort(batch[i], SEQUENCE_INDEX);
+		    frames      += frames(batch[i]);
+		    System.arraycopy(batch[i], 0, data, position,
+				     batch[i].length);
+		    position += batch[i].length;
+		    batch[i]  = null;
+		}
+		try {
+		    links[link].send(data);
+		} catch (RuntimeException e) {
+		    failure = e;
+		} finally {
+		    sent(sequences, count, frames);
+		}
+	    }
+	}
+
+	/** The link for which this thread sends. */
+	private final int link;
+
+    } // class Worker
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The data link layer of each link. */
+    private final DataLinkLayer[]             links;
+
+    /** The weight configured for each link. */
+    private final double[]                    configured;
+
+    /** The weight by which each link is now chosen. */
+    private final double[]                    weights;
+
+    /** The fraction of each link's frames last found acknowledged. */
+    private final double[]                    delivered;
+
+    /** How far ahead each link is in the round robin. */
+    private final double[]                    current;
+
+    /** The number of frames that each link's full runs fill. */
+    private final int[]                       runFrames;
+
+    /** The runs waiting for each link's worker. */
+    private final List<BlockingQueue<byte[]>> queues;
+
+    /** The frames received on each link and not yet taken as runs. */
+    private final Inbound[]                   inbound;
+
+    /** The number of bytes of data dealt to each link. */
+    private final long[]                      bytesPerLink;
+
+    /** The number of data bytes that each frame carries. */
+    private final int                         dataPerFrame;
+
+    /** The fewest frames a full run may fill, enough to hold a header and
+     *  some data, and the most. */
+    private final int                         minRunFrames;
+    private final int                         maxRunFrames;
+
+    /** Whether each run in flight has been sent, by sequence number modulo
+     *  the window; also the lock on the progress of sending. */
+    private final boolean[]                   done = new boolean[WINDOW];
+
+    /** The count of runs sent in order, whose low bits are the sequence
+     *  number of the earliest not yet sent. */
+    private int                               oldestUnsent = 0;
+
+    /** The number of frames that the runs dealt and not yet sent fill. */
+    private int                               framesUnsent = 0;
+
+    /** The failure of a worker's last send, or <code>null</code>. */
+    private volatile RuntimeException         failure = null;
+
+    /** The count of runs dealt, whose low bits are the sequence number of
+     *  the next. */
+    private int                               nextSent = 0;
+
+    /** The sequence number of the next run to deliver. */
+    private int                               nextReceived = 0;
+
+    /** The data of the runs received ahead of the next to deliver, by
+     *  sequence number modulo the window. */
+    private final byte[][]                    held = new byte[WINDOW][];
+
+    /** The number of runs held. */
+    private int                               heldCount = 0;
+
+    /** The number of runs skipped as lost. */
+    private long                              runsSkipped = 0;
+
+    /** Where each field of a run's header begins:  a marker, the sequence
+     *  number, the length of the data, and the check. */
+    private static final int    MARKER_INDEX      = 0;
+    private static final int    SEQUENCE_INDEX    = 1;
+    private static final int    LENGTH_INDEX      = 3;
+    private static final int    CHECK_INDEX       = 5;
+
+    /** The number of bytes of header ahead of each run's data. */
+    public static final int     HEADER_LENGTH     = 7;
+
+    /** The byte with which every run begins. */
+    private static final byte   MARKER            = (byte)0xB5;
+
+    /** The mask that reduces a count to a sequence number, or a CRC to a
+     *  check. */
+    private static final int    SEQUENCE_MASK     = (1 << 16) - 1;
+
+    /** The most data bytes that a run's length can count. */
+    private static final int    MAX_RUN_DATA      = SEQUENCE_MASK;
+
+    /** The most frames that a run fills, as on a link that loses none. */
+    private static final int    MAX_RUN_FRAMES    = 64;
+
+    /** The number of runs that may be in flight, and be held ahead of a
+     *  gap, a power of two well under half the sequence numbers. */
+    private static final int    WINDOW            = 1 << 12;
+
+    /** The most frames that may be dealt and not yet sent. */
+    private static final int    MAX_FRAMES_UNSENT = 1 << 12;
+
+    /** The most runs a worker sends in one call. */
+    private static final int    BATCH_RUNS        = 1 << 6;
+
+    /** The number of runs dealt between reweighings of the links, a power
+     *  of two. */
+    private static final int    REWEIGHT_RUNS     = 16;
+
+    /** The number of frames a link sends before its acknowledgements count. */
+    private static final int    MIN_SAMPLE_FRAMES = 64;
+
+    /** The power to which a link's delivery relative to the best is
+     *  raised to scale its weight. */
+    private static final int    LOSS_EXPONENT     = 8;
+
+    /** The least fraction of its configured weight that a link keeps. */
+    private static final double MIN_SHARE         = 0.02;
+
+    /** The number of bytes, and of frames, first set aside for each link's
+     *  frames received. */
+    private static final int    INBOUND_CAPACITY  = 1 << 10;
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class Bond
+// =============================================================================
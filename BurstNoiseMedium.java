@@ -0,0 +1,108 @@
+// =============================================================================
+// IMPORTS
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * A medium whose errors come in bursts.  Each receiver's channel follows the
+ * Gilbert-Elliott model:  it is either good, and delivers every bit
+ * faithfully, or bad, and delivers each bit as a coin flip.  A good channel
+ * rarely turns bad, and a bad one soon recovers, so the errors cluster into
+ * bursts of some tens of bits.
+ *
+ * @file   BurstNoiseMedium.java
+ * @author Ikram Gabiyev
+ * @date   October 2026
+ */
+public class BurstNoiseMedium extends Medium {
+// =============================================================================
+
+
+
+    // =========================================================================
+    // PUBLIC METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Send a bit from one client to the other clients.  Each receiver's
+     * channel may change state, and while bad, may garble the bit.
+     *
+     * @param sender The client physical layer sending the bit.
+     * @param bit The value to be sent, where <code>false</code> sends a
+     *            <code>0</code> bit, and <code>true</code> sends a
+     *            <code>1</code> bit.
+     * @throws RuntimeException if the sender is not registered with this
+     *                          medium.
+     */
+    public void transmit (PhysicalLayer sender, boolean bit) {
+
+	// Only registered clients may send.
+	if (!clients.contains(sender)) {
+	    throw new RuntimeException("Unregistered sender on the medium");
+	}
+
+	// Deliver the bit to each client that is not the sender.
+	Iterator<PhysicalLayer> clientIterator = clients.iterator();
+	while (clientIterator.hasNext()) {
+
+	    PhysicalLayer receiver = clientIterator.next();
+	    if (receiver == sender) {
+		continue;
+	    }
+
+	    boolean received = bit;
+	    if (bad.contains(receiver)) {
+		if (Math.random() < RECOVERY_PROBABILITY) {
+		    bad.remove(receiver);
+		} else if (Math.random() < BAD_ERROR_PROBABILITY) {
+		    if (debug) {
+			System.out.println("BurstNoiseMedium.transmit(): " +
+					   "Flipped bit!");
+		    }
+		    received = !bit;
+		}
+	    } else if (Math.random() < BURST_PROBABILITY) {
+		if (debug) {
+		    System.out.println("BurstNoiseMedium.transmit(): Burst!");
+		}
+		bad.add(receiver);
+	    }
+	    receiver.receive(sender.station(), received);
+
+	}
+
+    } // transmit ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The receivers whose channels are in the bad state. */
+    private final Set<PhysicalLayer> bad = new HashSet<PhysicalLayer>();
+
+    /** The probability, per bit, that a good channel turns bad. */
+    private static final double BURST_PROBABILITY     = 0.0001;
+
+    /** The probability, per bit, that a bad channel recovers. */
+    private static final double RECOVERY_PROBABILITY  = 1.0 / 64.0;
+
+    /** The probability that a bad channel flips a bit. */
+    private static final double BAD_ERROR_PROBABILITY = 0.5;
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class BurstNoiseMedium
+// =============================================================================
@@ -0,0 +1,235 @@
+// =============================================================================
+// IMPORTS
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * Escapes a set of special bytes while copying data into a frame.  Rather than
+ * testing each byte against every special value, it scans eight bytes at a
+ * time, looking for any special byte within a whole 64-bit word, so that runs
+ * of ordinary data are found quickly and bulk-copied.  Only the matched
+ * positions are escaped individually.
+ *
+ * @file   ByteStuffer.java
+ * @author Ikram Gabiyev
+ * @date   October 2026
+ */
+public class ByteStuffer {
+// =============================================================================
+
+
+
+    // =========================================================================
+    // PUBLIC METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The constructor.
+     *
+     * @param escape   The byte with which to precede each special byte.
+     * @param specials The bytes that must be escaped, which should include the
+     *                 escape byte itself.
+     */
+    public ByteStuffer (byte escape, byte... specials) {
+
+	this.escape     = escape;
+	this.specials   = specials.clone();
+	this.broadcasts = new long[specials.length];
+	for (int i = 0; i < specials.length; i += 1) {
+	    broadcasts[i] = (specials[i] & 0xFFL) * LOW_BITS;
+	}
+
+    } // ByteStuffer ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Copy a range of bytes into a buffer, preceding each special byte with
+     * the escape byte.
+     *
+     * @param  data   The bytes to copy.
+     * @param  offset The index of the first byte to copy.
+     * @param  length The number of bytes to copy.
+     * @param  out    The buffer into which to write the escaped bytes.
+     * @throws java.nio.BufferOverflowException if <code>out</code> runs out of
+     *                                          room.
+     */
+    public void stuff (byte[] data, int offset, int length, ByteBuffer out) {
+
+	if (scalarOnly) {
+	    stuffScalar(data, offset, length, out);
+	    return;
+	}
+
+	int end      = offset + length;
+	int runStart = offset;
+	int i        = offset;
+	while (i < end) {
+
+	    // Find the next special byte, and copy the clean run before it in
+	    // bulk.
+	    i = nextSpecial(data, i, end);
+	    out.put(data, runStart, i - runStart);
+	    if (i == end) {
+		break;
+	    }
+
+	    // Escape the special byte itself.
+	    out.put(escape);
+	    out.put(data[i]);
+	    i        += 1;
+	    runStart  = i;
+
+	}
+
+    } // stuff ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Copy a range of bytes into a buffer, escaping special bytes one byte at
+     * a time.  Produces exactly the output of <code>stuff()</code>.
+     *
+     * @param  data   The bytes to copy.
+     * @param  offset The index of the first byte to copy.
+     * @param  length The number of bytes to copy.
+     * @param  out    The buffer into which to write the escaped bytes.
+     * @throws java.nio.BufferOverflowException if <code>out</code> runs out of
+     *                                          room.
+     */
+    public void stuffScalar (byte[]     data,
+			     int        offset,
+			     int        length,
+			     ByteBuffer out) {
+
+	for (int i = offset; i < offset + length; i += 1) {
+	    if (isSpecial(data[i])) {
+		out.put(escape);
+	    }
+	    out.put(data[i]);
+	}
+
+    } // stuffScalar ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Find the first special byte in a range.
+     *
+     * @param  data The bytes to search.
+     * @param  from The index at which to start searching.
+     * @param  end  The index just past the last byte to search.
+     * @return The index of the first special byte, or <code>end</code> if
+     *         there is none.
+     */
+    public int nextSpecial (byte[] data, int from, int end) {
+
+	// Examine whole words while they fit.
+	int i = from;
+	while (i + Long.BYTES <= end) {
+	    long word    = (long)LONGS.get(data, i);
+	    long matches = 0;
+	    for (int j = 0; j < broadcasts.length; j += 1) {
+		matches |= zeroBytes(word ^ broadcasts[j]);
+	    }
+	    if (matches != 0) {
+		return i + (Long.numberOfTrailingZeros(matches) >>> 3);
+	    }
+	    i += Long.BYTES;
+	}
+
+	// Finish any remaining tail a byte at a time.
+	while (i < end && !isSpecial(data[i])) {
+	    i += 1;
+	}
+	return i;
+
+    } // nextSpecial ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Determine whether a byte must be escaped.
+     *
+     * @param  value The byte to test.
+     * @return <code>true</code> if the byte is one of the special bytes.
+     */
+    public boolean isSpecial (byte value) {
+
+	for (int j = 0; j < specials.length; j += 1) {
+	    if (value == specials[j]) {
+		return true;
+	    }
+	}
+	return false;
+
+    } // isSpecial ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Mark the high bit of each zero byte in a word.  A marked byte above the
+    // lowest true zero may be spurious, but the lowest mark is always exact,
+    // which is all that the search above relies upon.
+    private static long zeroBytes (long word) {
+
+	return (word - LOW_BITS) & ~word & HIGH_BITS;
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The escape byte. */
+    private final byte   escape;
+
+    /** The bytes that must be escaped. */
+    private final byte[] specials;
+
+    /** Each special byte repeated across a whole word. */
+    private final long[] broadcasts;
+
+    /** A view of a byte array as little-endian words, so byte order matches
+     *  bit order within a word. */
+    private static final VarHandle LONGS =
+	MethodHandles.byteArrayViewVarHandle(long[].class,
+					     ByteOrder.LITTLE_ENDIAN);
+
+    /** The low bit of every byte in a word. */
+    private static final long    LOW_BITS   = 0x0101010101010101L;
+
+    /** The high bit of every byte in a word. */
+    private static final long    HIGH_BITS  = 0x8080808080808080L;
+
+    /** Whether to force the byte-at-a-time path, for comparison. */
+    private static final boolean scalarOnly =
+	Boolean.getBoolean("ByteStuffer.scalar");
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class ByteStuffer
+// =============================================================================
@@ -2,10 +2,12 @@
 // =============================================================================
 // IMPORTS
 import java.lang.Math;
-import java.rmi.RemoteException;
-import java.util.ArrayList;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.Map;
 import java.util.Queue;
 // =============================================================================
 
@@ -27,92 +29,136 @@ public class CRCDataLinkLayer extends DataLinkLayer {
     
     // =========================================================================
     /**
-     * Embed a raw sequence of bytes into a framed sequence.
+     * The number of raw data bytes carried by each frame.
      *
-     * @param  data The raw sequence of bytes to be framed.
-     * @return A complete frame.
+     * @return The number of data bytes per frame.
      */
-    protected byte[] createFrame (byte[] data) {
+    protected int frameSize () {
 
-		Queue<Byte> framingData = new LinkedList<Byte>();
-		
-		int currentByteIndex = 0;
-		//while there is still some raw data
-		while (currentByteIndex < data.length) 
-		{
-            ArrayList<Byte> justRawFrame = new ArrayList<>();
-            //return the next frame's raw data in bits as a linked list
-            //LinkedList<Integer> frameBits = this.nextFrameBits(data, currentByteIndex);
-
-            //return integer formed from frameBits
-            //int msgDataInt = this.toDataInteger(frameBits);
-
-
-            //calculate the CRC checksum of the next frame message
-            //byte checksum = this.calculateChecksum(msgDataInt);
-  
-			//add a start tag to framingData => will have all frames in it
-			framingData.add(startTag);
-			//System.out.println("<start>");
-			
-			//look into the raw data 8 times
+		return frameSize;
+
+    } // frameSize ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Each frame's checksum depends on its own data alone, and the stuffer
+     * keeps no state, so frames may be encoded in parallel.
+     *
+     * @return <code>true</code>, always.
+     */
+    protected boolean encodesConcurrently () {
+
+		return true;
+
+    } // encodesConcurrently ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Each frame is checked against its own checksum, with correction tables
+     * built before any frame arrives, so frames may be checked in parallel.
+     *
+     * @return <code>true</code>, always.
+     */
+    protected boolean checksConcurrently () {
+
+		return true;
+
+    } // checksConcurrently ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Frames begin with their data, which is left alone by the check unless
+     * single-bit errors are corrected.
+     *
+     * @return <code>true</code> unless frames are corrected.
+     */
+    protected boolean readsHeaderUnchecked () {
+
+		return correctionTables == null;
+
+    } // readsHeaderUnchecked ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Embed a portion of a raw sequence of bytes into a single frame, writing
+     * it directly into the given buffer.  The checksum is computed a byte at a
+     * time from <code>crcTable</code>.
+     *
+     * @param  data   The raw sequence of bytes from which to frame.
+     * @param  offset The index of the first byte to place in the frame.
+     * @param  length The number of bytes to place in the frame.
+     * @param  out    The buffer into which to write the frame.
+     * @return The number of bytes written, or <code>FRAME_OVERFLOW</code> if
+     *         the frame did not fit.
+     */
+    protected int encodeFrame (byte[]     data,
+			       int        offset,
+			       int        length,
+			       ByteBuffer out) {
+
+		int start = out.position();
+		try {
+
+			//add a start tag
+			out.put(startTag);
+
+			// Add the raw data, escaping any metadata tag within it.
+			stuffer.stuff(data, offset, length, out);
+
+			int checksum = crc(data, offset, length);
+
+			// Add the checksum, escaped like any data byte since it may
+			// happen to equal a tag.
+			if (stuffer.isSpecial((byte) checksum)) {
+				out.put(escapeTag);
+			}
+			out.put((byte) checksum);
 
-			for(int j = 0; j < frameSize; j++)
-			{
-				if (currentByteIndex < data.length) 
-				{
-					// If the current data byte is itself a metadata tag, then precede
-					// it with an escape tag.
-					byte currentByte = data[currentByteIndex];
-					
-					
-					
-					if ((currentByte == startTag) ||
-					(currentByte == stopTag) ||
-                    (currentByte == escapeTag)){
-
-						//add an escape tag before the special raw byte
-						framingData.add(escapeTag);
-						// System.out.println("<esc>");
-					}
-
-					// Add the data byte itself.
-                    framingData.add(currentByte);
-                    justRawFrame.add(currentByte);
-					//System.out.println("[raw]");
-
-					//incrementing the currentByteIndex
-					//if I took the raw data
-					currentByteIndex++;
-				}
-            }
-            
-            ArrayList<Integer> dataBits = nextFrameBits(justRawFrame);
-            int checksum = calculateRemainder(dataBits);
-            // Add the checksum
-            framingData.add((byte) checksum);
-          
 			// End with a stop tag.
-			framingData.add(stopTag);
-			//System.out.println("<stop>");
-			
+			out.put(stopTag);
+
 			/**
 			 * The Frame Structure
-			 * <start> --- <esc> --- <stop> 
+			 * <start> --- <esc> --- <checksum> <stop> 
 			 */
-		}
 
-		// Convert to the desired byte array.
-		byte[] framedData = new byte[framingData.size()];
-		Iterator<Byte>  i = framingData.iterator();
-		int             j = 0;
-		while (i.hasNext()) {
-			framedData[j++] = i.next();
+		} catch (BufferOverflowException e) {
+			out.position(start);
+			return FRAME_OVERFLOW;
 		}
-		
-		return framedData;
+
+		return out.position() - start;
 	
-    } // createFrame ()
+    } // encodeFrame ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The largest frame for the given amount of data:  every byte and the
+     * checksum escaped, plus the start and stop tags.
+     *
+     * @param  length The number of data bytes in the frame.
+     * @return The worst-case size of the framed data.
+     */
+    protected int maxFrameLength (int length) {
+
+		return (2 * length) + 4;
+
+    } // maxFrameLength ()
     // =========================================================================
 
 
@@ -201,66 +247,227 @@ public class CRCDataLinkLayer extends DataLinkLayer {
 
         
 
-        ArrayList<Integer> receivedBits_with_checksum = nextFrameBits(extractedBytes);
-        
-        int remainder = calculateRemainder(receivedBits_with_checksum);
-
-        extractLastQueueElt(extractedBytes);
-		
-		// Convert to the desired byte array.
+		// Gather the data and checksum, and verify them together.
 		if (debug) {
 			System.out.println("DumbDataLinkLayer.processFrame(): Got whole frame!");
 		}
 
-		byte[] extractedData = new byte[extractedBytes.size()];
-		int                j = 0;
+		byte[] extractedFrame = new byte[extractedBytes.size()];
+		int                 j = 0;
 		i = extractedBytes.iterator();
 		while (i.hasNext()) {
-			extractedData[j] = i.next();
+			extractedFrame[j] = i.next();
 				if (debug) {
 				System.out.printf("DumbDataLinkLayer.processFrame():\tbyte[%d] = %c\n",
 						j,
-						extractedData[j]);
+						extractedFrame[j]);
 				}
 			j += 1;
         }
-        
-        if (remainder != 0)
-        {
-            System.out.println("");
-			System.out.println("Error occured");
-			System.out.println("***** Corrupted Frame *****");
-			for (int k = 0; k < extractedData.length; k++)
-			{
-				System.out.print((char) extractedData[k]);
-			}
-			System.out.println("");
-			System.out.println("***************************");
-			System.out.println("");
 
+        return acceptFrame(extractedFrame, extractedFrame.length);
+
+
+    } // processFrame ()
+    // ===============================================================
+
+    // ===============================================================
+    /**
+     * The CRC takes a single checksum byte per frame.
+     *
+     * @return The number of check bytes per frame.
+     */
+    protected int checkLength () {
+
+		return 1;
+
+    } // checkLength ()
+    // ===============================================================
+
+
+
+    // ===============================================================
+    /**
+     * Append the checksum for a frame's data, for use with a framing.
+     *
+     * @param  frame  The frame contents, with room for the checksum.
+     * @param  length The number of data bytes in the frame.
+     * @return The number of check bytes written.
+     */
+    protected int writeCheck (byte[] frame, int length) {
+
+		frame[length] = (byte) crc(frame, 0, length);
+		return 1;
+
+    } // writeCheck ()
+    // ===============================================================
+
+
+
+    // ===============================================================
+    /**
+     * Verify the checksum that ends a frame.  The remainder of the data and
+     * checksum together is zero for an intact frame.  Otherwise, if
+     * correction is on and the remainder is that of exactly one single-bit
+     * error at this frame length, that bit is flipped back.
+     *
+     * @param  frame  The frame contents, data followed by the checksum.
+     * @param  length The number of bytes of frame contents.
+     * @return The data of the frame, or <code>null</code> if its remainder is
+     *         not zero and could not be corrected.
+     */
+    protected byte[] checkFrame (byte[] frame, int length) {
+
+		if (length < 1) {
 			return null;
-        }
+		}
 
-        return extractedData;
+		int syndrome = crc(frame, 0, length);
+		if (syndrome != 0 && !correctSingleBit(frame, length, syndrome)) {
+			reportCorruptedFrame(frame, length - 1);
+			return null;
+		}
 
+		return Arrays.copyOf(frame, length - 1);
 
-    } // processFrame ()
+    } // checkFrame ()
+    // ===============================================================
+
+
+
+    // ===============================================================
+    /**
+     * Turn single-bit error correction on or off.  When on, a frame whose
+     * remainder could only have come from one flipped bit is repaired and
+     * delivered rather than discarded.
+     *
+     * @param correcting Whether to correct single-bit errors.
+     */
+    public void setCorrecting (boolean correcting) {
+
+		if (!correcting) {
+			correctionTables = null;
+			return;
+		}
+
+		// One table for every length that a frame, with its checksum, can
+		// have.
+		correctionTables = new byte[maxContentsLength() + checkLength() + 1][];
+		for (int length = 1; length < correctionTables.length; length++) {
+			correctionTables[length] = buildCorrectionTable(length);
+		}
+
+    } // setCorrecting ()
+    // ===============================================================
+
+
+
+    // ===============================================================
+    /**
+     * Apply named settings to this layer.
+     *
+     * @param options The settings, by name.  In addition to those of every
+     *                data link layer, <code>correct</code> turns single-bit
+     *                error correction on when <code>true</code>.
+     */
+    protected void configure (Map<String, String> options) {
+
+		super.configure(options);
+
+		String correct = options.get("correct");
+		if (correct != null) {
+			setCorrecting(Boolean.parseBoolean(correct));
+		}
+
+    } // configure ()
     // ===============================================================
 
-    private void extractLastQueueElt(Queue<Byte> data) 
+
+
+    // ===============================================================
+    // Flip back the bit that a non-zero remainder points to, if correction
+    // is on and it points to exactly one bit of a frame of this length.
+    // Returns whether the frame was corrected.
+    private boolean correctSingleBit (byte[] frame, int length, int syndrome) {
+
+		if (correctionTables == null || length >= correctionTables.length) {
+			return false;
+		}
+
+		int position = correctionTables[length][syndrome];
+		if (position == UNCORRECTABLE) {
+			return false;
+		}
+
+		// Positions count from the last bit of the checksum backwards.
+		frame[length - 1 - (position >>> 3)] ^= (byte) (1 << (position & 7));
+		if (debug) {
+			System.out.printf("CRCDataLinkLayer.checkFrame(): Corrected bit %d\n",
+					  position);
+		}
+		return true;
+
+    }
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Build the table of which bit each remainder points to, for frames of
+    // the given length in bytes, checksum included.  The CRC is linear, so
+    // the remainder of a damaged frame is that of its error pattern alone,
+    // and a single flipped bit n places from the end leaves x^(n + 8) mod g.
+    // A remainder left by no single bit, or by more than one, is marked
+    // UNCORRECTABLE.
+    private byte[] buildCorrectionTable (int length)
     {
-        ArrayList<Byte> temp = new ArrayList<>();
-        while (!data.isEmpty())
+        int[] table = new int[1 << numOfAppendedZeros];
+        Arrays.fill(table, UNSEEN);
+
+        int topBit = 1 << numOfAppendedZeros;
+        int syndrome = crcTable[1];
+        for (int position = 0; position < length * 8; position++)
         {
-            temp.add(data.remove());
+            table[syndrome] = (table[syndrome] == UNSEEN) ? position : UNCORRECTABLE;
+            syndrome <<= 1;
+            if ((syndrome & topBit) != 0) {
+                syndrome ^= generator;
+            }
         }
-        
-        temp.remove(temp.size() - 1);
-        while (!temp.isEmpty())
+
+        byte[] positions = new byte[table.length];
+        for (int s = 0; s < table.length; s++)
         {
-            data.add(temp.remove(0));
+            positions[s] = (byte) ((table[s] == UNSEEN) ? UNCORRECTABLE : table[s]);
         }
+        return positions;
+    }
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Announce that a frame was discarded, showing its data.
+    private void reportCorruptedFrame (byte[] data, int length) {
+
+		// Frames may be checked concurrently, so hold the output whole.
+		synchronized (System.out) {
+			System.out.println("");
+			System.out.println("Error occured");
+			System.out.println("***** Corrupted Frame *****");
+			for (int k = 0; k < length; k++)
+			{
+				System.out.print((char) data[k]);
+			}
+			System.out.println("");
+			System.out.println("***************************");
+			System.out.println("");
+		}
+
     }
+    // ===============================================================
+
+
 
     // ===============================================================
     private void cleanBufferUpTo (Iterator<Byte> end) {
@@ -279,107 +486,54 @@ public class CRCDataLinkLayer extends DataLinkLayer {
     //MY METHODS
     //************************* */
 
-
-    public boolean isDivisible(int value, int gen_length){
-        return ((value & (1<<gen_length)) != 0);
-    }
-
-    //Returns int but just do (byte)
-    public static int injectNextBit(int receptor, int donor){
-        return ((receptor<<1)|donor);
-    }
-        
-    public int calculateRemainder(ArrayList<Integer> dataBits) {
-        
-        int toReturn = 0;
-        while (!dataBits.isEmpty()) {
-            int nextBit = dataBits.remove(0);
-            
-            toReturn = injectNextBit(toReturn, nextBit);
-
-            if (isDivisible(toReturn, numOfAppendedZeros)) {
-                toReturn = toReturn ^ generator;
-            }
-        }
-        return toReturn;
-    }
-    /**
-     * Calculates the CRC checksum for the provided message
-     * @param frameBits the bits of the next frame
-     * @return
-     */
-
     /**
-     * Takes the next frame to be considered
-     * And return its raw data in a sequence of bits 
-     * The zeros are APPENDED
-     * 
-     * @param data the array of bytes with raw data
-     * @param firstIndex the index of the first byte in the upcoming frame
-     * @return
+     * Compute the CRC remainder of a range of bytes with zeros appended, a
+     * byte at a time.
+     *
+     * @param data the bytes
+     * @param offset the index of the first byte
+     * @param length the number of bytes
+     * @return the remainder, which is the checksum of the bytes
      */
-    private ArrayList<Integer> nextFrameBits(ArrayList<Byte> data)
+    private int crc(byte[] data, int offset, int length)
     {
-        //this will store added bits
-        ArrayList<Integer> toReturn = new ArrayList<>();
-
-        for(int j = 0; j < data.size(); j++)
-		{
-                //stores the current byte coonsidered
-                byte currentByte = data.get(j);
-
-                //converts the byte into a binary string
-                String binaryString = String.format("%8s", Integer.toBinaryString(currentByte & 0xFF)).replace(' ', '0');
-
-                //converting the binary string into a char array
-                char[] dataBits = binaryString.toCharArray();
-
-                //goes through the binary string and adds bits to the LinkedList
-                for (int charIndex = 0; charIndex < dataBits.length; charIndex++)
-                {
-                    toReturn.add(Character.getNumericValue(dataBits[charIndex]));
-                }
-        }
-        for (int i = 0; i < numOfAppendedZeros; i++)
+        int remainder = 0;
+        for (int i = offset; i < offset + length; i++)
         {
-            toReturn.add(0);
+            remainder = crcTable[(remainder ^ data[i]) & 0xFF];
         }
-        return toReturn;
+        return remainder;
     }
-    private ArrayList<Integer> nextFrameBits(Queue<Byte> data)
-    {
-        //this will store added bits
-        ArrayList<Integer> toReturn = new ArrayList<>();
-
-        Queue<Byte> holdOnQueue = new LinkedList<>();
-
-
-        while (data.size() != 0)
-		{
-                //stores the current byte coonsidered
-                byte currentByte = data.remove();
-                holdOnQueue.add(currentByte);
-
-                
-                //converts the byte into a binary string
-                String binaryString = String.format("%8s", Integer.toBinaryString(currentByte & 0xFF)).replace(' ', '0');
-
-                //converting the binary string into a char array
-                char[] dataBits = binaryString.toCharArray();
 
-                //goes through the binary string and adds bits to the LinkedList
-                for (int charIndex = 0; charIndex < dataBits.length; charIndex++)
-                {
-                    toReturn.add(Character.getNumericValue(dataBits[charIndex]));
-                }
-        }
-        //give back the whole queue
-        while (!holdOnQueue.isEmpty())
+    /**
+     * Precompute the CRC remainder of every possible byte, so that checksums
+     * can be accumulated with one lookup per byte rather than one division
+     * step per bit.  Equivalent to long division of the same bytes, with
+     * zeros appended, a bit at a time.
+     *
+     * @param generator the generator polynomial, including its top term
+     * @param degree the degree of the generator
+     * @return the remainder of each byte value, indexed by that value
+     */
+    static int[] buildCrcTable(int generator, int degree)
+    {
+        int[] table = new int[256];
+        int topBit = 1 << (degree - 1);
+        int mask = (1 << degree) - 1;
+        for (int value = 0; value < 256; value++)
         {
-            data.add(holdOnQueue.remove());
+            int remainder = value;
+            for (int bit = 0; bit < 8; bit++)
+            {
+                if ((remainder & topBit) != 0) {
+                    remainder = ((remainder << 1) ^ generator) & mask;
+                } else {
+                    remainder = (remainder << 1) & mask;
+                }
+            }
+            table[value] = remainder;
         }
-
-        return toReturn;
+        return table;
     }
 
     // ===============================================================
@@ -393,11 +547,28 @@ public class CRCDataLinkLayer extends DataLinkLayer {
     private final int generator = 0b111010101;
     private final int numOfAppendedZeros = 8;
 
+    //the remainder of each byte value, for computing checksums a byte at a time
+    private final int[] crcTable = buildCrcTable(generator, numOfAppendedZeros);
+
+    //for each frame length, the bit that each remainder points to; null
+    //unless single-bit error correction is on
+    private byte[][] correctionTables = null;
+
+    //correction table entries for remainders that point to no one bit
+    private static final int UNCORRECTABLE = -1;
+    private static final int UNSEEN = -2;
+
     // ===============================================================
     // The start tag, stop tag, and the escape tag.
     private final byte startTag  = (byte)'{';
     private final byte stopTag   = (byte)'}';
     private final byte escapeTag = (byte)'\\';
+
+    // The escaper of tags within the data.
+    private final ByteStuffer stuffer = new ByteStuffer(escapeTag,
+                                                        startTag,
+                                                        stopTag,
+                                                        escapeTag);
     
     // ===============================================================
 
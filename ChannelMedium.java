@@ -0,0 +1,330 @@
+// =============================================================================
+// IMPORTS
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * A perfect medium on which sender and receiver run concurrently.  Rather
+ * than calling each receiver as every bit is sent, the medium packs a
+ * sender's bits into words and passes them through a lock-free
+ * single-producer, single-consumer ring to each other client.  Every client
+ * has a thread of its own that drains the rings into its stack, so a
+ * receiving host decodes on its thread while the sending host encodes on
+ * another.
+ *
+ * The receiving threads are virtual threads where the runtime has them, so
+ * that thousands of media cost little, and daemon platform threads
+ * otherwise.  A receiving thread with nothing to read parks until a sender
+ * wakes it.
+ *
+ * @file   ChannelMedium.java
+ * @author Ikram Gabiyev
+ * @date   October 2026
+ */
+public class ChannelMedium extends Medium {
+// =============================================================================
+
+
+
+    // =========================================================================
+    // PUBLIC METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Register the given client, connecting it by a ring each way to every
+     * client already registered, and start its receiving thread.
+     *
+     * @param client The physical layer of a stack to connect to this medium.
+     */
+    public synchronized void register (PhysicalLayer client) {
+
+	if (outbound.containsKey(client)) {
+	    return;
+	}
+
+	Receiver receiver = new Receiver(client);
+	Sender   sender   = new Sender();
+	for (PhysicalLayer other : clients) {
+	    Channel to   = new Channel(receivers.get(other), client.station());
+	    Channel from = new Channel(receiver, other.station());
+	    sender.channels.add(to);
+	    receivers.get(other).channels.add(to);
+	    outbound.get(other).channels.add(from);
+	    receiver.channels.add(from);
+	}
+
+	super.register(client);
+	receivers.put(client, receiver);
+	outbound.put(client, sender);
+	startThread(receiver, "channel-receiver");
+
+    } // register ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Add a bit to the sender's current word, passing the word to every other
+     * client once it is full.
+     *
+     * @param sender The client physical layer sending the bit.
+     * @param bit The value to be sent, where <code>false</code> sends a
+     *            <code>0</code> bit, and <code>true</code> sends a
+     *            <code>1</code> bit.
+     * @throws RuntimeException if the sender is not registered with this
+     *                          medium.
+     */
+    public void transmit (PhysicalLayer sender, boolean bit) {
+
+	Sender state = outbound.get(sender);
+	if (state == null) {
+	    throw new RuntimeException("Unregistered sender on the medium");
+	}
+
+	state.word = (state.word << 1) | (bit ? 1 : 0);
+	if (state.word < 0) {
+	    state.publish();
+	}
+
+    } // transmit ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Pass on the sender's partial word, and wait until every other client
+     * has received all that the sender has sent.
+     *
+     * @param sender The client physical layer whose bits to push out.
+     */
+    public void flush (PhysicalLayer sender) {
+
+	Sender state = outbound.get(sender);
+	if (state == null) {
+	    return;
+	}
+
+	if (state.word != EMPTY_WORD) {
+	    state.publish();
+	}
+	for (Channel channel : state.channels) {
+	    while (!channel.isEmpty()) {
+		Thread.yield();
+	    }
+	}
+
+    } // flush ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * A ring of words from one sender to one receiver.  Only the sender
+     * writes the tail, and only the receiver the head; each reads the other's
+     * with acquire semantics.  The receiver advances the head only once it
+     * has delivered a word, so an empty ring means all sent was received.
+     */
+    private static class Channel {
+
+	public Channel (Receiver receiver, int source) {
+	    this.receiver = receiver;
+	    this.source   = source;
+	}
+
+	// Add a word, waiting for room if the ring is full, and wake the
+	// receiver if it is parked.
+	public void offer (long word) {
+	    long tailIndex = tail.get();
+	    while (tailIndex - head.get() == CAPACITY) {
+		Thread.yield();
+	    }
+	    words[(int)tailIndex & MASK] = word;
+	    tail.set(tailIndex + 1);
+	    if (receiver.parked) {
+		LockSupport.unpark(receiver.thread);
+	    }
+	}
+
+	// The oldest word, without removing it, or EMPTY_WORD if none.
+	public long peek () {
+	    long headIndex = head.get();
+	    return (headIndex == tail.get()) ?
+		EMPTY_WORD : words[(int)headIndex & MASK];
+	}
+
+	// Remove the oldest word, once it is delivered.
+	public void advance () {
+	    head.lazySet(head.get() + 1);
+	}
+
+	public boolean isEmpty () {
+	    return head.get() == tail.get();
+	}
+
+	/** The words in transit. */
+	private final long[]     words = new long[CAPACITY];
+
+	/** The index of the next word to read, written by the receiver. */
+	private final AtomicLong head  = new AtomicLong();
+
+	/** The index of the next word to write, written by the sender. */
+	private final AtomicLong tail  = new AtomicLong();
+
+	/** The receiver that reads this ring. */
+	private final Receiver   receiver;
+
+	/** The station of the sender that writes this ring. */
+	public final int         source;
+
+    } // class Channel
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * A sender's partial word, and the rings to every other client.  Used
+     * only by the sending thread.
+     */
+    private static class Sender {
+
+	// Pass the word to every other client, and start a new one.
+	public void publish () {
+	    for (Channel channel : channels) {
+		channel.offer(word);
+	    }
+	    word = EMPTY_WORD;
+	}
+
+	/** The bits sent but not yet passed on, behind a leading 1. */
+	public long                word     = EMPTY_WORD;
+
+	/** The rings to every other client. */
+	public final List<Channel> channels = new CopyOnWriteArrayList<Channel>();
+
+    } // class Sender
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * A client's receiving thread, which drains every ring to the client and
+     * delivers the bits of each word in order.
+     */
+    private static class Receiver implements Runnable {
+
+	public Receiver (PhysicalLayer client) {
+	    this.client = client;
+	}
+
+	public void run () {
+	    thread = Thread.currentThread();
+	    int idle = 0;
+	    while (true) {
+		boolean received = false;
+		for (Channel channel : channels) {
+		    long word;
+		    while ((word = channel.peek()) != EMPTY_WORD) {
+			deliver(channel.source, word);
+			channel.advance();
+			received = true;
+		    }
+		}
+		if (received) {
+		    idle = 0;
+		} else if (idle < SPINS) {
+		    idle += 1;
+		    Thread.onSpinWait();
+		} else {
+		    park();
+		}
+	    }
+	}
+
+	// Park until a sender offers a word.  The flag is raised before the
+	// rings are checked again, so a word offered in between either is
+	// seen here or unparks this thread.
+	private void park () {
+	    parked = true;
+	    boolean empty = true;
+	    for (Channel channel : channels) {
+		empty = empty && channel.isEmpty();
+	    }
+	    if (empty) {
+		LockSupport.park(this);
+	    }
+	    parked = false;
+	}
+
+	// Deliver the bits of a word from the given station, most significant
+	// first, below its leading 1.
+	private void deliver (int source, long word) {
+	    int count = (Long.SIZE - 1) - Long.numberOfLeadingZeros(word);
+	    for (int bit = count - 1; bit >= 0; bit -= 1) {
+		client.receive(source, ((word >>> bit) & 1) != 0);
+	    }
+	}
+
+	/** The rings from every other client. */
+	public final List<Channel>    channels =
+	    new CopyOnWriteArrayList<Channel>();
+
+	/** Whether this receiver is, or is about to be, parked. */
+	public volatile boolean       parked   = false;
+
+	/** The thread running this receiver. */
+	public volatile Thread        thread;
+
+	/** The client to which to deliver bits. */
+	private final PhysicalLayer   client;
+
+    } // class Receiver
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The sending state of each client. */
+    private final Map<PhysicalLayer, Sender>   outbound =
+	new ConcurrentHashMap<PhysicalLayer, Sender>();
+
+    /** The receiving thread of each client. */
+    private final Map<PhysicalLayer, Receiver> receivers =
+	new ConcurrentHashMap<PhysicalLayer, Receiver>();
+
+    /** A word holding no bits:  only the leading 1 that marks its length. */
+    private static final long   EMPTY_WORD = 1L;
+
+    /** The number of words in each ring, a power of two. */
+    private static final int    CAPACITY   = 1024;
+
+    /** The mask that reduces an index to a ring position. */
+    private static final int    MASK       = CAPACITY - 1;
+
+    /** The passes over empty rings before a receiver parks. */
+    private static final int    SPINS      = 1000;
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class ChannelMedium
+// =============================================================================
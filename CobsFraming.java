@@ -0,0 +1,201 @@
+// =============================================================================
+// IMPORTS
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * Consistent Overhead Byte Stuffing.  Each frame is rewritten so that it
+ * contains no zero bytes, and is then terminated by a single zero byte.  The
+ * contents are divided into blocks, each of which is preceded by a code byte
+ * giving the distance to the next zero that was removed.  A block holds at
+ * most 254 bytes, so the overhead is bounded at one byte in 254 (plus the
+ * delimiter), however the contents are distributed, unlike escape tags, which
+ * may double the size of a frame.
+ *
+ * @file   CobsFraming.java
+ * @author Ikram Gabiyev
+ * @date   October 2026
+ */
+public class CobsFraming extends Framing {
+// =============================================================================
+
+
+
+    // =========================================================================
+    // PUBLIC METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Encode a frame's contents and append the zero delimiter, in one pass.
+     * Each code byte is reserved when its block begins and filled in once the
+     * block's length is known.
+     *
+     * @param  data   The bytes from which to take the frame contents.
+     * @param  offset The index of the first byte of the frame contents.
+     * @param  length The number of bytes of frame contents.
+     * @param  out    The buffer into which to write the encoded frame.
+     * @return The number of bytes written, or
+     *         <code>DataLinkLayer.FRAME_OVERFLOW</code> if the frame did not
+     *         fit.
+     */
+    public int encode (byte[] data, int offset, int length, ByteBuffer out) {
+
+	int start = out.position();
+	try {
+
+	    int codePosition = out.position();
+	    int code         = 1;
+	    out.put(DELIMITER);
+
+	    for (int i = offset; i < offset + length; i += 1) {
+
+		// A zero ends the current block, and is recorded only by that
+		// block's code.
+		byte current = data[i];
+		if (current != DELIMITER) {
+		    out.put(current);
+		    code += 1;
+		}
+
+		// Close the block at a zero, or when it is as long as a code
+		// can describe.
+		if ((current == DELIMITER) || (code == MAX_CODE)) {
+		    out.put(codePosition, (byte)code);
+		    codePosition = out.position();
+		    code         = 1;
+		    out.put(DELIMITER);
+		}
+
+	    }
+
+	    // Close the last block and end the frame.
+	    out.put(codePosition, (byte)code);
+	    out.put(DELIMITER);
+
+	} catch (BufferOverflowException e) {
+	    out.position(start);
+	    return DataLinkLayer.FRAME_OVERFLOW;
+	}
+
+	return out.position() - start;
+
+    } // encode ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The largest encoded frame:  one code byte per 254 bytes of contents, one
+     * for the final block, and the delimiter.
+     *
+     * @param  length The number of bytes of frame contents.
+     * @return The worst-case size of the encoded frame.
+     */
+    public int maxEncodedLength (int length) {
+
+	return length + (length / (MAX_CODE - 1)) + 2;
+
+    } // maxEncodedLength ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Consume one received byte, restoring the removed zeros as each block
+     * ends.  A delimiter that arrives in the middle of a block, or a frame
+     * that outgrows the client's largest frame, marks the frame as damaged,
+     * and it is discarded.
+     *
+     * @param data The byte received.
+     */
+    public void receive (byte data) {
+
+	// A delimiter ends the frame.  The zero implied by the last block's
+	// code is not part of the contents.
+	if (data == DELIMITER) {
+	    if ((remaining == 0) && !damaged && (length > 0)) {
+		deliverFrame();
+	    }
+	    length      = 0;
+	    remaining   = 0;
+	    pendingZero = false;
+	    damaged     = false;
+	    return;
+	}
+
+	if (damaged) {
+	    return;
+	}
+
+	if (remaining == 0) {
+
+	    // This is a code byte, beginning a new block, so the previous
+	    // block's implied zero belongs to the contents after all.
+	    if (pendingZero) {
+		append(DELIMITER);
+	    }
+	    int code    = data & 0xFF;
+	    remaining   = code - 1;
+	    pendingZero = (code != MAX_CODE);
+
+	} else {
+
+	    append(data);
+	    remaining -= 1;
+
+	}
+
+    } // receive ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Add a byte to the frame, marking the frame as damaged if it is too long.
+    private void append (byte data) {
+
+	if (length == frame.length) {
+	    damaged = true;
+	} else {
+	    frame[length++] = data;
+	}
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The number of bytes left in the block being received. */
+    private int     remaining   = 0;
+
+    /** Whether the block being received is followed by a removed zero. */
+    private boolean pendingZero = false;
+
+    /** Whether the frame being received is to be discarded. */
+    private boolean damaged     = false;
+
+    /** The byte that separates frames. */
+    private static final byte DELIMITER = 0;
+
+    /** The code of a full block, which is not followed by a removed zero. */
+    private static final int  MAX_CODE  = 0xFF;
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class CobsFraming
+// =============================================================================
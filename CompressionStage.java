@@ -0,0 +1,436 @@
+// =============================================================================
+// IMPORTS
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * A stage that compresses the data a host sends, and decompresses the data it
+ * receives.  Outgoing data is cut into blocks, each sent behind a header
+ * giving a marker, its kind, its length, and a check over the block.  A block
+ * that looks compressible is deflated on its own, with the deflater reset
+ * before it, so that it can be restored without any other block.  A block
+ * whose bytes are too evenly spread to compress, judged by its order-0
+ * entropy, or that deflating would not shrink, is stored as is.
+ *
+ * A frame lost below this stage thus costs only the block it falls in.  The
+ * receiver takes a block only if its check holds, and otherwise searches the
+ * bytes after the block's marker for the next marker, so that it falls back
+ * into step at the next block that arrives whole.
+ *
+ * @file   CompressionStage.java
+ * @author Ikram Gabiyev
+ * @date   October 2026
+ */
+public class CompressionStage extends Stage {
+// =============================================================================
+
+
+
+    // =========================================================================
+    // PUBLIC METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Gather bytes to be sent into blocks, and write out each block, with its
+     * header, once it is full.
+     *
+     * @param in  The bytes to compress.
+     * @param out The buffer into which to write the blocks.
+     */
+    public void encode (ByteBuffer in, ByteBuffer out) {
+
+	while (true) {
+
+	    drain(encoded, out);
+	    if (encoded.hasRemaining() || !in.hasRemaining()) {
+		return;
+	    }
+
+	    int length = Math.min(in.remaining(), BLOCK_SIZE - blockFill);
+	    in.get(block, blockFill, length);
+	    blockFill += length;
+	    if (blockFill == BLOCK_SIZE) {
+		compressBlock();
+	    }
+
+	}
+
+    } // encode ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Write out the last, partial block.
+     *
+     * @param  out The buffer into which to write the block.
+     * @return <code>true</code> once the block is all written.
+     */
+    public boolean finish (ByteBuffer out) {
+
+	drain(encoded, out);
+	if (!encoded.hasRemaining() && (blockFill > 0)) {
+	    compressBlock();
+	    drain(encoded, out);
+	}
+	return !encoded.hasRemaining();
+
+    } // finish ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Gather received bytes into blocks, and write out the decompressed data
+     * of each block once it is complete and sound.  Bytes that do not make a
+     * sound block are dropped.
+     *
+     * @param in  The bytes received.
+     * @param out The buffer into which to write the decompressed data.
+     */
+    public void decode (ByteBuffer in, ByteBuffer out) {
+
+	while (true) {
+
+	    drain(decoded, out);
+	    if (decoded.hasRemaining()) {
+		return;
+	    }
+
+	    // Drop what cannot begin a block:  a wrong marker, or a header whose
+	    // kind or length is impossible.
+	    if ((received >= HEADER_LENGTH) && !soundHeader()) {
+		resync();
+		continue;
+	    }
+
+	    // Gather the header, and then as much of the block as it says.
+	    int expected = (received < HEADER_LENGTH) ?
+		HEADER_LENGTH : HEADER_LENGTH + incomingLength();
+	    if (received < expected) {
+		if (!in.hasRemaining()) {
+		    return;
+		}
+		int length = Math.min(in.remaining(), expected - received);
+		in.get(incoming, received, length);
+		received += length;
+		continue;
+	    }
+
+	    // The block is all here.  Restore it if it is sound, or else search
+	    // within it for the next.
+	    if (check(incoming, expected) != incomingCheck()) {
+		resync();
+		continue;
+	    }
+	    decompressBlock();
+	    System.arraycopy(incoming, expected, incoming, 0, received - expected);
+	    received -= expected;
+
+	}
+
+    } // decode ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Compress the gathered block into the outgoing buffer, behind its header.
+    // The deflater is reset and finished for each block, so that the block
+    // stands alone, and is stopped if it would not shrink the block.
+    private void compressBlock () {
+
+	int length = blockFill;
+	blockFill  = 0;
+
+	int kind     = STORED;
+	int contents = length;
+	if (entropy(block, length) <= MAX_ENTROPY) {
+	    deflater.reset();
+	    deflater.setInput(block, 0, length);
+	    deflater.finish();
+	    int end   = HEADER_LENGTH;
+	    int limit = HEADER_LENGTH + length - 1;
+	    int count;
+	    do {
+		count = deflater.deflate(outgoing, end, limit - end);
+		end  += count;
+	    } while (!deflater.finished() && (end < limit) && (count > 0));
+	    if (deflater.finished()) {
+		kind     = DEFLATED;
+		contents = end - HEADER_LENGTH;
+	    }
+	}
+	if (kind == STORED) {
+	    System.arraycopy(block, 0, outgoing, HEADER_LENGTH, length);
+	}
+
+	writeHeader(kind, contents);
+	encoded = ByteBuffer.wrap(outgoing, 0, HEADER_LENGTH + contents);
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Restore the data of the received block into the decoded buffer, or drop
+    // the block if it is malformed.
+    private void decompressBlock () {
+
+	int kind   = incoming[KIND_INDEX];
+	int length = incomingLength();
+
+	if (kind == STORED) {
+	    System.arraycopy(incoming, HEADER_LENGTH, restored, 0, length);
+	    decoded = ByteBuffer.wrap(restored, 0, length);
+	    return;
+	}
+
+	int inflated = inflate(length);
+	if (inflated < 0) {
+	    System.out.println("");
+	    System.out.println("***** Corrupted Compressed Block *****");
+	    System.out.println("");
+	    return;
+	}
+	decoded = ByteBuffer.wrap(restored, 0, inflated);
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Whether the header of the block being received could be one sent.
+    private boolean soundHeader () {
+
+	int kind = incoming[KIND_INDEX];
+	return ((incoming[0] == MARKER[0]) && (incoming[1] == MARKER[1]) &&
+		((kind == STORED) || (kind == DEFLATED)) &&
+		(incomingLength() > 0) && (incomingLength() <= BLOCK_SIZE));
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Drop the bytes gathered up to the next marker after the first byte, or
+    // all of them if there is none, so that the search for a block goes on
+    // from there.  A lone last byte is kept if it may begin a marker.
+    private void resync () {
+
+	int start = 1;
+	while ((start < received) &&
+	       !((incoming[start] == MARKER[0]) &&
+		 ((start + 1 == received) || (incoming[start + 1] == MARKER[1])))) {
+	    start += 1;
+	}
+	System.arraycopy(incoming, start, incoming, 0, received - start);
+	received -= start;
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Inflate the received block, returning the number of bytes restored, or
+    // -1 if the block is malformed.  Each block is a whole deflate stream of
+    // its own, restoring to no more than a full block's data.
+    private int inflate (int length) {
+
+	inflater.reset();
+	inflater.setInput(incoming, HEADER_LENGTH, length);
+	int inflated = 0;
+	try {
+	    while (!inflater.finished()) {
+		int count = inflater.inflate(restored,
+					     inflated,
+					     restored.length - inflated);
+		if ((count == 0) || (inflated + count > BLOCK_SIZE)) {
+		    return -1;
+		}
+		inflated += count;
+	    }
+	} catch (DataFormatException e) {
+	    return -1;
+	}
+	return inflated;
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // The length given by the header of the block being received.
+    private int incomingLength () {
+
+	return ((incoming[LENGTH_INDEX] & 0xFF) << 8) |
+	    (incoming[LENGTH_INDEX + 1] & 0xFF);
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // The check given by the header of the block being received.
+    private int incomingCheck () {
+
+	int check = 0;
+	for (int i = CHECK_INDEX; i < HEADER_LENGTH; i += 1) {
+	    check = (check << 8) | (incoming[i] & 0xFF);
+	}
+	return check;
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Write the header of the outgoing block, whose contents are in place.
+    private void writeHeader (int kind, int length) {
+
+	outgoing[0]                = MARKER[0];
+	outgoing[1]                = MARKER[1];
+	outgoing[KIND_INDEX]       = (byte)kind;
+	outgoing[LENGTH_INDEX]     = (byte)(length >>> 8);
+	outgoing[LENGTH_INDEX + 1] = (byte)length;
+
+	int check = check(outgoing, HEADER_LENGTH + length);
+	for (int i = HEADER_LENGTH - 1; i >= CHECK_INDEX; i -= 1) {
+	    outgoing[i] = (byte)check;
+	    check     >>>= 8;
+	}
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // The check of a block, the given number of bytes at the front of a
+    // buffer:  a CRC over its kind, length and contents.
+    private static int check (byte[] block, int length) {
+
+	CRC32 crc = new CRC32();
+	crc.update(block, KIND_INDEX, CHECK_INDEX - KIND_INDEX);
+	crc.update(block, HEADER_LENGTH, length - HEADER_LENGTH);
+	return (int)crc.getValue();
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Move as many bytes as fit from one buffer to another.
+    private static void drain (ByteBuffer from, ByteBuffer to) {
+
+	int length = Math.min(from.remaining(), to.remaining());
+	to.put(from.array(), from.arrayOffset() + from.position(), length);
+	from.position(from.position() + length);
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // The order-0 entropy of the first bytes of a block, in bits per byte.
+    private static double entropy (byte[] data, int length) {
+
+	int[] counts = new int[1 << Byte.SIZE];
+	for (int i = 0; i < length; i += 1) {
+	    counts[data[i] & 0xFF] += 1;
+	}
+
+	double bits = 0.0;
+	for (int count : counts) {
+	    if (count > 0) {
+		bits -= count * Math.log((double)count / length);
+	    }
+	}
+	return bits / (length * Math.log(2.0));
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The deflater of outgoing blocks, reset for each. */
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+
+    /** The inflater of incoming blocks, reset for each. */
+    private final Inflater inflater = new Inflater(true);
+
+    /** The block of outgoing data being gathered. */
+    private final byte[]   block    = new byte[BLOCK_SIZE];
+
+    /** The number of bytes gathered into the outgoing block. */
+    private int            blockFill = 0;
+
+    /** The header and contents of the last block compressed. */
+    private final byte[]   outgoing = new byte[HEADER_LENGTH + BLOCK_SIZE];
+
+    /** What remains to be written of the last block compressed. */
+    private ByteBuffer     encoded  = ByteBuffer.allocate(0);
+
+    /** The header and contents of the block being received. */
+    private final byte[]   incoming = new byte[HEADER_LENGTH + BLOCK_SIZE];
+
+    /** The number of bytes gathered of the block being received. */
+    private int            received = 0;
+
+    /** The data restored from the last block received. */
+    private final byte[]   restored = new byte[BLOCK_SIZE + 1];
+
+    /** What remains to be written of the data last restored. */
+    private ByteBuffer     decoded  = ByteBuffer.allocate(0);
+
+    /** The most data bytes in a block. */
+    private static final int BLOCK_SIZE    = 4096;
+
+    /** The layout of a block header:  a two-byte marker, a kind, a
+     *  two-byte length, and a four-byte check. */
+    private static final int KIND_INDEX    = 2;
+    private static final int LENGTH_INDEX  = 3;
+    private static final int CHECK_INDEX   = 5;
+    private static final int HEADER_LENGTH = 9;
+
+    /** The bytes with which every block begins. */
+    private static final byte[] MARKER     = { (byte)0xC5, (byte)0x9A };
+
+    /** The kinds of block. */
+    private static final int STORED        = 0;
+    private static final int DEFLATED      = 1;
+
+    /** The entropy, in bits per byte, above which a block is stored. */
+    private static final double MAX_ENTROPY = 7.5;
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class CompressionStage
+// =============================================================================
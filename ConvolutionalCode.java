@@ -0,0 +1,238 @@
+// =============================================================================
+// IMPORTS
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * The rate 1/2, constraint length 7 convolutional code with generators 171
+ * and 133 (octal).  Each data bit yields two coded bits, computed from it and
+ * the six bits before it.  Encoding starts in the all-zero state, and the
+ * caller ends each block with at least six zero bits so that it ends there
+ * too.
+ *
+ * Decoding is by the Viterbi algorithm on soft decisions.  Both generators
+ * tap the newest and oldest bits, so the trellis falls into 32 butterflies
+ * whose four branches share one branch metric up to sign.  The
+ * add-compare-select of every butterfly is branch-free integer arithmetic,
+ * and the 64 survivor decisions of each step are packed into a single
+ * <code>long</code> for the traceback.
+ *
+ * @file   ConvolutionalCode.java
+ * @author Ikram Gabiyev
+ * @date   October 2026
+ */
+public class ConvolutionalCode {
+// =============================================================================
+
+
+
+    // =========================================================================
+    // PUBLIC METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The constructor.
+     *
+     * @param maxLength The most data bytes, tail included, in any one block
+     *                  to be decoded.
+     */
+    public ConvolutionalCode (int maxLength) {
+
+	decisions = new long[maxLength * Byte.SIZE];
+
+    } // ConvolutionalCode ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Encode a block of data, two coded bytes for each data byte, starting
+     * from the all-zero state.
+     *
+     * @param  data   The bytes from which to take the block.
+     * @param  offset The index of the first byte of the block.
+     * @param  length The number of bytes in the block.
+     * @param  out    The buffer into which to write the coded bits, most
+     *                significant first.
+     * @throws java.nio.BufferOverflowException if <code>out</code> has too
+     *                                          little room.
+     */
+    public static void encode (byte[]     data,
+			       int        offset,
+			       int        length,
+			       ByteBuffer out) {
+
+	int state = 0;
+	for (int i = offset; i < offset + length; i += 1) {
+	    int code = 0;
+	    for (int bit = Byte.SIZE - 1; bit >= 0; bit -= 1) {
+		int input    = (data[i] >>> bit) & 1;
+		int register = (input << (CONSTRAINT - 1)) | state;
+		code  = (code << 2) | OUTPUTS[register];
+		state = register >>> 1;
+	    }
+	    out.putShort((short)code);
+	}
+
+    } // encode ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Decode a block whose encoding began and ended in the all-zero state.
+     *
+     * @param soft   The soft decision of each coded bit, in order, positive
+     *               for a likely <code>1</code> and negative for a likely
+     *               <code>0</code>, and no more than <code>MAX_SOFT</code> in
+     *               magnitude.
+     * @param length The number of data bytes in the block, tail included.
+     * @param out    The array into which to write the decoded bytes.
+     */
+    public synchronized void decode (int[] soft, int length, byte[] out) {
+
+	int   steps   = length * Byte.SIZE;
+	int[] metrics = pathMetrics;
+	int[] next    = nextMetrics;
+	Arrays.fill(metrics, UNREACHABLE);
+	metrics[0] = 0;
+
+	for (int t = 0; t < steps; t += 1) {
+
+	    // The metric of each pair of expected coded bits is its
+	    // correlation with the received soft decisions.
+	    int l0 = soft[2 * t];
+	    int l1 = soft[2 * t + 1];
+	    branchMetrics[0] = -l0 - l1;
+	    branchMetrics[1] = -l0 + l1;
+	    branchMetrics[2] =  l0 - l1;
+	    branchMetrics[3] =  l0 + l1;
+
+	    // States 2j and 2j+1 lead to j on a 0 and to j+32 on a 1.  The
+	    // branches from 2j on a 0 and from 2j+1 on a 1 expect the same coded
+	    // bits, and the other two their complement.
+	    long word = 0;
+	    for (int j = 0; j < HALF_STATES; j += 1) {
+		int x  = branchMetrics[BUTTERFLY[j]];
+		int p0 = metrics[2 * j];
+		int p1 = metrics[2 * j + 1];
+		int m0 = p0 + x;
+		int m1 = p1 - x;
+		int n0 = p0 - x;
+		int n1 = p1 + x;
+		next[j]               = Math.max(m0, m1);
+		next[j + HALF_STATES] = Math.max(n0, n1);
+		word |= ((long)((m0 - m1) >>> 31) << j) |
+		        ((long)((n0 - n1) >>> 31) << (j + HALF_STATES));
+	    }
+	    decisions[t] = word;
+
+	    int[] swap = metrics;
+	    metrics    = next;
+	    next       = swap;
+
+	}
+
+	// Trace the survivor back from the all-zero state.  The newest bit of
+	// each state is the data bit that led to it.
+	Arrays.fill(out, 0, length, (byte)0);
+	int state = 0;
+	for (int t = steps - 1; t >= 0; t -= 1) {
+	    int input    = state >>> (CONSTRAINT - 2);
+	    out[t >>> 3] |= (byte)(input << (7 - (t & 7)));
+	    int decision = (int)(decisions[t] >>> state) & 1;
+	    state = ((state << 1) & (STATES - 1)) | decision;
+	}
+
+    } // decode ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // The two coded bits for each value of the shift register, the newest bit
+    // highest, with the first generator's bit first.
+    private static int[] buildOutputs () {
+
+	int[] outputs = new int[1 << CONSTRAINT];
+	for (int register = 0; register < outputs.length; register += 1) {
+	    int c0 = Integer.bitCount(register & GENERATOR_0) & 1;
+	    int c1 = Integer.bitCount(register & GENERATOR_1) & 1;
+	    outputs[register] = (c0 << 1) | c1;
+	}
+	return outputs;
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // The coded bits of the branch from each even state on a 0.
+    private static int[] buildButterflies () {
+
+	int[] butterflies = new int[HALF_STATES];
+	for (int j = 0; j < HALF_STATES; j += 1) {
+	    butterflies[j] = OUTPUTS[2 * j];
+	}
+	return butterflies;
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The largest magnitude of a soft decision. */
+    public static final int MAX_SOFT = 127;
+
+    /** The number of bits in the shift register, the newest included. */
+    private static final int CONSTRAINT  = 7;
+
+    /** The number of encoder states. */
+    private static final int STATES      = 1 << (CONSTRAINT - 1);
+
+    /** The number of butterflies in each step of the trellis. */
+    private static final int HALF_STATES = STATES / 2;
+
+    /** The generators, 171 and 133 octal. */
+    private static final int GENERATOR_0 = 0171;
+    private static final int GENERATOR_1 = 0133;
+
+    /** The metric of states not yet reachable, low enough never to win. */
+    private static final int UNREACHABLE = Integer.MIN_VALUE / 4;
+
+    /** The coded bits of each shift register value. */
+    private static final int[] OUTPUTS   = buildOutputs();
+
+    /** The coded bits of each butterfly's reference branch. */
+    private static final int[] BUTTERFLY = buildButterflies();
+
+    /** The path metrics of the current and next steps. */
+    private final int[]  pathMetrics   = new int[STATES];
+    private final int[]  nextMetrics   = new int[STATES];
+
+    /** The metric of each pair of coded bits at the current step. */
+    private final int[]  branchMetrics = new int[4];
+
+    /** The survivor decisions of each step, a bit per state. */
+    private final long[] decisions;
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class ConvolutionalCode
+// =============================================================================
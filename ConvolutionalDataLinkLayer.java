@@ -0,0 +1,353 @@
+// =============================================================================
+// IMPORTS
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * A data link layer that protects its frames with a rate 1/2, constraint
+ * length 7 convolutional code, and decodes them with a soft-decision Viterbi
+ * decoder.  On a medium that delivers log-likelihood ratios, such as
+ * <code>AwgnMedium</code>, the decoder weighs each coded bit by how
+ * confidently it was received; on a hard medium every bit is equally sure.
+ *
+ * Coded bits cannot be searched for tags, so each frame is a 32-bit sync word
+ * followed by a fixed-size coded block.  The block holds a length byte, the
+ * data padded to the frame size, a CRC over both, and a zero byte that
+ * returns the encoder to its starting state.  The receiver hunts bit by bit
+ * for the sync word by correlating it with the soft decisions of the last 32
+ * bits, then gathers the soft decisions of one block and decodes them.  The
+ * CRC catches blocks that the decoder could not repair, and false syncs.
+ *
+ * @file   ConvolutionalDataLinkLayer.java
+ * @author Ikram Gabiyev
+ * @date   October 2026
+ */
+public class ConvolutionalDataLinkLayer extends DataLinkLayer {
+// =============================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The number of raw data bytes carried by each frame.  Every block is the
+     * same length, so any header takes its place from the data.
+     *
+     * @return The number of data bytes per frame.
+     */
+    protected int frameSize () {
+
+	return FRAME_SIZE - headerLength();
+
+    } // frameSize ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Coded frames carry their own sync word, so no other framing applies.
+     *
+     * @param  type The framing type, which must be <code>Escape</code>.
+     * @throws RuntimeException if any other framing is requested.
+     */
+    public void setFraming (String type) {
+
+	if (!type.equals(ESCAPE_FRAMING)) {
+	    throw new RuntimeException("Convolutional coding does its own " +
+				       "framing");
+	}
+
+    } // setFraming ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Coded frames are found bit by bit, beneath any byte interleaving, so
+     * none applies.
+     *
+     * @param  rows    The number of rows in a block.
+     * @param  columns The number of columns in a block.
+     * @throws RuntimeException always.
+     */
+    public void setInterleaver (int rows, int columns) {
+
+	throw new RuntimeException("Convolutional coding cannot be " +
+				   "interleaved by bytes");
+
+    } // setInterleaver ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Build the block for a portion of the data, and write the sync word and
+     * the coded block.
+     *
+     * @param  data   The raw sequence of bytes from which to frame.
+     * @param  offset The index of the first byte to place in the frame.
+     * @param  length The number of bytes to place in the frame.
+     * @param  out    The buffer into which to write the frame.
+     * @return The number of bytes written, or <code>FRAME_OVERFLOW</code> if
+     *         the frame did not fit.
+     */
+    protected int encodeFrame (byte[]     data,
+			       int        offset,
+			       int        length,
+			       ByteBuffer out) {
+
+	// The block is <length> <data, padded> <crc> <tail>.
+	outgoing[0] = (byte)length;
+	System.arraycopy(data, offset, outgoing, 1, length);
+	Arrays.fill(outgoing, 1 + length, CRC_INDEX, (byte)0);
+	outgoing[CRC_INDEX]  = (byte)crc(outgoing, CRC_INDEX);
+	outgoing[TAIL_INDEX] = 0;
+
+	int start = out.position();
+	try {
+	    out.putInt(SYNC);
+	    ConvolutionalCode.encode(outgoing, 0, BLOCK_LENGTH, out);
+	} catch (BufferOverflowException e) {
+	    out.position(start);
+	    return FRAME_OVERFLOW;
+	}
+
+	return out.position() - start;
+
+    } // encodeFrame ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Every frame is the same size, whatever its data.
+     *
+     * @param  length The number of data bytes in the frame.
+     * @return The size of the sync word and coded block.
+     */
+    protected int maxFrameLength (int length) {
+
+	return Integer.BYTES + 2 * BLOCK_LENGTH;
+
+    } // maxFrameLength ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Deliver a hard bit into this layer, as a soft decision of fixed
+     * confidence.
+     *
+     * @param bit The value to receive.
+     */
+    public void receive (boolean bit) {
+
+	receive(bit ? HARD_LLR : -HARD_LLR);
+
+    } // receive ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Deliver a soft bit into this layer.  While hunting, it joins the window
+     * searched for the sync word; within a block, it is kept for the
+     * decoder.
+     *
+     * @param llr The log-likelihood ratio of the bit received.
+     */
+    public void receive (double llr) {
+
+	long rounded = Math.round(llr * LLR_SCALE);
+	int  value   = (int)Math.max(-ConvolutionalCode.MAX_SOFT,
+				     Math.min(ConvolutionalCode.MAX_SOFT,
+					      rounded));
+
+	if (gathered == HUNTING) {
+	    if (foundSync(value)) {
+		if (debug) {
+		    System.out.println("ConvolutionalDataLinkLayer.receive(): " +
+				       "Sync");
+		}
+		gathered = 0;
+	    }
+	    return;
+	}
+
+	soft[gathered++] = value;
+	if (gathered == soft.length) {
+	    gathered = HUNTING;
+	    windowed = 0;
+	    processBlock();
+	}
+
+    } // receive ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Frames are found bit by bit, as they arrive, so the byte buffer is never
+     * used.
+     *
+     * @return <code>null</code>, always.
+     */
+    protected byte[] processFrame () {
+
+	return null;
+
+    } // processFrame ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Add a soft decision to the window, and determine whether the window now
+    // holds the sync word.  Each decision counts for or against the sync bit
+    // in its place by its confidence, and the sync word is taken to be
+    // present when the agreement outweighs the disagreement enough.
+    private boolean foundSync (int value) {
+
+	window[windowed % SYNC_BITS] = value;
+	windowed += 1;
+	if (windowed < SYNC_BITS) {
+	    return false;
+	}
+	if (windowed == 2 * SYNC_BITS) {
+	    windowed = SYNC_BITS;
+	}
+
+	int correlation = 0;
+	int magnitude   = 0;
+	for (int k = 0; k < SYNC_BITS; k += 1) {
+	    int decision = window[(windowed + k) % SYNC_BITS];
+	    int sign     = (SYNC >>> (SYNC_BITS - 1 - k)) & 1;
+	    correlation += (sign == 1) ? decision : -decision;
+	    magnitude   += Math.abs(decision);
+	}
+	return correlation > SYNC_THRESHOLD * magnitude;
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Decode a gathered block, and deliver its data if it passes its CRC.
+    private void processBlock () {
+
+	code.decode(soft, BLOCK_LENGTH, incoming);
+
+	int length = incoming[0] & 0xFF;
+	if ((crc(incoming, CRC_INDEX + 1) != 0) || (length > FRAME_SIZE)) {
+	    System.out.println("");
+	    System.out.println("Error occured");
+	    System.out.println("***** Uncorrectable Frame *****");
+	    System.out.println("");
+	    return;
+	}
+
+	if (debug) {
+	    System.out.println("ConvolutionalDataLinkLayer.processBlock(): " +
+			       "Got a whole frame!");
+	}
+	deliver(Arrays.copyOfRange(incoming, 1, 1 + length));
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // The CRC of the first bytes of a block.
+    private static int crc (byte[] block, int length) {
+
+	int remainder = 0;
+	for (int i = 0; i < length; i += 1) {
+	    remainder = CRC_TABLE[(remainder ^ block[i]) & 0xFF];
+	}
+	return remainder;
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The block being sent. */
+    private final byte[] outgoing     = new byte[BLOCK_LENGTH];
+
+    /** The block most recently decoded. */
+    private final byte[] incoming     = new byte[BLOCK_LENGTH];
+
+    /** The soft decisions of the coded block being received. */
+    private final int[]  soft         = new int[2 * BLOCK_LENGTH * BITS_PER_BYTE];
+
+    /** The number of soft decisions gathered, or <code>HUNTING</code>. */
+    private int          gathered     = HUNTING;
+
+    /** The most recent soft decisions, while hunting for the sync word. */
+    private final int[]  window       = new int[SYNC_BITS];
+
+    /** The number of soft decisions added to the window since the last
+     *  block. */
+    private int          windowed     = 0;
+
+    /** The decoder. */
+    private final ConvolutionalCode code = new ConvolutionalCode(BLOCK_LENGTH);
+
+    /** The number of bytes of header and data per frame. */
+    private static final int FRAME_SIZE     = 32;
+
+    /** The position of the CRC, after the length and data, in a block. */
+    private static final int CRC_INDEX      = 1 + FRAME_SIZE;
+
+    /** The position of the zero tail byte in a block. */
+    private static final int TAIL_INDEX     = CRC_INDEX + 1;
+
+    /** The number of bytes in a block, before coding. */
+    private static final int BLOCK_LENGTH   = TAIL_INDEX + 1;
+
+    /** The sync word that precedes every coded block. */
+    private static final int SYNC           = 0x1ACFFC1D;
+
+    /** The number of bits in the sync word. */
+    private static final int SYNC_BITS      = Integer.SIZE;
+
+    /** The fraction of the window's confidence by which agreement with the
+     *  sync word must outweigh disagreement. */
+    private static final double SYNC_THRESHOLD = 0.5;
+
+    /** The gathered count while hunting for the sync word. */
+    private static final int HUNTING        = -1;
+
+    /** The soft decision units per unit of log-likelihood ratio. */
+    private static final double LLR_SCALE   = 8.0;
+
+    /** The log-likelihood ratio given to a bit from a hard medium. */
+    private static final double HARD_LLR    = 4.0;
+
+    /** The CRC remainder table, with the CRC layer's generator. */
+    private static final int[] CRC_TABLE =
+	CRCDataLinkLayer.buildCrcTable(0b111010101, 8);
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class ConvolutionalDataLinkLayer
+// =============================================================================
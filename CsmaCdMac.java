@@ -0,0 +1,174 @@
+// =============================================================================
+// IMPORTS
+
+import java.util.Map;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * Carrier sense multiple access with collision detection, as on classic
+ * Ethernet.  A station with a frame listens to the channel first.  If it
+ * hears a transmission, it waits for the channel to fall quiet and then
+ * sends at once (1-persistent), after the interframe gap.  A transmission is
+ * heard only once it has propagated to the listener, so stations that begin
+ * within one propagation delay of each other collide; they detect it when
+ * each other's signal arrives, send a jam signal, and back off in slot times.
+ *
+ * @file   CsmaCdMac.java
+ * @author Ikram Gabiyev
+ * @date   October 2026
+ */
+public class CsmaCdMac extends Mac {
+// =============================================================================
+
+
+
+    // =========================================================================
+    // PROTECTED METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Apply the settings given as options.
+     *
+     * @param  options The settings of <code>Mac</code>, and
+     *                 <code>propagation</code>, the end-to-end propagation
+     *                 delay, in bit times, no more than half a slot.
+     * @throws RuntimeException if a setting is malformed or out of range.
+     */
+    protected void configure (Map<String, String> options) {
+
+	super.configure(options);
+
+	String setting = options.get("propagation");
+	if (setting != null) {
+	    try {
+		propagation = Long.parseLong(setting.trim());
+	    } catch (NumberFormatException e) {
+		throw new RuntimeException("Expected a propagation delay in " +
+					   "bit times, not " + setting);
+	    }
+	    if ((propagation < 1) || (2 * propagation > SLOT_BITS)) {
+		throw new RuntimeException("Expected a propagation delay of " +
+					   "1 to " + SLOT_BITS / 2 +
+					   " bit times, not " + setting);
+	    }
+	}
+
+	transmitting = new int[stations];
+	deferred     = new int[stations];
+
+    } // configure ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Sense the channel.  Defer if a transmission is heard or the gap after
+     * one has not passed; otherwise transmit, colliding with any
+     * transmission begun too recently to be heard.
+     *
+     * @param station The station ready to send.
+     * @param time    The current time.
+     */
+    protected void attempt (int station, long time) {
+
+	if ((transmitters > 0) && (time >= carrierStart + propagation)) {
+	    deferred[deferrers] = station;
+	    deferrers += 1;
+	    return;
+	}
+	if ((transmitters == 0) && (time < quietFrom)) {
+	    schedule(station, quietFrom);
+	    return;
+	}
+
+	transmitted();
+	transmitting[transmitters] = station;
+	transmitters += 1;
+	if (transmitters == 1) {
+	    carrierStart = time;
+	    channelDue   = time + frameBits;
+	} else {
+
+	    // The latest sender hears the others at once, and the others hear
+	    // it a propagation delay later; all stop after the jam.
+	    channelDue = time + propagation + JAM_BITS;
+
+	}
+
+    } // attempt ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The channel falls quiet, after a frame delivered or a collision
+     * jammed.  Colliding stations back off, and every deferring station,
+     * together with a sender that has another frame, sends after the gap.
+     *
+     * @param time The current time.
+     */
+    protected void channelEvent (long time) {
+
+	quietFrom = time + GAP_BITS;
+	if (transmitters == 1) {
+	    if (deliver(transmitting[0], time)) {
+		schedule(transmitting[0], quietFrom);
+	    }
+	} else {
+	    collide(transmitting, transmitters, quietFrom, SLOT_BITS);
+	}
+	transmitters = 0;
+
+	for (int i = 0; i < deferrers; i += 1) {
+	    schedule(deferred[i], quietFrom);
+	}
+	deferrers = 0;
+
+    } // channelEvent ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The end-to-end propagation delay, in bit times. */
+    private long  propagation = SLOT_BITS / 2;
+
+    /** The stations transmitting on the channel. */
+    private int[] transmitting;
+    private int   transmitters = 0;
+
+    /** The stations waiting for the channel to fall quiet. */
+    private int[] deferred;
+    private int   deferrers = 0;
+
+    /** The time at which the first of the current transmissions began. */
+    private long  carrierStart = 0;
+
+    /** The time after which a quiet channel may be used again. */
+    private long  quietFrom = 0;
+
+    /** The slot time, the unit of backoff, in bit times. */
+    private static final long SLOT_BITS = 512;
+
+    /** The length of the jam signal, in bit times. */
+    private static final long JAM_BITS  = 32;
+
+    /** The interframe gap, in bit times. */
+    private static final long GAP_BITS  = 96;
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class CsmaCdMac
+// =============================================================================
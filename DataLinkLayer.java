@@ -1,8 +1,18 @@
 // =============================================================================
 // IMPORTS
 
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Queue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 // =============================================================================
@@ -47,13 +57,67 @@ public abstract class DataLinkLayer {
 					PhysicalLayer physicalLayer,
 					Host          host) {
 
+	Map<String, String> noOptions = Collections.emptyMap();
+	return create(type, physicalLayer, host, noOptions);
+
+    } // create ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Create the requested data link layer type, configured by the given
+     * options, and return it.
+     *
+     * @param  type          The subclass of which to create an instance.
+     * @param  physicalLayer The physical layer by which to communicate.
+     * @param  host          The host for which this layer is communicating.
+     * @param  options       Named settings, such as <code>framing</code>, to
+     *                       pass to <code>configure()</code>.
+     * @return The newly created data link layer.
+     * @throws RuntimeException if the given type is not a valid subclass, or if
+     *                          the given physical layer doesn't exist (is
+     *                          <code>null</code>).
+     */
+    public static DataLinkLayer create (String              type,
+					PhysicalLayer       physicalLayer,
+					Host                host,
+					Map<String, String> options) {
+
 	if (physicalLayer == null) {
 	    throw new RuntimeException("Null physical layer");
 	}
 	
-	// Look up the class by name.
-	String className           = type + "DataLinkLayer";
-	Class  dataLinkLayerClass  = null;
+	// Make one of these objects.
+	DataLinkLayer dataLinkLayer = instantiate(type + "DataLinkLayer");
+
+	// Register this new data link layer with the physical layer.
+	dataLinkLayer.physicalLayer = physicalLayer;
+	physicalLayer.register(dataLinkLayer);
+	dataLinkLayer.register(host);
+	
+	// Create incoming buffer space.
+	dataLinkLayer.bitBuffer  = new LinkedList<Boolean>();
+	dataLinkLayer.byteBuffer = new LinkedList<Byte>();
+
+	// Apply the options, and then create outgoing frame buffers, each big
+	// enough for any one frame.
+	dataLinkLayer.options = options;
+	dataLinkLayer.configure(options);
+	dataLinkLayer.createFramePool();
+	return dataLinkLayer;
+
+    } // create ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Look up a data link layer class by name, and make one.
+    private static DataLinkLayer instantiate (String className) {
+
+	Class<?> dataLinkLayerClass = null;
 	try {
 	    dataLinkLayerClass = Class.forName(className);
 	} catch (ClassNotFoundException e) {
@@ -65,32 +129,21 @@ public abstract class DataLinkLayer {
 	// DataLinkLayer subclass.
 	Object o = null;
 	try {
-	    o = dataLinkLayerClass.newInstance();
-	} catch (InstantiationException e) {
+	    o = dataLinkLayerClass.getDeclaredConstructor().newInstance();
+	} catch (NoSuchMethodException | InstantiationException |
+		 InvocationTargetException e) {
 	    throw new RuntimeException("Could not instantiate " + className);
 	} catch (IllegalAccessException e) {
 	    throw new RuntimeException("Could not access " + className);
 	}
-	DataLinkLayer dataLinkLayer = null;
 	try {
-	    dataLinkLayer = (DataLinkLayer)o;
+	    return (DataLinkLayer)o;
 	} catch (ClassCastException e) {
 	    throw new RuntimeException(className +
 				       " is not a subclass of DataLinkLayer");
 	}
 
-
-	// Register this new data link layer with the physical layer.
-	dataLinkLayer.physicalLayer = physicalLayer;
-	physicalLayer.register(dataLinkLayer);
-	dataLinkLayer.register(host);
-	
-	// Create incoming buffer space.
-	dataLinkLayer.bitBuffer  = new LinkedList<Boolean>();
-	dataLinkLayer.byteBuffer = new LinkedList<Byte>();
-	return dataLinkLayer;
-
-    } // create ()
+    }
     // =========================================================================
 
 
@@ -115,152 +168,1380 @@ public abstract class DataLinkLayer {
 
     // =========================================================================
     /**
-     * Send a sequence of bytes through the physical layer.  Expected to be
-     * called by the client.
+     * Apply named settings to this layer.  Subclasses that accept settings of
+     * their own should override this method, passing the options on to it.
      *
-     * @param data The sequence of bytes to send.
+     * @param options The settings, by name.  Those recognized here are:
+     *                <code>framing</code>, the type of <code>Framing</code>
+     *                by which to delimit frames, or <code>Escape</code> for
+     *                the layer's own start, stop, and escape tags;
+     *                <code>interleave</code>, the block in which to
+     *                interleave bytes, as <code>rowsxcolumns</code>; and
+     *                <code>verifiers</code>, the number of worker threads on
+     *                which to check received frames; and
+     *                <code>piggyback</code>, <code>true</code> to carry
+     *                sequence numbers and acknowledgements in every frame;
+     *                <code>address</code>, this station's address, to carry
+     *                addresses in every frame; and <code>destination</code>,
+     *                the address to which to send.
+     * @throws RuntimeException if the interleaver block, number of
+     *                          verifiers, or an address is malformed.
      */
-    public void send (byte[] data) {
+    protected void configure (Map<String, String> options) {
 
-        // Call on the underlying physical layer to send the data.
-        byte[] framedData = createFrame(data);
-        for (int i = 0; i < framedData.length; i += 1) {
-            transmit(framedData[i]);
-        }
+	String framingType = options.get("framing");
+	if (framingType != null) {
+	    setFraming(framingType);
+	}
 
-    }
+	String interleave = options.get("interleave");
+	if (interleave != null) {
+	    String[] dimensions = interleave.split("x");
+	    if (dimensions.length != 2) {
+		throw new RuntimeException("Expected interleave as " +
+					   "rowsxcolumns, not " + interleave);
+	    }
+	    try {
+		setInterleaver(Integer.parseInt(dimensions[0].trim()),
+			       Integer.parseInt(dimensions[1].trim()));
+	    } catch (NumberFormatException e) {
+		throw new RuntimeException("Expected interleave as " +
+					   "rowsxcolumns, not " + interleave);
+	    }
+	}
+
+	String verifiers = options.get("verifiers");
+	if (verifiers != null) {
+	    try {
+		setVerifiers(Integer.parseInt(verifiers.trim()));
+	    } catch (NumberFormatException e) {
+		throw new RuntimeException("Expected a number of verifiers, " +
+					   "not " + verifiers);
+	    }
+	}
+
+	String piggyback = options.get("piggyback");
+	if (piggyback != null) {
+	    setPiggyback(Boolean.parseBoolean(piggyback));
+	}
+
+	String address     = options.get("address");
+	String destination = options.get("destination");
+	try {
+	    if (address != null) {
+		setAddress(Integer.parseInt(address.trim()));
+	    }
+	    if (destination != null) {
+		setDestination(Integer.parseInt(destination.trim()));
+	    }
+	} catch (NumberFormatException e) {
+	    throw new RuntimeException("Expected a numeric address, not " +
+				       ((destination == null) ?
+					address : address + " or " +
+					destination));
+	}
+
+    } // configure ()
     // =========================================================================
 
 
 
     // =========================================================================
     /**
-     * Embed a raw sequence of bytes into a framed sequence.
+     * Choose how frames are delimited on this link.
      *
-     * @param  data The raw sequence of bytes to be framed.
-     * @return A complete frame.
+     * @param type The type of <code>Framing</code> to use, or
+     *             <code>Escape</code> to use this layer's own start, stop, and
+     *             escape tags.
      */
-    abstract protected byte[] createFrame (byte[] data);
+    public void setFraming (String type) {
+
+	if (type.equals(ESCAPE_FRAMING)) {
+	    framing = null;
+	} else {
+	    framing = Framing.create(type);
+	    framing.register(this, maxContentsLength() + checkLength());
+	    frameContents = new byte[maxContentsLength() + checkLength()];
+	}
+
+	// Frames may now be of a different size.
+	if (framePool != null) {
+	    createFramePool();
+	}
+
+    } // setFraming ()
     // =========================================================================
 
 
 
     // =========================================================================
     /**
-     * Transmit a byte as bits.  Expected to be called by a subclass
-     * in performing a <code>send()</code>.
+     * Interleave the bytes sent on this link, and deinterleave those received,
+     * in blocks of the given shape.  Both ends of a link must agree.
      *
-     * @param data The byte of data to send.
+     * @param rows    The number of rows in a block:  the longest burst, in
+     *                bytes, that is spread out.
+     * @param columns The number of columns in a block:  how far apart the
+     *                bytes of a burst end up.
      */
-    protected void transmit (byte data) {
+    public void setInterleaver (int rows, int columns) {
 
-	if (debug) {
-	    System.out.printf("DataLinkLayer.transmit(): Sending byte = %c\n",
-			      data);
+	interleaver   = new BlockInterleaver(rows, columns, false);
+	deinterleaver = new BlockInterleaver(rows, columns, true);
+
+    } // setInterleaver ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Check received frames on a pool of worker threads, while the thread
+     * that delivers bits goes on finding frame boundaries.  The data of
+     * intact frames still reaches the client in order, on that thread.
+     *
+     * @param  workers The number of worker threads, or 0 to check each frame
+     *                 as it is found.
+     * @throws RuntimeException if this layer must check its frames in order.
+     */
+    public void setVerifiers (int workers) {
+
+	if (workers == 0) {
+	    drain();
+	    verifier = null;
+	    return;
+	}
+	if (!checksConcurrently()) {
+	    throw new RuntimeException(getClass().getName() + " must check " +
+				       "its frames in order");
 	}
 
-	// Transmit one bit at a time, most to least significant.
-	for (int i = BITS_PER_BYTE - 1; i >= 0; i -= 1) {
+	drain();
+	verifier = new FrameVerifier(workers,
+				     (byte[] frame) -> checkFrame(frame,
+								  frame.length),
+				     (byte[] data)  -> deliver(data));
+
+    } // setVerifiers ()
+    // =========================================================================
 
-	    // Grab the current bit...
-	    boolean bit = ((1 << i) & data) != 0;
 
-	    // ...and send it.
-	    physicalLayer.send(bit);
 
+    // =========================================================================
+    /**
+     * Carry a header in every frame sent, ahead of its data, holding the
+     * frame's sequence number and the number of frames so far received
+     * intact from the other end, so that each end of a full-duplex link
+     * learns what has reached the other from the data flowing back, without
+     * any frame sent only to acknowledge.  Both ends of a link must agree.
+     * The count received is carried modulo 65536, so an end must send a
+     * frame at least once for every 32767 that it receives for its
+     * acknowledgements to be counted exactly; sequence numbers are carried
+     * modulo 256, so a run of 256 lost frames goes unnoticed.
+     *
+     * @param piggyback <code>true</code> to carry the header.
+     */
+    public void setPiggyback (boolean piggyback) {
+
+	if (piggyback && !carriesHeaders()) {
+	    throw new RuntimeException(getClass().getName() + " frames " +
+				       "cannot carry acknowledgements");
 	}
+	this.piggyback = piggyback;
 
-    }
+	// The header is carried beside a frame's data, so frames grow.
+	if (framePool != null) {
+	    createFramePool();
+	}
+
+    } // setPiggyback ()
     // =========================================================================
 
 
 
     // =========================================================================
     /**
-     * Deliver a bit into this layer.  Expected to be called by the physical
-     * layer.  Accumulate bits into a buffer, and with each full byte received,
-     * accumulate those bits into a byte buffer.  Each byte added to the buffer
-     * is examined to determine whether a whole frame has been received, and if
-     * so, then processed.
+     * Give this station an address, and carry a header in every frame sent,
+     * ahead of its data, holding the addresses of the frame's destination
+     * and source.  The bits of each sender on the medium are then reassembled
+     * apart, each by a layer of this type of its own, so that frames from
+     * many senders at once arrive intact.  A frame addressed to another
+     * station is dropped as soon as it is delimited, without being checked
+     * or copied, wherever the layer's frames can be read before they are
+     * checked.  Every station on a medium must carry addresses.
      *
-     * @param bit The value to receive, where <code>false</code> indicates a
-     *            <code>0</code>, and <code>true</code> indicates a
-     *            <code>1</code>.
+     * @param  address This station's address, from 0 to 254.
+     * @throws RuntimeException if the address is out of range, or this
+     *                          layer's frames cannot carry a header.
      */
-    public void receive (boolean bit) {
+    public void setAddress (int address) {
 
-        // Add the new bit to the buffer.
-        bitBuffer.add(bit);
+	if ((address < 0) || (address >= BROADCAST)) {
+	    throw new RuntimeException("Invalid address " + address);
+	}
+	if (!carriesHeaders()) {
+	    throw new RuntimeException(getClass().getName() + " frames " +
+				       "cannot carry addresses");
+	}
+	this.address = address;
+	if (reassemblies == null) {
+	    reassemblies = new StripedIntMap<DataLinkLayer>();
+	}
+	if (framePool != null) {
+	    createFramePool();
+	}
 
-        // If this bit completes a byte, then add it to the byte buffer.
-        if (bitBuffer.size() >= BITS_PER_BYTE) {
+    } // setAddress ()
+    // =========================================================================
 
-            // Build up the byte from the bits...
-            byte newByte = 0;
-            for (int i = 0; i < BITS_PER_BYTE; i += 1) {
-                bit = bitBuffer.remove();
-                newByte = (byte)((newByte << 1) | (bit ? 1 : 0));
-            }
 
-            // ...and add it to the byte buffer.
-            byteBuffer.add(newByte);
-            if (debug) {
-                System.out.printf("DataLinkLayer.receive(): Got new byte = %c\n",
-                    newByte);
-            }
 
-            // Attempt to process the buffered bytes as a frame.  If a complete
-            // frame is found and its contents extraction, deliver those
-            // contents to the client.
-            byte[] originalData = processFrame();
-            if (originalData != null) {
-                if (debug) {
-                    System.out.println("DataLinkLayer.receive(): Got a whole frame!");
-                }
-                client.receive(originalData);
-            }
+    // =========================================================================
+    /**
+     * Choose the station to which frames are sent, once this station has an
+     * address.  By default, frames are broadcast to every station.
+     *
+     * @param  destination The address of the receiving station, or
+     *                     <code>BROADCAST</code>.
+     * @throws RuntimeException if the address is out of range.
+     */
+    public void setDestination (int destination) {
 
-        }
+	if ((destination < 0) || (destination > BROADCAST)) {
+	    throw new RuntimeException("Invalid address " + destination);
+	}
+	this.destination = destination;
 
-    } // receive ()
+    } // setDestination ()
     // =========================================================================
 
 
 
     // =========================================================================
     /**
-     * Determine whether the byte buffer contains a complete frame.  If so,
-     * extract its contents, removing all metadata and (if applicable) checking
-     * its correctness, then returning (if possible) the contained data.
+     * Whether frames can carry a header of this layer's ahead of their data.
+     * Subclasses whose frames do not each deliver their own data should
+     * override this method.
      *
-     * @return if possible, the extracted data from the frame; <code>null</code>
-     *         otherwise.
+     * @return <code>true</code> if frames can carry a header.
      */
-    abstract protected byte[] processFrame ();
-    // ===============================================================
+    protected boolean carriesHeaders () {
+
+	return true;
+
+    } // carriesHeaders ()
+    // =========================================================================
 
 
 
     // =========================================================================
-    // DATA MEMBERS
+    /**
+     * Whether the contents of a frame, as found, begin with the data as sent,
+     * so that its header may be read before the frame is checked.  Subclasses
+     * whose check bytes encode the data, or whose checks may correct it,
+     * should override this method.
+     *
+     * @return <code>true</code> if a frame's header may be read unchecked.
+     */
+    protected boolean readsHeaderUnchecked () {
 
-    /** The physical layer used by this layer. */
-    protected PhysicalLayer  physicalLayer;
+	return true;
 
-    /** The host that is using this layer. */
-    protected Host           client;
+    } // readsHeaderUnchecked ()
+    // =========================================================================
 
-    /** The buffer of bits recently received, building up the current byte. */
-    protected Queue<Boolean> bitBuffer;
 
-    /** The buffer of bytes recently received, building up the current frame. */
-    protected Queue<Byte>    byteBuffer;
+
+    // =========================================================================
+    /**
+     * @return The number of frames sent, with a header, by this layer.
+     */
+    public int framesSent () {
+
+	return framesSent;
+
+    } // framesSent ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return The number of frames sent by this layer that the other end has
+     *         acknowledged receiving intact.
+     */
+    public long framesAcknowledged () {
+
+	return framesAcknowledged;
+
+    } // framesAcknowledged ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return The number of frames from the other end found missing by
+     *         the gaps in their sequence numbers.
+     */
+    public long framesLost () {
+
+	return framesLost;
+
+    } // framesLost ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Deliver the data of every frame still being checked.  Expected to be
+     * called by the client before it takes what it has received.
+     */
+    public void drain () {
+
+	if (verifier != null) {
+	    verifier.drain();
+	}
+
+    } // drain ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Send a sequence of bytes through the physical layer.  Expected to be
+     * called by the client.
+     *
+     * @param data The sequence of bytes to send.
+     */
+    public void send (byte[] data) {
+
+	// Frame and transmit the data one frame at a time, so that only a single
+	// frame is ever held in memory and its first bits leave immediately.
+	// Each frame buffer goes back to the pool once its bytes are sent.  Large
+	// sends are instead encoded a segment at a time, in parallel, if this
+	// layer's frames can be.
+	if ((framing == null) && encodesConcurrently() &&
+	    (data.length >= PARALLEL_SEND_SIZE) && !sequentialOnly) {
+	    sendConcurrently(data);
+	} else {
+	    Iterator<ByteBuffer> frames = frames(data);
+	    while (frames.hasNext()) {
+		ByteBuffer frame = frames.next();
+		transmit(frame);
+		framePool.release(frame);
+	    }
+	}
+
+	// Push out the last, partial interleaver block, and then anything the
+	// medium holds.
+	if ((interleaver != null) && interleaver.flush()) {
+	    transmitBlock(interleaver.ready());
+	}
+	physicalLayer.flush();
+
+    } // send ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Provide the frames for a sequence of bytes, lazily encoding each one only
+     * when it is requested.
+     *
+     * @param  data The raw sequence of bytes to be framed.
+     * @return An iterator over the complete frames carrying the data, each in a
+     *         pooled buffer ready to be read and then released to
+     *         <code>framePool</code>.
+     */
+    protected Iterator<ByteBuffer> frames (byte[] data) {
+
+	return new FrameIterator(data);
+
+    } // frames ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Whether <code>encodeFrame()</code> may encode different frames on
+     * different threads at once, sharing no state between them, so that large
+     * sends may be encoded in parallel.  Subclasses whose frames are encoded
+     * independently of one another, and of any scratch space, should override
+     * this method.  By default, frames are encoded one at a time.
+     *
+     * @return <code>true</code> if frames may be encoded concurrently.
+     */
+    protected boolean encodesConcurrently () {
+
+	return false;
+
+    } // encodesConcurrently ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Whether <code>checkFrame()</code> may check different frames on
+     * different threads at once, sharing no state between them and depending
+     * on no frame before, so that received frames may be checked in
+     * parallel.  Subclasses whose checks are independent should override
+     * this method.  By default, frames are checked one at a time.
+     *
+     * @return <code>true</code> if frames may be checked concurrently.
+     */
+    protected boolean checksConcurrently () {
+
+	return false;
+
+    } // checksConcurrently ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The number of raw data bytes carried by each frame.  Subclasses that use
+     * fixed-size frames should override this value.
+     *
+     * @return The maximum number of data bytes per frame.
+     */
+    protected int frameSize () {
+
+	return DEFAULT_FRAME_SIZE;
+
+    } // frameSize ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Embed a portion of a raw sequence of bytes into a single frame, writing
+     * the frame directly into the given buffer at its current position.
+     *
+     * @param  data   The raw sequence of bytes from which to frame.
+     * @param  offset The index of the first byte to place in the frame.
+     * @param  length The number of bytes to place in the frame, which is no
+     *                more than <code>frameSize()</code>.
+     * @param  out    The buffer, heap or direct, into which to write the frame.
+     * @return The number of bytes written, or <code>FRAME_OVERFLOW</code> if
+     *         the frame did not fit in <code>out</code>, in which case the
+     *         position of <code>out</code> is left unchanged.
+     */
+    abstract protected int encodeFrame (byte[]     data,
+					int        offset,
+					int        length,
+					ByteBuffer out);
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The largest number of bytes that <code>encodeFrame()</code> may write
+     * when framing the given number of data bytes.
+     *
+     * @param  length The number of data bytes in the frame.
+     * @return The worst-case size of the framed data.
+     */
+    abstract protected int maxFrameLength (int length);
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Embed a portion of a raw sequence of bytes into a single frame that is
+     * delimited by this link's <code>Framing</code>:  the data is followed by
+     * this layer's check bytes, and the whole is then encoded by the framing.
+     *
+     * @param  data   The raw sequence of bytes from which to frame.
+     * @param  offset The index of the first byte to place in the frame.
+     * @param  length The number of bytes to place in the frame.
+     * @param  out    The buffer into which to write the frame.
+     * @return The number of bytes written, or <code>FRAME_OVERFLOW</code> if
+     *         the frame did not fit.
+     */
+    protected int encodeFramed (byte[]     data,
+				int        offset,
+				int        length,
+				ByteBuffer out) {
+
+	System.arraycopy(data, offset, frameContents, 0, length);
+	int checkLength = writeCheck(frameContents, length);
+	return framing.encode(frameContents, 0, length + checkLength, out);
+
+    } // encodeFramed ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The number of check bytes that <code>writeCheck()</code> appends to the
+     * data of each frame.  By default, there are none.
+     *
+     * @return The number of check bytes per frame.
+     */
+    protected int checkLength () {
+
+	return 0;
+
+    } // checkLength ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Append the check bytes for a frame's data, for use with a
+     * <code>Framing</code>.  By default, there are none.
+     *
+     * @param  frame  The frame contents, whose data begins at index 0 and which
+     *                has room for <code>checkLength()</code> more bytes.
+     * @param  length The number of data bytes in the frame.
+     * @return The number of check bytes written after the data.
+     */
+    protected int writeCheck (byte[] frame, int length) {
+
+	return 0;
+
+    } // writeCheck ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Verify the check bytes of a frame delimited by a <code>Framing</code>,
+     * and extract its data.  By default, there are no check bytes, and all of
+     * the contents are data.
+     *
+     * @param  frame  The frame contents, data followed by check bytes.
+     * @param  length The number of bytes of frame contents.
+     * @return The data of the frame, or <code>null</code> if the frame is
+     *         damaged.
+     */
+    protected byte[] checkFrame (byte[] frame, int length) {
+
+	return Arrays.copyOf(frame, length);
+
+    } // checkFrame ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Transmit a byte as bits.  Expected to be called by a subclass
+     * in performing a <code>send()</code>.  If the link is interleaved, the
+     * byte goes out with the rest of its block, once that block is full.
+     *
+     * @param data The byte of data to send.
+     */
+    protected void transmit (byte data) {
+
+	if (interleaver != null) {
+	    if (interleaver.put(data)) {
+		transmitBlock(interleaver.ready());
+	    }
+	    return;
+	}
+
+	transmitBits(data);
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Transmit every byte of an interleaved block.
+    private void transmitBlock (byte[] block) {
+
+	for (int i = 0; i < block.length; i += 1) {
+	    transmitBits(block[i]);
+	}
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Transmit a byte as bits, most to least significant.
+    private void transmitBits (byte data) {
+
+	if (debug) {
+	    System.out.printf("DataLinkLayer.transmit(): Sending byte = %c\n",
+			      data);
+	}
+
+	// Transmit one bit at a time, most to least significant.
+	for (int i = BITS_PER_BYTE - 1; i >= 0; i -= 1) {
+
+	    // Grab the current bit...
+	    boolean bit = ((1 << i) & data) != 0;
+
+	    // ...and send it.
+	    physicalLayer.send(bit);
+
+	}
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Transmit every remaining byte of a frame buffer as bits.
+     *
+     * @param frame The buffer whose remaining bytes to send.
+     */
+    protected void transmit (ByteBuffer frame) {
+
+	while (frame.hasRemaining()) {
+	    transmit(frame.get());
+	}
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Deliver a bit into this layer.  Expected to be called by the physical
+     * layer.  Accumulate bits into a buffer, and with each full byte received,
+     * accumulate those bits into a byte buffer.  Each byte added to the buffer
+     * is examined to determine whether a whole frame has been received, and if
+     * so, then processed.
+     *
+     * @param bit The value to receive, where <code>false</code> indicates a
+     *            <code>0</code>, and <code>true</code> indicates a
+     *            <code>1</code>.
+     */
+    public void receive (boolean bit) {
+
+        // Add the new bit to the buffer.
+        bitBuffer.add(bit);
+
+        // If this bit completes a byte, then add it to the byte buffer.
+        if (bitBuffer.size() >= BITS_PER_BYTE) {
+
+            // Build up the byte from the bits...
+            byte newByte = 0;
+            for (int i = 0; i < BITS_PER_BYTE; i += 1) {
+                bit = bitBuffer.remove();
+                newByte = (byte)((newByte << 1) | (bit ? 1 : 0));
+            }
+
+            if (debug) {
+                System.out.printf("DataLinkLayer.receive(): Got new byte = %c\n",
+                    newByte);
+            }
+
+            // If the link is interleaved, the bytes come in order only once
+            // their whole block is in.
+            if (deinterleaver != null) {
+                if (deinterleaver.put(newByte)) {
+                    byte[] block = deinterleaver.ready();
+                    if (framing != null) {
+                        framing.receive(block, 0, block.length);
+                    } else {
+                        for (int i = 0; i < block.length; i += 1) {
+                            receiveByte(block[i]);
+                        }
+                    }
+                }
+                return;
+            }
+
+            receiveByte(newByte);
+
+        }
+
+    } // receive ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Deliver a bit sent by the given station.  Expected to be called by the
+     * physical layer of a medium that knows the sender of each bit.  Once
+     * this station has an address, each sender's bits are reassembled apart;
+     * otherwise, all bits are taken in a single stream.
+     *
+     * @param source The station that sent the bit.
+     * @param bit    The value received.
+     */
+    public void receive (int source, boolean bit) {
+
+	if (reassemblies == null) {
+	    receive(bit);
+	} else {
+	    reassembly(source).receive(bit);
+	}
+
+    } // receive ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Deliver a soft bit sent by the given station, as a log-likelihood
+     * ratio.
+     *
+     * @param source The station that sent the bit.
+     * @param llr    The log-likelihood ratio of the bit received.
+     */
+    public void receive (int source, double llr) {
+
+	if (reassemblies == null) {
+	    receive(llr);
+	} else {
+	    reassembly(source).receive(llr);
+	}
+
+    } // receive ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // The layer that reassembles the given station's bits, made the first
+    // time the station is heard.  The last one found is remembered, since
+    // a sender's bits mostly come in runs.
+    private DataLinkLayer reassembly (int source) {
+
+	Route route = lastRoute;
+	if ((route == null) || (route.source != source)) {
+	    route     = new Route(source,
+				  reassemblies.computeIfAbsent(
+				      source, (int s) -> createReassembly()));
+	    lastRoute = route;
+	}
+	return route.layer;
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Make a layer of this type, configured alike, that only receives.  Its
+    // frames are checked as they are found, on the thread that delivers the
+    // sender's bits, rather than on workers of its own.
+    private DataLinkLayer createReassembly () {
+
+	DataLinkLayer layer = instantiate(getClass().getName());
+	layer.physicalLayer = physicalLayer;
+	layer.client        = client;
+	layer.bitBuffer     = new LinkedList<Boolean>();
+	layer.byteBuffer    = new LinkedList<Byte>();
+
+	Map<String, String> layerOptions = new HashMap<String, String>(options);
+	layerOptions.remove("verifiers");
+	layer.options = layerOptions;
+	layer.configure(layerOptions);
+	layer.reassemblies = null;
+	layer.owner        = this;
+	return layer;
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Take the next received byte in order:  find frames among the bytes, and
+    // deliver the contents of each complete frame to the client.
+    private void receiveByte (byte newByte) {
+
+        // If a framing delimits the frames, let it find them.
+        if (framing != null) {
+            framing.receive(newByte);
+            return;
+        }
+
+        // Otherwise, add it to the byte buffer.
+        byteBuffer.add(newByte);
+
+        // Attempt to process the buffered bytes as a frame.  If a complete
+        // frame is found and its contents extraction, deliver those
+        // contents to the client.
+        byte[] originalData = processFrame();
+        if (originalData != null) {
+            if (debug) {
+                System.out.println("DataLinkLayer.receive(): Got a whole frame!");
+            }
+            deliver(originalData);
+        }
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Deliver a soft bit into this layer, as a log-likelihood ratio.  Expected
+     * to be called by the physical layer of a medium that models analog
+     * noise.  Layers that cannot use soft decisions take the more likely bit.
+     *
+     * @param llr The log of the probability that the bit is a <code>1</code>
+     *            over the probability that it is a <code>0</code>.
+     */
+    public void receive (double llr) {
+
+	receive(llr > 0);
+
+    } // receive ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Determine whether the byte buffer contains a complete frame.  If so,
+     * extract its contents, removing all metadata and (if applicable) checking
+     * its correctness, then returning (if possible) the contained data.
+     *
+     * @return if possible, the extracted data from the frame; <code>null</code>
+     *         otherwise.
+     */
+    abstract protected byte[] processFrame ();
+    // ===============================================================
+
+
+
+    // ===============================================================
+    /**
+     * Accept a frame found by this link's <code>Framing</code>, delivering its
+     * data to the client if its check bytes are correct.
+     *
+     * @param frame  The frame contents, data followed by check bytes.  Only
+     *               valid for the duration of the call.
+     * @param length The number of bytes of frame contents.
+     */
+    public void receiveFrame (byte[] frame, int length) {
+
+	byte[] originalData = acceptFrame(frame, length);
+	if (originalData != null) {
+	    if (debug) {
+		System.out.println("DataLinkLayer.receiveFrame(): Got a whole frame!");
+	    }
+	    deliver(originalData);
+	}
+
+    } // receiveFrame ()
+    // ===============================================================
+
+
+
+    // ===============================================================
+    /**
+     * Check a complete frame, found by this layer or its framing.  If
+     * received frames are checked by workers, the frame is handed to them,
+     * and its data is delivered to the client later, in order.  A frame for
+     * another station is dropped unchecked, where its header can be read.
+     *
+     * @param  frame  The frame contents, data followed by check bytes.  Only
+     *                read for the duration of the call.
+     * @param  length The number of bytes of frame contents.
+     * @return The data of the frame, or <code>null</code> if the frame is
+     *         damaged or is being checked by the workers.
+     */
+    protected byte[] acceptFrame (byte[] frame, int length) {
+
+	// Drop a frame for another station on sight, if its header is where it
+	// was sent.
+	if ((address != NO_ADDRESS) && readsHeaderUnchecked() &&
+	    (length >= ADDRESS_LENGTH) && !addressedHere(frame)) {
+	    return null;
+	}
+
+	if (verifier != null) {
+	    verifier.submit(frame, length);
+	    return null;
+	}
+	return checkFrame(frame, length);
+
+    } // acceptFrame ()
+    // ===============================================================
+
+
+
+    // ===============================================================
+    /**
+     * Deliver the data of an intact frame to the client, in the order sent.
+     * If frames carry a header, it is read, and only the data after it is
+     * delivered, and only if the frame is addressed to this station.
+     *
+     * @param data The data of the frame.
+     */
+    protected void deliver (byte[] data) {
+
+	int headerLength = headerLength();
+	if (headerLength > 0) {
+	    if (data.length < headerLength) {
+		return;
+	    }
+	    if ((address != NO_ADDRESS) && !addressedHere(data)) {
+		return;
+	    }
+	    if (piggyback) {
+		readHeader(data, headerLength - PIGGYBACK_LENGTH);
+	    }
+	    data = Arrays.copyOfRange(data, headerLength, data.length);
+	}
+	client.receive(owner, data);
+
+    } // deliver ()
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Copy a piece of the data into a frame behind its header, returning the
+    // length of the frame's contents.
+    private int writeHeader (byte[] data,
+			     int    offset,
+			     int    length,
+			     byte[] frame,
+			     int    sequence) {
+
+	int header = 0;
+	if (address != NO_ADDRESS) {
+	    frame[DESTINATION_INDEX] = (byte)destination;
+	    frame[SOURCE_INDEX]      = (byte)address;
+	    header += ADDRESS_LENGTH;
+	}
+	if (piggyback) {
+	    frame[header + SEQUENCE_INDEX] = (byte)sequence;
+	    writeShort(frame, header + ACKNOWLEDGE_INDEX, framesReceived);
+	    header += PIGGYBACK_LENGTH;
+	}
+	System.arraycopy(data, offset, frame, header, length);
+	return header + length;
+
+    }
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Count a received frame, any frames missing before it, and the frames
+    // of ours that the other end acknowledges, from the sequence number and
+    // acknowledgement at the given offset.  Called only on the thread that
+    // delivers the sender's frames, in order.  A layer reassembling one
+    // sender's bits keeps the counts in the layer that made it.
+    private void readHeader (byte[] data, int offset) {
+
+	int sequence = data[offset + SEQUENCE_INDEX] & 0xFF;
+	int lost     = (sequence - expectedSequence) & 0xFF;
+	expectedSequence = (sequence + 1) & 0xFF;
+
+	// Frames encoded in parallel may carry acknowledgements out of order,
+	// so one older than the last is no news.
+	int acknowledged = readShort(data, offset + ACKNOWLEDGE_INDEX);
+	int advance      = (short)(acknowledged - lastAcknowledged);
+	if (advance > 0) {
+	    lastAcknowledged = acknowledged;
+	} else {
+	    advance = 0;
+	}
+
+	synchronized (owner) {
+	    owner.framesLost         += lost;
+	    owner.framesReceived     += 1;
+	    owner.framesAcknowledged += advance;
+	}
+
+    }
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Whether a frame's header names this station, or every station, as its
+    // destination.
+    private boolean addressedHere (byte[] frame) {
+
+	int to = frame[DESTINATION_INDEX] & 0xFF;
+	return (to == address) || (to == BROADCAST);
+
+    }
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Write and read a 16-bit field, most significant byte first.
+    private static void writeShort (byte[] frame, int index, int value) {
+
+	frame[index]     = (byte)(value >>> Byte.SIZE);
+	frame[index + 1] = (byte)value;
+
+    }
+
+    private static int readShort (byte[] frame, int index) {
+
+	return ((frame[index] & 0xFF) << Byte.SIZE) | (frame[index + 1] & 0xFF);
+
+    }
+    // ===============================================================
+
+
+
+    // ===============================================================
+    /**
+     * @return The number of bytes of header ahead of the data in each frame,
+     *         which are carried beside the frame's <code>frameSize()</code>
+     *         data bytes.
+     */
+    protected int headerLength () {
+
+	return ((address != NO_ADDRESS) ? ADDRESS_LENGTH : 0) +
+	    (piggyback ? PIGGYBACK_LENGTH : 0);
+
+    } // headerLength ()
+    // ===============================================================
+
+
+
+    // ===============================================================
+    /**
+     * @return The most bytes that a frame's contents may hold ahead of its
+     *         check bytes:  its data, and the longest header.  Buffers for a
+     *         frame are sized to match.
+     */
+    protected int maxContentsLength () {
+
+	return frameSize() + MAX_HEADER_LENGTH;
+
+    } // maxContentsLength ()
+    // ===============================================================
+
+
+
+    // ===============================================================
+    /**
+     * @return The number of data bytes carried by each frame, so that a
+     *         client may size its sends to fill frames exactly.
+     */
+    protected int dataPerFrame () {
+
+	return frameSize();
+
+    } // dataPerFrame ()
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Size the frame buffer pool for the largest frame this link may send.
+    // Segments are sized to match when next needed.
+    private void createFramePool () {
+
+	int frameLength = ((framing == null) ?
+			   maxFrameLength(frameSize() + headerLength()) :
+			   framing.maxEncodedLength(frameSize() + headerLength() +
+						    checkLength()));
+	framePool   = new FrameBufferPool(frameLength, false);
+	segmentPool = null;
+
+    }
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Encode the data in segments of consecutive frames, each segment on the
+    // common fork-join pool, and transmit the segments in order as each is
+    // done.  Only a few segments per worker are ever outstanding, so the
+    // workers stay ahead of the transmission without holding the whole
+    // encoding in memory.
+    private void sendConcurrently (final byte[] data) {
+
+	if (segmentPool == null) {
+	    segmentPool = new FrameBufferPool(SEGMENT_FRAMES *
+					      framePool.bufferSize(),
+					      false);
+	}
+
+	int segmentLength = SEGMENT_FRAMES * dataPerFrame();
+	int segments      = (data.length + segmentLength - 1) / segmentLength;
+	int window        = 2 * ForkJoinPool.getCommonPoolParallelism();
+	ArrayDeque<ForkJoinTask<ByteBuffer>> pending =
+	    new ArrayDeque<ForkJoinTask<ByteBuffer>>();
+
+	int submitted = 0;
+	for (int sent = 0; sent < segments; sent += 1) {
+	    while ((submitted < segments) && (pending.size() < window)) {
+		final int offset   = submitted * segmentLength;
+		final int length   = Math.min(segmentLength, data.length - offset);
+		final int sequence = framesSent;
+		pending.add(ForkJoinPool.commonPool().submit(
+				() -> encodeSegment(data, offset, length, sequence)));
+		framesSent += (length + dataPerFrame() - 1) / dataPerFrame();
+		submitted  += 1;
+	    }
+	    ByteBuffer segment = pending.remove().join();
+	    transmit(segment);
+	    segmentPool.release(segment);
+	}
+
+    }
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Encode the frames of one segment of the data into a pooled segment
+    // buffer, ready to be read.  The first frame has the given sequence
+    // number, if frames carry a header.
+    private ByteBuffer encodeSegment (byte[] data,
+				      int    offset,
+				      int    length,
+				      int    sequence) {
+
+	ByteBuffer segment = segmentPool.acquire();
+	byte[]     headed  = (headerLength() > 0) ?
+	    new byte[frameSize() + headerLength()] : null;
+	int        size    = dataPerFrame();
+	int        end     = offset + length;
+	for (int position = offset; position < end; position += size) {
+	    int frameLength = Math.min(size, end - position);
+	    int result      = (headed != null) ?
+		encodeFrame(headed,
+			    0,
+			    writeHeader(data, position, frameLength, headed,
+					sequence++),
+			    segment) :
+		encodeFrame(data, position, frameLength, segment);
+	    if (result == FRAME_OVERFLOW) {
+		segmentPool.release(segment);
+		throw new RuntimeException("Frame exceeds pooled buffer size");
+	    }
+	}
+	segment.flip();
+	return segment;
+
+    }
+    // ===============================================================
+
+
+
+    // ===============================================================
+    /**
+     * Walks through a sequence of raw bytes, dividing it into frame-sized
+     * pieces and framing each piece only as the iteration reaches it.
+     */
+    protected class FrameIterator implements Iterator<ByteBuffer> {
+
+	public FrameIterator (byte[] data) {
+	    this.data     = data;
+	    this.position = 0;
+	}
+
+	public boolean hasNext () {
+	    return position < data.length;
+	}
+
+	public ByteBuffer next () {
+	    if (!hasNext()) {
+		throw new NoSuchElementException();
+	    }
+	    int        length = Math.min(dataPerFrame(), data.length - position);
+	    ByteBuffer frame  = framePool.acquire();
+	    byte[]     source = data;
+	    int        start  = position;
+	    int        count  = length;
+	    if (headed != null) {
+		source = headed;
+		start  = 0;
+		count  = writeHeader(data, position, length, headed, framesSent);
+		framesSent += 1;
+	    }
+	    int        result = ((framing == null) ?
+				 encodeFrame(source, start, count, frame) :
+				 encodeFramed(source, start, count, frame));
+	    if (result == FRAME_OVERFLOW) {
+		framePool.release(frame);
+		throw new RuntimeException("Frame exceeds pooled buffer size");
+	    }
+	    frame.flip();
+	    position += length;
+	    return frame;
+	}
+
+	/** The raw data being framed. */
+	private final byte[] data;
+
+	/** The index of the first byte not yet framed. */
+	private int          position;
+
+	/** The contents of a frame with a header, if frames carry one. */
+	private final byte[] headed = (headerLength() > 0) ?
+	    new byte[frameSize() + headerLength()] : null;
+
+    } // class FrameIterator
+    // ===============================================================
+
+
+
+    // ===============================================================
+    /**
+     * A station, and the layer that reassembles its bits.
+     */
+    private static class Route {
+
+	public Route (int source, DataLinkLayer layer) {
+	    this.source = source;
+	    this.layer  = layer;
+	}
+
+	public final int           source;
+
+	public final DataLinkLayer layer;
+
+    } // class Route
+    // ===============================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The physical layer used by this layer. */
+    protected PhysicalLayer  physicalLayer;
+
+    /** The host that is using this layer. */
+    protected Host           client;
+
+    /** The buffer of bits recently received, building up the current byte. */
+    protected Queue<Boolean> bitBuffer;
+
+    /** The buffer of bytes recently received, building up the current frame. */
+    protected Queue<Byte>    byteBuffer;
+
+    /** The recycled buffers into which outgoing frames are encoded. */
+    protected FrameBufferPool framePool;
+
+    /** The recycled buffers into which segments of frames are encoded in
+     *  parallel, or <code>null</code> until first needed. */
+    private FrameBufferPool  segmentPool;
+
+    /** How frames are delimited, or <code>null</code> for this layer's own
+     *  start, stop, and escape tags. */
+    protected Framing        framing;
+
+    /** The interleaver of bytes sent, and deinterleaver of bytes received,
+     *  or <code>null</code> if the link is not interleaved. */
+    private BlockInterleaver interleaver;
+    private BlockInterleaver deinterleaver;
+
+    /** The checker of received frames on worker threads, or
+     *  <code>null</code> if each frame is checked as it is found. */
+    private FrameVerifier    verifier;
+
+    /** The contents of the frame being sent through <code>framing</code>. */
+    private byte[]           frameContents;
+
+    /** Whether every frame carries a sequence number and acknowledgement. */
+    private boolean          piggyback          = false;
+
+    /** The settings with which this layer was configured. */
+    private Map<String, String> options = Collections.emptyMap();
+
+    /** This station's address, or <code>NO_ADDRESS</code> if frames carry
+     *  no addresses. */
+    private int              address            = NO_ADDRESS;
+
+    /** The address to which frames are sent. */
+    private int              destination        = BROADCAST;
+
+    /** The layer that reassembles each sender's bits, by station, or
+     *  <code>null</code> if all bits are taken in a single stream. */
+    private StripedIntMap<DataLinkLayer> reassemblies;
+
+    /** The station whose reassembly was last found. */
+    private volatile Route   lastRoute;
+
+    /** The layer that counts the frames this layer receives:  the one that
+     *  made it, if it reassembles one sender's bits. */
+    private DataLinkLayer    owner              = this;
+
+    /** The number of frames sent with a header.  Used only by the sending
+     *  thread. */
+    private int              framesSent         = 0;
+
+    /** The number of frames received with a header, which the sending
+     *  thread reads to acknowledge them. */
+    private volatile int     framesReceived     = 0;
+
+    /** The number of frames sent that the other end has acknowledged. */
+    private volatile long    framesAcknowledged = 0;
+
+    /** The number of frames from the other end found missing. */
+    private volatile long    framesLost         = 0;
+
+    /** The sequence number of the next frame expected, modulo 256, and the
+     *  last acknowledgement received, modulo 65536.  Used only by the receiving
+     *  thread. */
+    private int              expectedSequence   = 0;
+    private int              lastAcknowledged   = 0;
+
+    /** The framing type that selects a layer's own tags. */
+    public static final String  ESCAPE_FRAMING     = "Escape";
+
+    /** The layout of the header carried by each frame with one:  the
+     *  addresses, if any, and then the sequence number and acknowledgement,
+     *  if any. */
+    public static final int     DESTINATION_INDEX  = 0;
+    public static final int     SOURCE_INDEX       = 1;
+    public static final int     ADDRESS_LENGTH     = 2;
+    public static final int     SEQUENCE_INDEX     = 0;
+    public static final int     ACKNOWLEDGE_INDEX  = 1;
+    public static final int     PIGGYBACK_LENGTH   = 3;
+    public static final int     MAX_HEADER_LENGTH  =
+	ADDRESS_LENGTH + PIGGYBACK_LENGTH;
+
+    /** The address of every station, and the absence of one. */
+    public static final int     BROADCAST          = 0xFF;
+    public static final int     NO_ADDRESS         = -1;
+
+    /** The number of data bytes per frame unless a subclass chooses. */
+    public static final int     DEFAULT_FRAME_SIZE = 64;
+
+    /** The fewest data bytes in a send that is encoded in parallel. */
+    public static final int     PARALLEL_SEND_SIZE = 1 << 16;
+
+    /** The number of frames in each segment encoded in parallel. */
+    public static final int     SEGMENT_FRAMES     = 1024;
+
+    /** Whether to encode every send sequentially, for comparison. */
+    private static final boolean sequentialOnly    =
+	Boolean.getBoolean("DataLinkLayer.sequential");
+
+    /** The value returned by <code>encodeFrame()</code> when out of room. */
+    public static final int     FRAME_OVERFLOW     = -1;
 
     /** The number of bits in a byte. */
-    public static final int     BITS_PER_BYTE = 8;
+    public static final int     BITS_PER_BYTE      = 8;
 
     /** Whether to emit debugging information. */
-    public static final boolean debug         = false;
+    public static final boolean debug              = false;
     // =========================================================================
 
 
@@ -1,6 +1,8 @@
 // =============================================================================
 // IMPORTS
 
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.Queue;
@@ -23,51 +25,59 @@ public class DumbDataLinkLayer extends DataLinkLayer {
 
     // =========================================================================
     /**
-     * Embed a raw sequence of bytes into a framed sequence.
+     * Embed a portion of a raw sequence of bytes into a single frame, writing
+     * it directly into the given buffer.
      *
-     * @param  data The raw sequence of bytes to be framed.
-     * @return A complete frame.
+     * @param  data   The raw sequence of bytes from which to frame.
+     * @param  offset The index of the first byte to place in the frame.
+     * @param  length The number of bytes to place in the frame.
+     * @param  out    The buffer into which to write the frame.
+     * @return The number of bytes written, or <code>FRAME_OVERFLOW</code> if
+     *         the frame did not fit.
      */
-    protected byte[] createFrame (byte[] data) {
+    protected int encodeFrame (byte[]     data,
+			       int        offset,
+			       int        length,
+			       ByteBuffer out) {
 
-	Queue<Byte> framingData = new LinkedList<Byte>();
-	
-	// Begin with the start tag.
-	framingData.add(startTag);
+	int start = out.position();
+	try {
 
-	// Add each byte of original data.
-	for (int i = 0; i < data.length; i += 1) {
+	    // Begin with the start tag.
+	    out.put(startTag);
 
-	    // If the current data byte is itself a metadata tag, then precede
-	    // it with an escape tag.
-	    byte currentByte = data[i];
-	    if ((currentByte == startTag) ||
-		(currentByte == stopTag) ||
-		(currentByte == escapeTag)) {
+	    // Add the original data, preceding any metadata tag within it with
+	    // an escape tag.
+	    stuffer.stuff(data, offset, length, out);
 
-		framingData.add(escapeTag);
+	    // End with a stop tag.
+	    out.put(stopTag);
 
-	    }
+	} catch (BufferOverflowException e) {
+	    out.position(start);
+	    return FRAME_OVERFLOW;
+	}
 
-	    // Add the data byte itself.
-	    framingData.add(currentByte);
+	return out.position() - start;
+	
+    } // encodeFrame ()
+    // =========================================================================
 
-	}
 
-	// End with a stop tag.
-	framingData.add(stopTag);
 
-	// Convert to the desired byte array.
-	byte[] framedData = new byte[framingData.size()];
-	Iterator<Byte>  i = framingData.iterator();
-	int             j = 0;
-	while (i.hasNext()) {
-	    framedData[j++] = i.next();
-	}
+    // =========================================================================
+    /**
+     * The largest frame for the given amount of data:  every byte escaped,
+     * plus the start and stop tags.
+     *
+     * @param  length The number of data bytes in the frame.
+     * @return The worst-case size of the framed data.
+     */
+    protected int maxFrameLength (int length) {
 
-	return framedData;
-	
-    } // createFrame ()
+	return (2 * length) + 2;
+
+    } // maxFrameLength ()
     // =========================================================================
 
 
@@ -190,6 +200,12 @@ public class DumbDataLinkLayer extends DataLinkLayer {
     private final byte startTag  = (byte)'{';
     private final byte stopTag   = (byte)'}';
     private final byte escapeTag = (byte)'\\';
+
+    // The escaper of tags within the data.
+    private final ByteStuffer stuffer = new ByteStuffer(escapeTag,
+							 startTag,
+							 stopTag,
+							 escapeTag);
     // ===============================================================
 
 
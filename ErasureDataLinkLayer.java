@@ -0,0 +1,679 @@
+// =============================================================================
+// IMPORTS
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * A data link layer that adds erasure coding across frames to the CRC layer.
+ * The frames of each send are grouped <code>k</code> at a time, and after
+ * each group come <code>m</code> repair frames.  A frame that fails its CRC
+ * is an erasure, and so long as any <code>k</code> of a group's frames arrive
+ * intact, the receiver rebuilds the rest without asking for them again.
+ *
+ * Every frame carries a header of its group number, its index within the
+ * group, and the number of data frames in the group, followed by a shard:  a
+ * length byte and the data, padded to the full frame size.  Repair shard
+ * <code>r</code> is the sum over the group's data shards of each times the
+ * coefficient <code>C[r][i]</code> of a Cauchy matrix, so that any
+ * <code>k</code> shards determine the others.  The matrix is scaled so that
+ * its first row is all ones, making the first repair shard the plain
+ * exclusive-or of the data shards, computed a word at a time; a single loss,
+ * the common case, is rebuilt from it with exclusive-or alone.
+ *
+ * Data frames are delivered as soon as they are in order.  Those that follow
+ * a lost frame are held until it is rebuilt, or until the next group begins
+ * and it is given up for lost.
+ *
+ * @file   ErasureDataLinkLayer.java
+ * @author Ikram Gabiyev
+ * @date   October 2026
+ */
+public class ErasureDataLinkLayer extends CRCDataLinkLayer {
+// =============================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The constructor.  Use the default group size.
+     */
+    public ErasureDataLinkLayer () {
+
+	setGroup(DEFAULT_K, DEFAULT_M);
+
+    } // ErasureDataLinkLayer ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Apply named settings to this layer.
+     *
+     * @param options The settings, by name.  In addition to those of the CRC
+     *                layer, <code>erasure</code> gives the number of data and
+     *                repair frames per group as <code>k,m</code>.
+     * @throws RuntimeException if the group is malformed or invalid.
+     */
+    protected void configure (Map<String, String> options) {
+
+	String erasure = options.get("erasure");
+	if (erasure != null) {
+	    String[] parameters = erasure.split(",");
+	    if (parameters.length != 2) {
+		throw new RuntimeException("Expected erasure as k,m, not " +
+					   erasure);
+	    }
+	    try {
+		setGroup(Integer.parseInt(parameters[0].trim()),
+			 Integer.parseInt(parameters[1].trim()));
+	    } catch (NumberFormatException e) {
+		throw new RuntimeException("Expected erasure as k,m, not " +
+					   erasure);
+	    }
+	}
+
+	super.configure(options);
+
+    } // configure ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Choose the size of each group.  Must be done before the layer is first
+     * used.
+     *
+     * @param  k The number of data frames per group.
+     * @param  m The number of repair frames per group.
+     * @throws RuntimeException if there cannot be so many frames in a group.
+     */
+    public void setGroup (int k, int m) {
+
+	if ((k < 1) || (m < 1) || (k + m > MAX_GROUP)) {
+	    throw new RuntimeException("Invalid erasure group (" + k + ", " +
+				       m + ")");
+	}
+	dataFrames   = k;
+	repairFrames = m;
+
+	// Cauchy coefficients 1 / (x_r + y_i), with x_r = k + r and y_i = i
+	// all distinct, each column then divided by its first entry.
+	coefficients = new int[m][k];
+	tables       = new byte[m][k][];
+	for (int i = 0; i < k; i += 1) {
+	    int first = GaloisField.inverse(k ^ i);
+	    for (int r = 0; r < m; r += 1) {
+		int cauchy = GaloisField.inverse((k + r) ^ i);
+		coefficients[r][i] = GaloisField.divide(cauchy, first);
+		tables[r][i]       =
+		    GaloisField.multiplicationTable(coefficients[r][i]);
+	    }
+	}
+
+	repairs  = new byte[m][SHARD_LENGTH];
+	shards   = new byte[k + m][SHARD_LENGTH];
+	received = new boolean[k + m];
+
+    } // setGroup ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The number of raw data bytes carried by each frame.
+     *
+     * @return The number of data bytes per frame.
+     */
+    protected int frameSize () {
+
+	return FRAME_SIZE;
+
+    } // frameSize ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Provide the data and repair frames for a sequence of bytes.
+     *
+     * @param  data The raw sequence of bytes to be framed.
+     * @return An iterator over the frames, each group of data frames
+     *         followed by its repair frames.
+     */
+    protected Iterator<ByteBuffer> frames (byte[] data) {
+
+	return new GroupIterator(data);
+
+    } // frames ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The largest frame for the given amount of data, with its header and
+     * padding.
+     *
+     * @param  length The number of data bytes in the frame.
+     * @return The worst-case size of the framed data.
+     */
+    protected int maxFrameLength (int length) {
+
+	return super.maxFrameLength(PAYLOAD_LENGTH);
+
+    } // maxFrameLength ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Under a framing, the header and padding make each frame longer than
+     * its data, so they count with the checksum.
+     *
+     * @return The number of bytes per frame beyond its data.
+     */
+    protected int checkLength () {
+
+	return super.checkLength() + PAYLOAD_LENGTH - FRAME_SIZE;
+
+    } // checkLength ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Repair shards are accumulated across the frames of a group, so frames
+     * are encoded in order.
+     *
+     * @return <code>false</code>, always.
+     */
+    protected boolean encodesConcurrently () {
+
+	return false;
+
+    } // encodesConcurrently ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Frames are reassembled into groups as they are checked, so frames are
+     * checked in order.
+     *
+     * @return <code>false</code>, always.
+     */
+    protected boolean checksConcurrently () {
+
+	return false;
+
+    } // checksConcurrently ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * A group delivers the data of several frames at once, and rebuilds
+     * frames that never arrived, so frames cannot carry headers of their own.
+     *
+     * @return <code>false</code>, always.
+     */
+    protected boolean carriesHeaders () {
+
+	return false;
+
+    } // carriesHeaders ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Verify a frame's CRC, and add its shard to its group.  A frame that
+     * fails is simply absent from its group.
+     *
+     * @param  frame  The frame contents, payload followed by the checksum.
+     * @param  length The number of bytes of frame contents.
+     * @return The data that the frame completes, in order, or
+     *         <code>null</code> if there is none yet.
+     */
+    protected byte[] checkFrame (byte[] frame, int length) {
+
+	byte[] contents = super.checkFrame(frame, length);
+	if ((contents == null) || (contents.length != PAYLOAD_LENGTH)) {
+	    return null;
+	}
+
+	int group = contents[GROUP_INDEX] & 0xFF;
+	int index = contents[SHARD_INDEX] & 0xFF;
+	int count = contents[COUNT_INDEX] & 0xFF;
+	if ((count < 1) || (count > dataFrames) ||
+	    (index >= count + repairFrames)) {
+	    return null;
+	}
+
+	// A new group gives up on whatever the last one still lacks.
+	ByteBuffer output = ByteBuffer.allocate(dataFrames * FRAME_SIZE);
+	if (group != currentGroup) {
+	    flushGroup(output);
+	    currentGroup = group;
+	    groupCount   = count;
+	    delivered    = 0;
+	    arrived      = 0;
+	    Arrays.fill(received, false);
+	}
+
+	// Repair frames can index past a short group's data shards.
+	int slot = (index < count) ? index : dataFrames + (index - count);
+	if ((count == groupCount) && (delivered < groupCount) &&
+	    !received[slot]) {
+
+	    System.arraycopy(contents, HEADER_LENGTH,
+			     shards[slot], 0, SHARD_LENGTH);
+	    received[slot] = true;
+	    arrived       += 1;
+
+	    if (!deliverInOrder(output) && (arrived >= groupCount)) {
+		rebuild();
+		deliverInOrder(output);
+	    }
+
+	}
+
+	return (output.position() == 0) ?
+	    null : Arrays.copyOf(output.array(), output.position());
+
+    } // checkFrame ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Deliver the data shards that are next in order and present.  Returns
+    // whether the whole group has been delivered.
+    private boolean deliverInOrder (ByteBuffer output) {
+
+	while ((delivered < groupCount) && received[delivered]) {
+	    deliverShard(shards[delivered], output);
+	    delivered += 1;
+	}
+	return delivered == groupCount;
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Deliver what remains of the current group, skipping lost shards.
+    private void flushGroup (ByteBuffer output) {
+
+	for (; delivered < groupCount; delivered += 1) {
+	    if (received[delivered]) {
+		deliverShard(shards[delivered], output);
+	    } else {
+		System.out.println("");
+		System.out.println("Error occured");
+		System.out.println("***** Unrecoverable Frame *****");
+		System.out.println("");
+	    }
+	}
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Append the data of a shard, without its padding.
+    private static void deliverShard (byte[] shard, ByteBuffer output) {
+
+	int length = Math.min(shard[0] & 0xFF, FRAME_SIZE);
+	output.put(shard, 1, length);
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Rebuild the missing data shards of the current group from any that many
+    // repair shards.  Each repair shard, less the contribution of the data
+    // shards present, leaves a combination of the missing ones alone; solving
+    // those combinations recovers them.
+    private void rebuild () {
+
+	int[] missing = new int[groupCount];
+	int   lost    = 0;
+	for (int i = 0; i < groupCount; i += 1) {
+	    if (!received[i]) {
+		missing[lost++] = i;
+	    }
+	}
+	int[] rows = new int[lost];
+	int   used = 0;
+	for (int r = 0; (r < repairFrames) && (used < lost); r += 1) {
+	    if (received[dataFrames + r]) {
+		rows[used++] = r;
+	    }
+	}
+
+	// Strip the present data shards from each chosen repair shard.
+	for (int e = 0; e < lost; e += 1) {
+	    byte[] syndrome = shards[dataFrames + rows[e]];
+	    for (int i = 0; i < groupCount; i += 1) {
+		if (received[i]) {
+		    accumulate(syndrome, shards[i], rows[e], i);
+		}
+	    }
+	}
+
+	// A single loss with the first repair shard present is that shard.
+	if ((lost == 1) && (rows[0] == 0)) {
+	    System.arraycopy(shards[dataFrames], 0,
+			     shards[missing[0]], 0, SHARD_LENGTH);
+	    received[missing[0]] = true;
+	    return;
+	}
+
+	// Otherwise, invert the coefficients of the missing shards in the
+	// chosen rows, and combine the stripped repair shards by the inverse.
+	int[][] inverse = invert(rows, missing, lost);
+	for (int e = 0; e < lost; e += 1) {
+	    byte[] shard = shards[missing[e]];
+	    Arrays.fill(shard, (byte)0);
+	    for (int f = 0; f < lost; f += 1) {
+		byte[] table    = GaloisField.multiplicationTable(inverse[e][f]);
+		byte[] syndrome = shards[dataFrames + rows[f]];
+		for (int b = 0; b < SHARD_LENGTH; b += 1) {
+		    shard[b] ^= table[syndrome[b] & 0xFF];
+		}
+	    }
+	    received[missing[e]] = true;
+	}
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Invert the square matrix of coefficients of the given rows and columns
+    // by Gauss-Jordan elimination.  Every square submatrix of a Cauchy matrix
+    // is invertible, so a pivot always exists.
+    private int[][] invert (int[] rows, int[] columns, int size) {
+
+	int[][] matrix  = new int[size][size];
+	int[][] inverse = new int[size][size];
+	for (int i = 0; i < size; i += 1) {
+	    for (int j = 0; j < size; j += 1) {
+		matrix[i][j] = coefficients[rows[i]][columns[j]];
+	    }
+	    inverse[i][i] = 1;
+	}
+
+	for (int col = 0; col < size; col += 1) {
+	    int pivot = col;
+	    while (matrix[pivot][col] == 0) {
+		pivot += 1;
+	    }
+	    int[] swap     = matrix[col];
+	    matrix[col]    = matrix[pivot];
+	    matrix[pivot]  = swap;
+	    swap           = inverse[col];
+	    inverse[col]   = inverse[pivot];
+	    inverse[pivot] = swap;
+
+	    int scale = GaloisField.inverse(matrix[col][col]);
+	    for (int j = 0; j < size; j += 1) {
+		matrix[col][j]  = GaloisField.multiply(matrix[col][j], scale);
+		inverse[col][j] = GaloisField.multiply(inverse[col][j], scale);
+	    }
+	    for (int i = 0; i < size; i += 1) {
+		int factor = matrix[i][col];
+		if ((i == col) || (factor == 0)) {
+		    continue;
+		}
+		for (int j = 0; j < size; j += 1) {
+		    matrix[i][j]  ^= GaloisField.multiply(factor, matrix[col][j]);
+		    inverse[i][j] ^= GaloisField.multiply(factor, inverse[col][j]);
+		}
+	    }
+	}
+
+	return inverse;
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Add a data shard, times its coefficient in a repair row, into a repair
+    // shard.  The first row's coefficients are all one, so it is a word-wide
+    // exclusive-or.
+    private void accumulate (byte[] repair, byte[] shard, int row, int index) {
+
+	if (row == 0) {
+	    int b = 0;
+	    for (; b + Long.BYTES <= SHARD_LENGTH; b += Long.BYTES) {
+		LONGS.set(repair, b,
+			  (long)LONGS.get(repair, b) ^ (long)LONGS.get(shard, b));
+	    }
+	    for (; b < SHARD_LENGTH; b += 1) {
+		repair[b] ^= shard[b];
+	    }
+	    return;
+	}
+
+	byte[] table = tables[row][index];
+	for (int b = 0; b < SHARD_LENGTH; b += 1) {
+	    repair[b] ^= table[shard[b] & 0xFF];
+	}
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * An iterator over the frames of a sequence of bytes:  each group of up to
+     * <code>k</code> data frames, then its repair frames.  The repair shards
+     * accumulate as the group's data frames are produced.
+     */
+    private class GroupIterator implements Iterator<ByteBuffer> {
+
+	public GroupIterator (byte[] data) {
+	    this.data     = data;
+	    this.position = 0;
+	}
+
+	public boolean hasNext () {
+	    return (position < data.length) || (repairsLeft > 0);
+	}
+
+	public ByteBuffer next () {
+	    if (!hasNext()) {
+		throw new NoSuchElementException();
+	    }
+
+	    if (repairsLeft > 0) {
+
+		// The next repair frame of the group just sent.
+		int row = repairFrames - repairsLeft;
+		writeHeader(count + row);
+		System.arraycopy(repairs[row], 0,
+				 payload, HEADER_LENGTH, SHARD_LENGTH);
+		repairsLeft -= 1;
+		if (repairsLeft == 0) {
+		    nextGroup = (nextGroup + 1) & 0xFF;
+		    index     = 0;
+		}
+
+	    } else {
+
+		// The next data frame, starting a new group if need be.
+		if (index == 0) {
+		    int left = (data.length - position + FRAME_SIZE - 1) /
+			FRAME_SIZE;
+		    count = Math.min(dataFrames, left);
+		    for (byte[] repair : repairs) {
+			Arrays.fill(repair, (byte)0);
+		    }
+		}
+		int length = Math.min(FRAME_SIZE, data.length - position);
+		shard[0] = (byte)length;
+		System.arraycopy(data, position, shard, 1, length);
+		Arrays.fill(shard, 1 + length, SHARD_LENGTH, (byte)0);
+		for (int row = 0; row < repairFrames; row += 1) {
+		    accumulate(repairs[row], shard, row, index);
+		}
+		writeHeader(index);
+		System.arraycopy(shard, 0, payload, HEADER_LENGTH, SHARD_LENGTH);
+		position += length;
+		index    += 1;
+		if (index == count) {
+		    repairsLeft = repairFrames;
+		}
+
+	    }
+
+	    ByteBuffer frame  = framePool.acquire();
+	    int        result = ((framing == null) ?
+				 encodeFrame(payload, 0, PAYLOAD_LENGTH, frame) :
+				 encodeFramed(payload, 0, PAYLOAD_LENGTH, frame));
+	    if (result == FRAME_OVERFLOW) {
+		framePool.release(frame);
+		throw new RuntimeException("Frame exceeds pooled buffer size");
+	    }
+	    frame.flip();
+	    return frame;
+	}
+
+	private void writeHeader (int shardIndex) {
+	    payload[GROUP_INDEX] = (byte)nextGroup;
+	    payload[SHARD_INDEX] = (byte)shardIndex;
+	    payload[COUNT_INDEX] = (byte)count;
+	}
+
+	/** The raw data being framed. */
+	private final byte[] data;
+
+	/** The index of the first byte not yet framed. */
+	private int          position;
+
+	/** The index of the next data frame within its group. */
+	private int          index       = 0;
+
+	/** The number of data frames in the current group. */
+	private int          count       = 0;
+
+	/** The number of the current group's repair frames yet to send. */
+	private int          repairsLeft = 0;
+
+    } // class GroupIterator
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The number of data frames per group. */
+    private int         dataFrames;
+
+    /** The number of repair frames per group. */
+    private int         repairFrames;
+
+    /** The coefficient of each data shard in each repair shard. */
+    private int[][]     coefficients;
+
+    /** The products with each coefficient. */
+    private byte[][][]  tables;
+
+    /** The repair shards of the group being sent. */
+    private byte[][]    repairs;
+
+    /** The header and shard of the frame being sent. */
+    private final byte[] payload = new byte[PAYLOAD_LENGTH];
+
+    /** The shard of the frame being sent, apart from its header. */
+    private final byte[] shard   = new byte[SHARD_LENGTH];
+
+    /** The number of the next group to send. */
+    private int         nextGroup    = 0;
+
+    /** The shards of the group being received:  data, then repair. */
+    private byte[][]    shards;
+
+    /** Which of the group's shards have arrived, or been rebuilt. */
+    private boolean[]   received;
+
+    /** The number of the group being received, or -1 before the first. */
+    private int         currentGroup = -1;
+
+    /** The number of data frames in the group being received. */
+    private int         groupCount   = 0;
+
+    /** The number of the group's shards that have arrived. */
+    private int         arrived      = 0;
+
+    /** The number of the group's data shards already delivered. */
+    private int         delivered    = 0;
+
+    /** The number of data bytes per frame, as for the CRC layer, short
+     *  enough that a frame with its header stays within the reach of the
+     *  CRC's single-bit correction. */
+    private static final int FRAME_SIZE     = 8;
+
+    /** The header fields:  group, index within the group, and data count. */
+    private static final int GROUP_INDEX    = 0;
+    private static final int SHARD_INDEX    = 1;
+    private static final int COUNT_INDEX    = 2;
+    private static final int HEADER_LENGTH  = 3;
+
+    /** A shard is a length byte and the padded data. */
+    private static final int SHARD_LENGTH   = 1 + FRAME_SIZE;
+
+    /** The bytes of every frame before its checksum. */
+    private static final int PAYLOAD_LENGTH = HEADER_LENGTH + SHARD_LENGTH;
+
+    /** The most frames in a group, as the Cauchy matrix needs distinct
+     *  field elements for every one. */
+    private static final int MAX_GROUP      = GaloisField.FIELD_SIZE;
+
+    /** The default number of data and repair frames per group. */
+    private static final int DEFAULT_K      = 8;
+    private static final int DEFAULT_M      = 4;
+
+    /** A view of a byte array as words, for exclusive-or. */
+    private static final VarHandle LONGS =
+	MethodHandles.byteArrayViewVarHandle(long[].class,
+					     ByteOrder.LITTLE_ENDIAN);
+
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class ErasureDataLinkLayer
+// =============================================================================
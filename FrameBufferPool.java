@@ -0,0 +1,131 @@
+// =============================================================================
+// IMPORTS
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * A pool of equally sized frame buffers.  A data link layer acquires a buffer,
+ * encodes a frame into it, transmits it, and then releases it back to the
+ * pool, so that steady-state framing allocates nothing.
+ *
+ * @file   FrameBufferPool.java
+ * @author Ikram Gabiyev
+ * @date   October 2026
+ */
+public class FrameBufferPool {
+// =============================================================================
+
+
+
+    // =========================================================================
+    // PUBLIC METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The constructor.
+     *
+     * @param bufferSize The capacity, in bytes, of each pooled buffer.
+     * @param direct     Whether to allocate direct rather than heap buffers.
+     */
+    public FrameBufferPool (int bufferSize, boolean direct) {
+
+	this.bufferSize = bufferSize;
+	this.direct     = direct;
+	this.free       = new ArrayDeque<ByteBuffer>();
+
+    } // FrameBufferPool ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Take a cleared buffer from the pool, allocating a new one only if the
+     * pool is empty.
+     *
+     * @return A buffer with its position at zero and its limit at its capacity.
+     */
+    public synchronized ByteBuffer acquire () {
+
+	ByteBuffer buffer = free.pollFirst();
+	if (buffer == null) {
+	    buffer = (direct ?
+		      ByteBuffer.allocateDirect(bufferSize) :
+		      ByteBuffer.allocate(bufferSize));
+	}
+
+	return buffer;
+
+    } // acquire ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Return a buffer to the pool for reuse.  Buffers beyond the pool's limit
+     * are simply dropped.
+     *
+     * @param buffer The buffer, previously acquired from this pool, to recycle.
+     * @throws RuntimeException if the buffer is not the size of this pool's
+     *                          buffers.
+     */
+    public synchronized void release (ByteBuffer buffer) {
+
+	if (buffer.capacity() != bufferSize) {
+	    throw new RuntimeException("Buffer does not belong to this pool");
+	}
+
+	if (free.size() < MAX_POOLED) {
+	    buffer.clear();
+	    free.addFirst(buffer);
+	}
+
+    } // release ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return The capacity, in bytes, of each pooled buffer.
+     */
+    public int bufferSize () {
+
+	return bufferSize;
+
+    } // bufferSize ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The capacity of each buffer. */
+    private final int              bufferSize;
+
+    /** Whether buffers are allocated outside of the heap. */
+    private final boolean          direct;
+
+    /** The buffers available for reuse, most recently released first. */
+    private final Deque<ByteBuffer> free;
+
+    /** The most buffers ever held idle by the pool. */
+    private static final int       MAX_POOLED = 64;
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class FrameBufferPool
+// =============================================================================
@@ -0,0 +1,170 @@
+// =============================================================================
+// IMPORTS
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * Checks received frames on a pool of worker threads, and delivers their data
+ * in the order in which the frames arrived.  The thread that finds frame
+ * boundaries submits each frame and goes straight back to finding the next,
+ * while the workers verify check bytes in parallel.  As the oldest frames
+ * finish, the submitting thread delivers them in sequence, so that the
+ * client sees exactly the order, and the single thread, that it would
+ * without the workers.
+ *
+ * No more than a few frames per worker are ever outstanding:  once that many
+ * are, the submitting thread waits for the oldest before going on.
+ *
+ * @file   FrameVerifier.java
+ * @author Ikram Gabiyev
+ * @date   October 2026
+ */
+public class FrameVerifier {
+// =============================================================================
+
+
+
+    // =========================================================================
+    // PUBLIC METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The constructor.
+     *
+     * @param  workers The number of worker threads.
+     * @param  check   The check of a frame's contents, returning its data, or
+     *                 <code>null</code> if it is damaged.  Called on the
+     *                 workers, concurrently.
+     * @param  deliver The recipient of the data of each intact frame, in
+     *                 order.  Called on the submitting thread.
+     * @throws RuntimeException if there are no workers.
+     */
+    public FrameVerifier (int                      workers,
+			  Function<byte[], byte[]> check,
+			  Consumer<byte[]>         deliver) {
+
+	if (workers < 1) {
+	    throw new RuntimeException("Invalid number of verifiers " +
+				       workers);
+	}
+
+	this.check    = check;
+	this.deliver  = deliver;
+	this.depth    = DEPTH_PER_WORKER * workers;
+	this.inFlight = new ArrayDeque<Future<byte[]>>(depth);
+	this.pool     = Executors.newFixedThreadPool(workers, (Runnable r) -> {
+		Thread thread = new Thread(r, "frame-verifier");
+		thread.setDaemon(true);
+		return thread;
+	    });
+
+    } // FrameVerifier ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Hand a frame to the workers, and deliver any frames ahead of it that are
+     * done.
+     *
+     * @param frame  The frame contents, which are copied, and so are only
+     *               read for the duration of the call.
+     * @param length The number of bytes of frame contents.
+     */
+    public void submit (byte[] frame, int length) {
+
+	final byte[] contents = Arrays.copyOf(frame, length);
+	while (inFlight.size() >= depth) {
+	    deliver(inFlight.remove());
+	}
+	inFlight.add(pool.submit(() -> check.apply(contents)));
+
+	while (!inFlight.isEmpty() && inFlight.peek().isDone()) {
+	    deliver(inFlight.remove());
+	}
+
+    } // submit ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Wait for every outstanding frame, delivering each in turn.
+     */
+    public void drain () {
+
+	while (!inFlight.isEmpty()) {
+	    deliver(inFlight.remove());
+	}
+
+    } // drain ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Wait for a frame's check, and deliver its data if it is intact.
+    private void deliver (Future<byte[]> result) {
+
+	byte[] data;
+	try {
+	    data = result.get();
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    throw new RuntimeException("Interrupted awaiting a frame check");
+	} catch (ExecutionException e) {
+	    throw new RuntimeException("Frame check failed", e.getCause());
+	}
+
+	if (data != null) {
+	    deliver.accept(data);
+	}
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The check of a frame, run on the workers. */
+    private final Function<byte[], byte[]>     check;
+
+    /** The recipient of intact data, in order. */
+    private final Consumer<byte[]>             deliver;
+
+    /** The most frames outstanding at once. */
+    private final int                          depth;
+
+    /** The checks outstanding, oldest first. */
+    private final ArrayDeque<Future<byte[]>>   inFlight;
+
+    /** The workers. */
+    private final ExecutorService              pool;
+
+    /** The frames outstanding per worker before submission waits. */
+    private static final int DEPTH_PER_WORKER = 4;
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class FrameVerifier
+// =============================================================================
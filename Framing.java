@@ -0,0 +1,208 @@
+// =============================================================================
+// IMPORTS
+
+import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * A framing delimits frames within the stream of bytes carried by a data link
+ * layer.  It encodes each frame so that its boundaries can be found again, and
+ * on receipt it consumes bytes one at a time, handing each complete frame back
+ * to its client data link layer.  A data link layer that uses a framing
+ * supplies only the frame contents, including any check bytes; the framing
+ * decides how those contents are delimited on the wire.
+ *
+ * @file   Framing.java
+ * @author Ikram Gabiyev
+ * @date   October 2026
+ */
+public abstract class Framing {
+// =============================================================================
+
+
+
+    // =========================================================================
+    // PUBLIC METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Create the requested framing type and return it.
+     *
+     * @param  type The subclass of which to create an instance.
+     * @return The newly created framing.
+     * @throws RuntimeException if the given type is not a valid subclass.
+     */
+    public static Framing create (String type) {
+
+	// Look up the class by name.
+	String   className    = type + "Framing";
+	Class<?> framingClass = null;
+	try {
+	    framingClass = Class.forName(className);
+	} catch (ClassNotFoundException e) {
+	    throw new RuntimeException("Unknown framing subclass " + className);
+	}
+
+	// Make one of these objects, and then see if it really is a Framing
+	// subclass.
+	Object o = null;
+	try {
+	    o = framingClass.getDeclaredConstructor().newInstance();
+	} catch (NoSuchMethodException | InstantiationException |
+		 InvocationTargetException e) {
+	    throw new RuntimeException("Could not instantiate " + className);
+	} catch (IllegalAccessException e) {
+	    throw new RuntimeException("Could not access " + className);
+	}
+	Framing framing = null;
+	try {
+	    framing = (Framing)o;
+	} catch (ClassCastException e) {
+	    throw new RuntimeException(className +
+				       " is not a subclass of Framing");
+	}
+
+	return framing;
+
+    } // create ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Allow a data link layer to register as the client of this framing.
+     *
+     * @param  client        The data link layer to which to deliver frames.
+     * @param  frameCapacity The largest frame, in bytes, that the client will
+     *                       ever send.  Anything longer is discarded.
+     * @throws RuntimeException if there already is a client registered.
+     */
+    public void register (DataLinkLayer client, int frameCapacity) {
+
+	// Is there already a client registered?
+	if (this.client != null) {
+	    throw new RuntimeException("Attempt to double-register");
+	}
+
+	// Hold a pointer to the client, and make room for incoming frames.
+	this.client = client;
+	this.frame  = new byte[frameCapacity];
+	this.length = 0;
+
+    } // register ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Delimit the contents of a frame, writing the result into the given
+     * buffer at its current position.
+     *
+     * @param  data   The bytes from which to take the frame contents.
+     * @param  offset The index of the first byte of the frame contents.
+     * @param  length The number of bytes of frame contents.
+     * @param  out    The buffer into which to write the delimited frame.
+     * @return The number of bytes written, or
+     *         <code>DataLinkLayer.FRAME_OVERFLOW</code> if the frame did not
+     *         fit in <code>out</code>, in which case the position of
+     *         <code>out</code> is left unchanged.
+     */
+    abstract public int encode (byte[]     data,
+				int        offset,
+				int        length,
+				ByteBuffer out);
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The largest number of bytes that <code>encode()</code> may write for the
+     * given amount of frame contents.
+     *
+     * @param  length The number of bytes of frame contents.
+     * @return The worst-case size of the delimited frame.
+     */
+    abstract public int maxEncodedLength (int length);
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Consume one received byte.  Whenever a frame is completed, its contents
+     * are handed to the client's <code>receiveFrame()</code>.
+     *
+     * @param data The byte received.
+     */
+    abstract public void receive (byte data);
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Consume a run of received bytes, as <code>receive()</code> would one at
+     * a time.  Framings that can take a frame's contents in bulk should
+     * override this method.
+     *
+     * @param data   The bytes received.
+     * @param offset The index of the first byte to consume.
+     * @param length The number of bytes to consume.
+     */
+    public void receive (byte[] data, int offset, int length) {
+
+	for (int i = offset; i < offset + length; i += 1) {
+	    receive(data[i]);
+	}
+
+    } // receive ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Hand the frame accumulated so far to the client, and start a new one.
+    protected void deliverFrame () {
+
+	if (debug) {
+	    System.out.printf("Framing.deliverFrame(): %d bytes\n", length);
+	}
+	client.receiveFrame(frame, length);
+	length = 0;
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The data link layer to which frames are delivered. */
+    protected DataLinkLayer client;
+
+    /** The contents of the frame being received. */
+    protected byte[]        frame;
+
+    /** The number of bytes of the frame received so far. */
+    protected int           length;
+
+    /** Whether to emit debugging information. */
+    protected static final boolean debug = false;
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class Framing
+// =============================================================================
@@ -0,0 +1,166 @@
+// =============================================================================
+/**
+ * Arithmetic in GF(256), the field of bytes used by Reed-Solomon and erasure
+ * codes.  Addition is exclusive-or; multiplication and division go through
+ * logarithm and antilogarithm tables generated by the primitive polynomial
+ * x^8 + x^4 + x^3 + x^2 + 1, whose root <code>2</code> is the generator
+ * alpha.  Where one operand is fixed, <code>multiplicationTable()</code>
+ * gives a whole row of products so that each multiplication is a single
+ * lookup.
+ *
+ * @file   GaloisField.java
+ * @author Ikram Gabiyev
+ * @date   October 2026
+ */
+public class GaloisField {
+// =============================================================================
+
+
+
+    // =========================================================================
+    // PUBLIC METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @param  a A field element, from 0 to 255.
+     * @param  b A field element, from 0 to 255.
+     * @return The product of the two elements.
+     */
+    public static int multiply (int a, int b) {
+
+	if ((a == 0) || (b == 0)) {
+	    return 0;
+	}
+	return EXP[LOG[a] + LOG[b]];
+
+    } // multiply ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @param  a A field element, from 0 to 255.
+     * @param  b A non-zero field element.
+     * @return The quotient of the two elements.
+     * @throws ArithmeticException if <code>b</code> is zero.
+     */
+    public static int divide (int a, int b) {
+
+	if (b == 0) {
+	    throw new ArithmeticException("Division by zero in GF(256)");
+	}
+	if (a == 0) {
+	    return 0;
+	}
+	return EXP[LOG[a] + ORDER - LOG[b]];
+
+    } // divide ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @param  a A non-zero field element.
+     * @return The multiplicative inverse of the element.
+     */
+    public static int inverse (int a) {
+
+	return divide(1, a);
+
+    } // inverse ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @param  exponent Any integer, possibly negative.
+     * @return alpha raised to the given power.
+     */
+    public static int power (int exponent) {
+
+	return EXP[Math.floorMod(exponent, ORDER)];
+
+    } // power ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @param  a A non-zero field element.
+     * @return The power to which alpha must be raised to give the element.
+     */
+    public static int log (int a) {
+
+	return LOG[a];
+
+    } // log ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Tabulate every product with a fixed element.
+     *
+     * @param  factor The fixed field element.
+     * @return The product of <code>factor</code> with each element, indexed by
+     *         that element.
+     */
+    public static byte[] multiplicationTable (int factor) {
+
+	byte[] table = new byte[FIELD_SIZE];
+	for (int a = 0; a < FIELD_SIZE; a += 1) {
+	    table[a] = (byte)multiply(factor, a);
+	}
+	return table;
+
+    } // multiplicationTable ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The number of elements in the field. */
+    public static final int FIELD_SIZE = 256;
+
+    /** The order of the multiplicative group, and so of alpha. */
+    public static final int ORDER      = FIELD_SIZE - 1;
+
+    /** The primitive polynomial that generates the field. */
+    private static final int PRIMITIVE = 0x11D;
+
+    /** Powers of alpha, repeated twice so that sums of logs need no
+     *  reduction. */
+    private static final int[] EXP = new int[2 * ORDER];
+
+    /** The log, base alpha, of each non-zero element. */
+    private static final int[] LOG = new int[FIELD_SIZE];
+
+    static {
+	int value = 1;
+	for (int i = 0; i < ORDER; i += 1) {
+	    EXP[i]         = value;
+	    EXP[i + ORDER] = value;
+	    LOG[value]     = i;
+	    value <<= 1;
+	    if (value >= FIELD_SIZE) {
+		value ^= PRIMITIVE;
+	    }
+	}
+    }
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class GaloisField
+// =============================================================================
@@ -0,0 +1,386 @@
+// =============================================================================
+// IMPORTS
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * A data link layer that protects its data with an extended Hamming code, and
+ * so corrects single-bit errors rather than discarding the frame.  Each half
+ * of a data byte is sent as an 8-bit SECDED codeword:  four data bits, three
+ * Hamming parity bits, and an overall parity bit.  Any single flipped bit in a
+ * codeword is corrected, and any two are detected.  Both encoding and
+ * decoding are single table lookups, the decoding table mapping every
+ * possible received codeword to its data and whether it was corrected or is
+ * beyond repair.
+ *
+ * Frames are delimited so that a flipped bit cannot lose more than the frame
+ * it is in.  Each frame begins with a flag byte, then the number of data
+ * bytes as a codeword, and then the codewords of the data.  The flag is an
+ * even-weight byte that is no codeword, so it is at least two bits from every
+ * codeword, and a single flipped bit can never make a codeword look like a
+ * flag.  Because the length says where the next frame begins, the receiver
+ * expects a flag there, and takes any byte within one bit of it as the flag.
+ * Only a length or a flag with two flipped bits loses step, after which the
+ * receiver searches for the next exact flag.
+ *
+ * @file   HammingDataLinkLayer.java
+ * @author Ikram Gabiyev
+ * @date   October 2026
+ */
+public class HammingDataLinkLayer extends DataLinkLayer {
+// =============================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The number of raw data bytes carried by each frame.
+     *
+     * @return The number of data bytes per frame.
+     */
+    protected int frameSize () {
+
+	return FRAME_SIZE;
+
+    } // frameSize ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Encode a portion of the data, and frame the codewords behind the flag
+     * and the length.
+     *
+     * @param  data   The raw sequence of bytes from which to frame.
+     * @param  offset The index of the first byte to place in the frame.
+     * @param  length The number of bytes to place in the frame.
+     * @param  out    The buffer into which to write the frame.
+     * @return The number of bytes written, or <code>FRAME_OVERFLOW</code> if
+     *         the frame did not fit.
+     */
+    protected int encodeFrame (byte[]     data,
+			       int        offset,
+			       int        length,
+			       ByteBuffer out) {
+
+	int frameLength = maxFrameLength(length);
+	if (out.remaining() < frameLength) {
+	    return FRAME_OVERFLOW;
+	}
+
+	System.arraycopy(data, offset, codewords, 0, length);
+	encode(codewords, length);
+	out.put(FLAG);
+	out.put(ENCODE[length]);
+	out.put(codewords, 0, 2 * length);
+	return frameLength;
+
+    } // encodeFrame ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The length of a frame for the given amount of data:  the flag, the
+     * length's codeword, and two codewords for each data byte.
+     *
+     * @param  length The number of data bytes in the frame.
+     * @return The size of the framed data.
+     */
+    protected int maxFrameLength (int length) {
+
+	return HEADER_LENGTH + 2 * length;
+
+    } // maxFrameLength ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Extract the codewords of a complete frame, if there is one, and decode
+     * them.  Where a frame is due, a byte within one bit of the flag begins
+     * it; otherwise anything before an exact flag is dropped.
+     *
+     * @return If the buffer contains a complete frame whose errors could all
+     *         be corrected, the original data; <code>null</code> otherwise.
+     */
+    protected byte[] processFrame () {
+
+	while (!byteBuffer.isEmpty()) {
+
+	    // Drop anything that cannot begin a frame.
+	    int flagBits = Integer.bitCount((byteBuffer.peek() ^ FLAG) & 0xFF);
+	    if ((flagBits > 1) || ((flagBits == 1) && !inStep)) {
+		byteBuffer.remove();
+		inStep = false;
+		continue;
+	    }
+	    if (byteBuffer.size() < HEADER_LENGTH) {
+		return null;
+	    }
+
+	    // Read the length.  If it is beyond repair, or too long, this is
+	    // no frame, so search on from the next byte.
+	    Iterator<Byte> i = byteBuffer.iterator();
+	    i.next();
+	    int decoded = DECODE[i.next() & 0xFF];
+	    int length  = decoded & 0xF;
+	    if (((decoded & UNCORRECTABLE) != 0) || (length > maxContentsLength())) {
+		byteBuffer.remove();
+		inStep = false;
+		continue;
+	    }
+	    if (byteBuffer.size() < maxFrameLength(length)) {
+		return null;
+	    }
+
+	    // Take the whole frame.  The next is due right after it, even if
+	    // this one's data cannot be corrected.
+	    for (int j = 0; j < HEADER_LENGTH; j += 1) {
+		byteBuffer.remove();
+	    }
+	    for (int j = 0; j < 2 * length; j += 1) {
+		received[j] = byteBuffer.remove();
+	    }
+	    inStep = true;
+	    byte[] data = decode(received, 2 * length);
+	    if (data != null) {
+		return data;
+	    }
+
+	}
+
+	return null;
+
+    } // processFrame ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Under a framing, the codewords double the data, so the extra codeword
+     * of each byte, header bytes included, counts as check bytes.
+     *
+     * @return The number of check bytes per frame.
+     */
+    protected int checkLength () {
+
+	return maxContentsLength();
+
+    } // checkLength ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Replace a frame's data with its codewords, for use with a framing.
+     *
+     * @param  frame  The frame contents, with room for twice the data.
+     * @param  length The number of data bytes in the frame.
+     * @return The number of bytes added by the encoding.
+     */
+    protected int writeCheck (byte[] frame, int length) {
+
+	encode(frame, length);
+	return length;
+
+    } // writeCheck ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Decode the codewords of a frame delimited by a framing.
+     *
+     * @param  frame  The frame contents, all codewords.
+     * @param  length The number of bytes of frame contents.
+     * @return The data of the frame, or <code>null</code> if it held an error
+     *         that could not be corrected.
+     */
+    protected byte[] checkFrame (byte[] frame, int length) {
+
+	return decode(frame, length);
+
+    } // checkFrame ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * A frame's contents are all codewords, so its header is read only once
+     * decoded.
+     *
+     * @return <code>false</code>, always.
+     */
+    protected boolean readsHeaderUnchecked () {
+
+	return false;
+
+    } // readsHeaderUnchecked ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Replace the data at the start of an array with its codewords, the high
+    // half of each byte first.  Working from the end backwards, each byte is
+    // read before its codewords overwrite it.
+    private static void encode (byte[] buffer, int length) {
+
+	for (int i = length - 1; i >= 0; i -= 1) {
+	    int value = buffer[i] & 0xFF;
+	    buffer[2 * i]     = ENCODE[value >>> 4];
+	    buffer[2 * i + 1] = ENCODE[value & 0xF];
+	}
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Decode pairs of codewords into bytes, correcting where possible.
+    private byte[] decode (byte[] codewords, int length) {
+
+	if ((length == 0) || (length % 2 != 0)) {
+	    return null;
+	}
+
+	byte[] data      = new byte[length / 2];
+	int    status    = 0;
+	for (int i = 0; i < data.length; i += 1) {
+	    int high = DECODE[codewords[2 * i] & 0xFF];
+	    int low  = DECODE[codewords[2 * i + 1] & 0xFF];
+	    status  |= high | low;
+	    data[i]  = (byte)(((high & 0xF) << 4) | (low & 0xF));
+	}
+
+	if ((status & UNCORRECTABLE) != 0) {
+	    System.out.println("");
+	    System.out.println("Error occured");
+	    System.out.println("***** Uncorrectable Frame *****");
+	    System.out.println("");
+	    return null;
+	}
+	if (debug && ((status & CORRECTED) != 0)) {
+	    System.out.println("HammingDataLinkLayer.decode(): Corrected a bit");
+	}
+
+	return data;
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Build the codeword of each 4-bit value.  Bits, from least significant:
+    // p1 p2 d1 p4 d2 d3 d4 p0, where p0 makes the whole codeword's parity even.
+    private static byte[] buildEncodeTable () {
+
+	byte[] table = new byte[16];
+	for (int value = 0; value < 16; value += 1) {
+	    int d1 = value & 1;
+	    int d2 = (value >>> 1) & 1;
+	    int d3 = (value >>> 2) & 1;
+	    int d4 = (value >>> 3) & 1;
+	    int p1 = d1 ^ d2 ^ d4;
+	    int p2 = d1 ^ d3 ^ d4;
+	    int p4 = d2 ^ d3 ^ d4;
+	    int codeword = (p1 | (p2 << 1) | (d1 << 2) | (p4 << 3) |
+			    (d2 << 4) | (d3 << 5) | (d4 << 6));
+	    codeword |= (Integer.bitCount(codeword) & 1) << 7;
+	    table[value] = (byte)codeword;
+	}
+
+	return table;
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Build the decoding table:  for every possible received byte, the value
+    // of the nearest codeword, flagged CORRECTED if one bit differs, or
+    // UNCORRECTABLE if none is that near.  Codewords are four bits apart, so
+    // the nearest is unique whenever it is within one.
+    private static int[] buildDecodeTable () {
+
+	int[] table = new int[256];
+	for (int received = 0; received < 256; received += 1) {
+	    table[received] = UNCORRECTABLE;
+	    for (int value = 0; value < 16; value += 1) {
+		int distance = Integer.bitCount(received ^ (ENCODE[value] & 0xFF));
+		if (distance == 0) {
+		    table[received] = value;
+		} else if (distance == 1) {
+		    table[received] = value | CORRECTED;
+		}
+	    }
+	}
+
+	return table;
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The codewords of the frame being sent. */
+    private final byte[] codewords =
+	new byte[2 * (FRAME_SIZE + MAX_HEADER_LENGTH)];
+
+    /** The codewords of the frame being received. */
+    private final byte[] received  =
+	new byte[2 * (FRAME_SIZE + MAX_HEADER_LENGTH)];
+
+    /** Whether the last frame was taken whole, so that the next is due at
+     *  the front of the buffer. */
+    private boolean      inStep    = false;
+
+    /** The byte with which each frame begins, of even weight but no
+     *  codeword, as codewords weigh 0, 4 or 8. */
+    private static final byte   FLAG          = (byte)0x7E;
+
+    /** The number of bytes ahead of a frame's codewords:  the flag and the
+     *  length's codeword. */
+    private static final int    HEADER_LENGTH = 2;
+
+    /** The number of data bytes per frame, which with a header one codeword
+     *  can still count. */
+    private static final int    FRAME_SIZE    = 8;
+
+    /** Decoding table flag:  a bit was corrected. */
+    private static final int    CORRECTED     = 0x100;
+
+    /** Decoding table flag:  more than one bit was wrong. */
+    private static final int    UNCORRECTABLE = 0x200;
+
+    /** The codeword of each 4-bit value. */
+    private static final byte[] ENCODE        = buildEncodeTable();
+
+    /** The value and status of each received byte. */
+    private static final int[]  DECODE        = buildDecodeTable();
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class HammingDataLinkLayer
+// =============================================================================
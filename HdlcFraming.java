@@ -0,0 +1,378 @@
+// =============================================================================
+// IMPORTS
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * HDLC-style bit-stuffed framing.  Each frame begins and ends with the flag
+ * sequence <code>01111110</code>, and within a frame a <code>0</code> is
+ * inserted after every five consecutive <code>1</code>s, so that the contents
+ * can never mimic a flag.  Frames are found on the bit stream itself, with no
+ * regard for byte boundaries, so a frame need not begin on a byte that the
+ * data link layer assembled, and a damaged flag loses at most the frames on
+ * either side of it.  Between frames the line idles with <code>1</code>s,
+ * which fill out the last byte of each frame.
+ *
+ * Stuffing and destuffing are both table driven:  for each possible run of
+ * <code>1</code>s carried in from the previous byte and each possible byte,
+ * the tables give the bits to emit and the run carried out, so that a whole
+ * byte is handled with one lookup.  Only a byte that contains part of a flag
+ * is examined bit by bit.
+ *
+ * @file   HdlcFraming.java
+ * @author Ikram Gabiyev
+ * @date   October 2026
+ */
+public class HdlcFraming extends Framing {
+// =============================================================================
+
+
+
+    // =========================================================================
+    // PUBLIC METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Encode a frame between two flags, stuffing a byte of contents at a time,
+     * and fill out the last byte with idle <code>1</code>s.
+     *
+     * @param  data   The bytes from which to take the frame contents.
+     * @param  offset The index of the first byte of the frame contents.
+     * @param  length The number of bytes of frame contents.
+     * @param  out    The buffer into which to write the encoded frame.
+     * @return The number of bytes written, or
+     *         <code>DataLinkLayer.FRAME_OVERFLOW</code> if the frame did not
+     *         fit.
+     */
+    public int encode (byte[] data, int offset, int length, ByteBuffer out) {
+
+	int start = out.position();
+	try {
+
+	    // Bits are gathered, most significant first, until whole bytes can
+	    // be written.
+	    long bits  = FLAG;
+	    int  count = BITS_PER_BYTE;
+	    int  ones  = 0;
+
+	    for (int i = offset; i < offset + length; i += 1) {
+		int entry = STUFF[(ones << BITS_PER_BYTE) | (data[i] & 0xFF)];
+		int n     = (entry >>> STUFF_COUNT_SHIFT) & 0xF;
+		bits   = (bits << n) | (entry & STUFF_BITS_MASK);
+		count += n;
+		ones   = entry >>> STUFF_ONES_SHIFT;
+		while (count >= BITS_PER_BYTE) {
+		    count -= BITS_PER_BYTE;
+		    out.put((byte)(bits >>> count));
+		}
+	    }
+
+	    // Close with a flag, and pad to a byte boundary with idle 1s.
+	    bits   = (bits << BITS_PER_BYTE) | FLAG;
+	    count += BITS_PER_BYTE;
+	    int pad = (BITS_PER_BYTE - (count % BITS_PER_BYTE)) % BITS_PER_BYTE;
+	    bits   = (bits << pad) | ((1 << pad) - 1);
+	    count += pad;
+	    while (count >= BITS_PER_BYTE) {
+		count -= BITS_PER_BYTE;
+		out.put((byte)(bits >>> count));
+	    }
+
+	} catch (BufferOverflowException e) {
+	    out.position(start);
+	    return DataLinkLayer.FRAME_OVERFLOW;
+	}
+
+	return out.position() - start;
+
+    } // encode ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The largest encoded frame:  the contents with a stuffed bit after every
+     * five, two flags, and idle padding.
+     *
+     * @param  length The number of bytes of frame contents.
+     * @return The worst-case size of the encoded frame.
+     */
+    public int maxEncodedLength (int length) {
+
+	int contentBits = length * BITS_PER_BYTE;
+	int totalBits   = contentBits + (contentBits / 5) + (2 * BITS_PER_BYTE);
+	return (totalBits + BITS_PER_BYTE - 1) / BITS_PER_BYTE;
+
+    } // maxEncodedLength ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Consume one received byte's worth of the bit stream.  Unless the byte
+     * holds part of a flag or an abort, the destuffed bits come from a single
+     * table lookup.
+     *
+     * @param data The byte received.
+     */
+    public void receive (byte data) {
+
+	int entry = ((ones < FLAG_ONES) ?
+		     DESTUFF[(ones << BITS_PER_BYTE) | (data & 0xFF)] :
+		     SLOW);
+	if (entry == SLOW) {
+	    for (int i = BITS_PER_BYTE - 1; i >= 0; i -= 1) {
+		receiveBit((data >>> i) & 1);
+	    }
+	    return;
+	}
+
+	ones = entry >>> DESTUFF_ONES_SHIFT;
+	if (inFrame) {
+	    appendBits(entry & DESTUFF_BITS_MASK,
+		       (entry >>> DESTUFF_COUNT_SHIFT) & 0xF);
+	}
+
+    } // receive ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Consume a single bit of the stream, recognizing flags, aborts, and
+    // stuffed bits.
+    private void receiveBit (int bit) {
+
+	if (bit == 1) {
+
+	    // Seven 1s in a row is an abort, or the line idling.  The sixth
+	    // is held back, since it cannot be data.
+	    ones += 1;
+	    if (ones >= ABORT_ONES) {
+		inFrame = false;
+	    } else if ((ones < FLAG_ONES) && inFrame) {
+		appendBits(1, 1);
+	    }
+
+	} else if (ones == FLAG_ONES) {
+
+	    // A flag ends any frame in progress and begins the next.  The flag's
+	    // leading 0 and first five 1s were taken as data, and are dropped.
+	    if (inFrame && (pendingCount == FLAG_DATA_BITS) &&
+		(length > 0) && !damaged) {
+		deliverFrame();
+	    }
+	    startFrame();
+	    ones = 0;
+
+	} else if (ones == STUFF_ONES) {
+
+	    // A stuffed 0.
+	    ones = 0;
+
+	} else {
+
+	    ones = 0;
+	    if (inFrame) {
+		appendBits(0, 1);
+	    }
+
+	}
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Add destuffed bits to the frame.  The most recent bits are held back,
+    // since they may turn out to be the start of a flag.
+    private void appendBits (int bits, int count) {
+
+	pendingBits   = (pendingBits << count) | bits;
+	pendingCount += count;
+	while (pendingCount >= FLAG_DATA_BITS + BITS_PER_BYTE) {
+	    pendingCount -= BITS_PER_BYTE;
+	    if (length == frame.length) {
+		damaged = true;
+	    } else {
+		frame[length++] = (byte)(pendingBits >>> pendingCount);
+	    }
+	}
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Begin accumulating a new frame.
+    private void startFrame () {
+
+	inFrame      = true;
+	damaged      = false;
+	length       = 0;
+	pendingBits  = 0;
+	pendingCount = 0;
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Build the stuffing table:  for each run of 1s carried in (0 to 4) and
+    // each byte, the stuffed bits, their number, and the run carried out.
+    private static int[] buildStuffTable () {
+
+	int[] table = new int[STUFF_ONES << BITS_PER_BYTE];
+	for (int onesIn = 0; onesIn < STUFF_ONES; onesIn += 1) {
+	    for (int value = 0; value < 256; value += 1) {
+		int bits  = 0;
+		int count = 0;
+		int ones  = onesIn;
+		for (int i = BITS_PER_BYTE - 1; i >= 0; i -= 1) {
+		    int bit = (value >>> i) & 1;
+		    bits   = (bits << 1) | bit;
+		    count += 1;
+		    ones   = (bit == 1) ? ones + 1 : 0;
+		    if (ones == STUFF_ONES) {
+			bits   = bits << 1;
+			count += 1;
+			ones   = 0;
+		    }
+		}
+		table[(onesIn << BITS_PER_BYTE) | value] =
+		    (ones << STUFF_ONES_SHIFT) |
+		    (count << STUFF_COUNT_SHIFT) |
+		    bits;
+	    }
+	}
+
+	return table;
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Build the destuffing table:  for each run of 1s carried in (0 to 5) and
+    // each byte, the data bits, their number, and the run carried out, or
+    // SLOW if the byte would complete a sixth 1, which needs a closer look.
+    private static int[] buildDestuffTable () {
+
+	int[] table = new int[FLAG_ONES << BITS_PER_BYTE];
+	for (int onesIn = 0; onesIn < FLAG_ONES; onesIn += 1) {
+	    for (int value = 0; value < 256; value += 1) {
+		int     bits  = 0;
+		int     count = 0;
+		int     ones  = onesIn;
+		boolean slow  = false;
+		for (int i = BITS_PER_BYTE - 1; i >= 0 && !slow; i -= 1) {
+		    int bit = (value >>> i) & 1;
+		    if (bit == 1) {
+			ones += 1;
+			if (ones == FLAG_ONES) {
+			    slow = true;
+			} else {
+			    bits   = (bits << 1) | 1;
+			    count += 1;
+			}
+		    } else if (ones == STUFF_ONES) {
+			ones = 0;
+		    } else {
+			ones   = 0;
+			bits   = bits << 1;
+			count += 1;
+		    }
+		}
+		table[(onesIn << BITS_PER_BYTE) | value] =
+		    (slow ?
+		     SLOW :
+		     ((ones << DESTUFF_ONES_SHIFT) |
+		      (count << DESTUFF_COUNT_SHIFT) |
+		      bits));
+	    }
+	}
+
+	return table;
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The number of consecutive 1s most recently received. */
+    private int     ones         = 0;
+
+    /** Whether a flag has begun a frame that is still being received. */
+    private boolean inFrame      = false;
+
+    /** Whether the frame being received has outgrown the largest frame. */
+    private boolean damaged      = false;
+
+    /** Destuffed bits not yet placed in the frame, in the low bits. */
+    private long    pendingBits  = 0;
+
+    /** The number of destuffed bits not yet placed in the frame. */
+    private int     pendingCount = 0;
+
+    /** The flag sequence, 01111110. */
+    private static final int FLAG              = 0x7E;
+
+    /** The number of bits in a byte. */
+    private static final int BITS_PER_BYTE     = DataLinkLayer.BITS_PER_BYTE;
+
+    /** The run of 1s after which a 0 is stuffed. */
+    private static final int STUFF_ONES        = 5;
+
+    /** The run of 1s within a flag. */
+    private static final int FLAG_ONES         = 6;
+
+    /** The run of 1s that aborts a frame. */
+    private static final int ABORT_ONES        = 7;
+
+    /** The bits of a closing flag taken as data before it is recognized. */
+    private static final int FLAG_DATA_BITS    = FLAG_ONES;
+
+    /** The layout of a stuffing table entry:  up to ten bits, their number,
+     *  and the run of 1s carried out. */
+    private static final int STUFF_BITS_MASK   = 0x3FF;
+    private static final int STUFF_COUNT_SHIFT = 10;
+    private static final int STUFF_ONES_SHIFT  = 14;
+
+    /** The layout of a destuffing table entry:  up to eight bits, their
+     *  number, and the run of 1s carried out. */
+    private static final int DESTUFF_BITS_MASK   = 0xFF;
+    private static final int DESTUFF_COUNT_SHIFT = 8;
+    private static final int DESTUFF_ONES_SHIFT  = 12;
+
+    /** A destuffing table entry for a byte that must be examined bit by bit. */
+    private static final int SLOW              = -1;
+
+    /** The stuffing table. */
+    private static final int[] STUFF   = buildStuffTable();
+
+    /** The destuffing table. */
+    private static final int[] DESTUFF = buildDestuffTable();
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class HdlcFraming
+// =============================================================================
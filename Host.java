@@ -1,15 +1,24 @@
 // =============================================================================
 // IMPORTS
 
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Queue;
-import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
 // =============================================================================
 
 
 
 // =============================================================================
 /**
- * A single host, comprising a single network stack, connected to a medium.
+ * A single host, comprising a single network stack, connected to a medium;
+ * or, bonded, comprising a stack on each of several media, across which its
+ * traffic is striped.
  *
  * @file   Host.java
  * @author Scott F. Kaplan (sfkaplan@cs.amherst.edu)
@@ -29,13 +38,94 @@ public class Host {
     // =========================================================================
     public Host (Medium medium, String dataLinkLayerType) {
 
-	this.medium        = medium;
-	this.physicalLayer = PhysicalLayer.create(medium);
-	this.dataLinkLayer = DataLinkLayer.create(dataLinkLayerType,
-						  this.physicalLayer,
-						  this);
+	this(medium, dataLinkLayerType, Collections.<String, String>emptyMap());
+
+    } // Host ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Create a host whose data link layer is configured by the given options.
+     *
+     * @param medium            The medium to which to connect.
+     * @param dataLinkLayerType The type of data link layer to use.
+     * @param options           Named settings for the network stack, as
+     *                          for a host connected to several media.
+     */
+    public Host (Medium              medium,
+		 String              dataLinkLayerType,
+		 Map<String, String> options) {
+
+	this(new Medium[] { medium }, dataLinkLayerType, options);
+
+    } // Host ()
+    // =========================================================================
+
 
-	this.buffer = new LinkedList<Byte>();
+
+    // =========================================================================
+    /**
+     * Create a host connected to one or more media, with a network stack of
+     * its own on each, configured by the given options.  With more than one
+     * medium, the host's traffic is striped across them all by a
+     * <code>Bond</code>.
+     *
+     * @param media             The media to which to connect.
+     * @param dataLinkLayerType The type of data link layer to use.
+     * @param options           Named settings for the network stack.  Those
+     *                          recognized here are <code>stages</code>, a
+     *                          comma-separated list of the types of stage
+     *                          through which to pass the data sent above the
+     *                          data link layer, first to last; and
+     *                          <code>compress</code>, <code>true</code> to
+     *                          put a <code>Compression</code> stage first;
+     *                          and <code>weights</code>, a comma-separated
+     *                          list of the relative share of the traffic to
+     *                          give each medium; and <code>station</code>,
+     *                          the number of this host's physical layers,
+     *                          where hosts in separate processes share a
+     *                          medium.  The rest are passed on to the data
+     *                          link layers.
+     * @throws RuntimeException if the weights or station are malformed.
+     */
+    public Host (Medium[]            media,
+		 String              dataLinkLayerType,
+		 Map<String, String> options) {
+
+	this.media          = media;
+	this.physicalLayers = new PhysicalLayer[media.length];
+	this.dataLinkLayers = new DataLinkLayer[media.length];
+	String station      = options.get("station");
+	for (int link = 0; link < media.length; link += 1) {
+	    physicalLayers[link] = ((station == null) ?
+				    PhysicalLayer.create(media[link]) :
+				    PhysicalLayer.create(media[link],
+							 station(station)));
+	    dataLinkLayers[link] = DataLinkLayer.create(dataLinkLayerType,
+							physicalLayers[link],
+							this,
+							options);
+	}
+	if (media.length > 1) {
+	    this.bond = new Bond(dataLinkLayers, weights(options.get("weights")));
+	}
+
+	this.buffer = new ConcurrentLinkedQueue<Byte>();
+
+	// Build the pipeline of stages above the data link layer, if any.
+	List<String> stageTypes = new ArrayList<String>();
+	if (Boolean.parseBoolean(options.get("compress"))) {
+	    stageTypes.add("Compression");
+	}
+	String stages = options.get("stages");
+	if (stages != null) {
+	    stageTypes.addAll(Arrays.asList(stages.split(",")));
+	}
+	if (!stageTypes.isEmpty()) {
+	    this.pipeline = Pipeline.create(stageTypes);
+	}
 
     } // Host ()
     // =========================================================================
@@ -44,34 +134,119 @@ public class Host {
 
     // =========================================================================
     /**
-     * Send a sequence of bytes.
+     * Send a sequence of bytes.  Bytes passed through stages are sent on as
+     * they come out of the last stage, a block at a time, so that the
+     * encoded whole is never held at once.
      *
      * @param data The sequence of bytes to send.
      */
     public void send (byte[] data) {
 
-	dataLinkLayer.send(data);
+	if (pipeline == null) {
+	    transmit(data);
+	    return;
+	}
+
+	// Gather the output into blocks of whole frames, each large enough for
+	// the data link layer to encode its frames in parallel.
+	int              frameData = dataLinkLayers[0].dataPerFrame();
+	final ByteBuffer block     =
+	    ByteBuffer.allocate(Math.max(frameData,
+					 DataLinkLayer.PARALLEL_SEND_SIZE /
+					 frameData * frameData));
+	pipeline.encode(ByteBuffer.wrap(data), (ByteBuffer out) -> {
+		while (out.hasRemaining()) {
+		    int length = Math.min(out.remaining(), block.remaining());
+		    block.put(out.array(), out.position(), length);
+		    out.position(out.position() + length);
+		    if (!block.hasRemaining()) {
+			transmit(block.array());
+			block.clear();
+		    }
+		}
+	    });
+	if (block.position() > 0) {
+	    transmit(Arrays.copyOf(block.array(), block.position()));
+	}
 	
     } // send ()
     // =========================================================================
 
 
 
+    // =========================================================================
+    // Send bytes across the bond, or over the one data link layer.
+    private void transmit (byte[] data) {
+
+	if (bond != null) {
+	    bond.send(data);
+	} else {
+	    dataLinkLayers[0].send(data);
+	}
+
+    }
+    // =========================================================================
+
+
+
     // =========================================================================
     /**
      * Receive bytes from the lower layer.  Buffer those until they are
-     * retrieved.
+     * retrieved.  The bytes of frames from different senders may arrive on
+     * different threads at once, but each frame's are buffered together.
+     * A bonded host takes the bytes as received on its first link.
      *
      * @param data The data received and to be buffered.
      */
     public void receive (byte[] data) {
 
-	// Add the bytes into the buffer.
+	receive(dataLinkLayers[0], data);
+
+    } // receive ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Receive bytes from one of this host's data link layers.  A bonded host
+     * first puts the frames from all of its links back in order; otherwise
+     * the bytes are buffered as they come.
+     *
+     * @param link The data link layer that received the bytes.
+     * @param data The data received and to be buffered.
+     */
+    public synchronized void receive (DataLinkLayer link, byte[] data) {
+
+	if (bond != null) {
+	    bond.receive(link, data, this::accept);
+	} else {
+	    accept(data);
+	}
+
+    } // receive ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Add received bytes, in order, into the buffer, once back through any
+    // stages.
+    private void accept (byte[] data) {
+
+	if (pipeline != null) {
+	    pipeline.decode(ByteBuffer.wrap(data), (ByteBuffer in) -> {
+		    while (in.hasRemaining()) {
+			buffer.add(in.get());
+		    }
+		});
+	    return;
+	}
 	for (int i = 0; i < data.length; i += 1) {
 	    buffer.add(data[i]);
 	}
 	
-    } // receive ()
+    }
     // =========================================================================
 
 
@@ -84,34 +259,164 @@ public class Host {
      */
     public byte[] retrieve () {
 
+	// Let the data link layers deliver any frames they are still checking,
+	// and a bond any it is holding behind a gap.
+	for (DataLinkLayer dataLinkLayer : dataLinkLayers) {
+	    dataLinkLayer.drain();
+	}
+	if (bond != null) {
+	    synchronized (this) {
+		bond.flush(this::accept);
+	    }
+	}
+
 	// Remove the bytes from the buffer, adding them to a newly formed array
-	// to be returned.
-	byte[] received = new byte[buffer.size()];
-	for (int i = 0; i < received.length; i += 1) {
-	    received[i] = buffer.remove();
+	// to be returned.  Bytes may arrive meanwhile, while this host sends,
+	// and are left for the next retrieval.
+	ByteArrayOutputStream received = new ByteArrayOutputStream();
+	Byte                  next;
+	while ((next = buffer.poll()) != null) {
+	    received.write(next);
 	}
 
-	return received;
+	return received.toByteArray();
 	
     } // retrieve ()
     // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return The number of bits this host has put on its media.
+     */
+    public long bitsSent () {
+
+	long bits = 0;
+	for (PhysicalLayer physicalLayer : physicalLayers) {
+	    bits += physicalLayer.bitsSent();
+	}
+	return bits;
+
+    } // bitsSent ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return The number of frames this host has sent with a header.
+     */
+    public int framesSent () {
+
+	int frames = 0;
+	for (DataLinkLayer dataLinkLayer : dataLinkLayers) {
+	    frames += dataLinkLayer.framesSent();
+	}
+	return frames;
+
+    } // framesSent ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return The number of frames sent by this host that the other host has
+     *         acknowledged.
+     */
+    public long framesAcknowledged () {
+
+	long frames = 0;
+	for (DataLinkLayer dataLinkLayer : dataLinkLayers) {
+	    frames += dataLinkLayer.framesAcknowledged();
+	}
+	return frames;
+
+    } // framesAcknowledged ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return The number of bytes of its traffic that a bonded host has
+     *         given each of its media, or <code>null</code> if the host is
+     *         not bonded.
+     */
+    public long[] bytesPerLink () {
+
+	return (bond == null) ? null : bond.bytesPerLink();
+
+    } // bytesPerLink ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Parse a station number.
+    private static int station (String station) {
+
+	try {
+	    return Integer.parseInt(station.trim());
+	} catch (NumberFormatException e) {
+	    throw new RuntimeException("Expected a numeric station, not " +
+				       station);
+	}
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Parse a comma-separated list of link weights, or return null if there
+    // is none.
+    private static double[] weights (String list) {
+
+	if (list == null) {
+	    return null;
+	}
+	String[] fields  = list.split(",");
+	double[] weights = new double[fields.length];
+	try {
+	    for (int i = 0; i < fields.length; i += 1) {
+		weights[i] = Double.parseDouble(fields[i].trim());
+	    }
+	} catch (NumberFormatException e) {
+	    throw new RuntimeException("Expected link weights as numbers, " +
+				       "not " + list);
+	}
+	return weights;
+
+    }
+    // =========================================================================
     
 
 
     // =========================================================================
     // DATA MEMBERS
 
-    /** The medium to which this host is connect. */
-    private Medium        medium;
+    /** The media to which this host is connected. */
+    private Medium[]        media;
+
+    /** The physical layer in this host's network stack on each medium. */
+    private PhysicalLayer[] physicalLayers;
+
+    /** The data link layer in this host's network stack on each medium. */
+    private DataLinkLayer[] dataLinkLayers;
 
-    /** The physical layer in this host's network stack. */
-    private PhysicalLayer physicalLayer;
+    /** The bond that stripes traffic across the media, or
+     *  <code>null</code> if the host has a single medium. */
+    private Bond            bond;
 
-    /** The data link layer in this host's network stack. */
-    private DataLinkLayer dataLinkLayer;
+    /** The buffered bytes received via the network stack, which may be added
+     *  to on another thread. */
+    private Queue<Byte>     buffer;
 
-    /** The buffered bytes received via the network stack. */
-    private Queue<Byte>   buffer;
+    /** The stages above the data link layer, or <code>null</code> if data
+     *  is sent as is. */
+    private Pipeline        pipeline;
 
     /** Whether to emit debugging information. */
     private static final boolean debug = false;
@@ -0,0 +1,254 @@
+// =============================================================================
+// IMPORTS
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * Length-prefixed framing.  Each frame begins with a header:  a two-byte sync
+ * word, a two-byte length, and a CRC of the sync word and length.  The
+ * contents follow unaltered.  Once the receiver has validated a header it
+ * knows exactly where the frame ends, so it copies the contents straight into
+ * the frame without examining them.  When a header fails its CRC, the
+ * receiver hunts for the next sync word, starting just past the one that
+ * failed.
+ *
+ * @file   LengthFraming.java
+ * @author Ikram Gabiyev
+ * @date   October 2026
+ */
+public class LengthFraming extends Framing {
+// =============================================================================
+
+
+
+    // =========================================================================
+    // PUBLIC METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Write a header for the frame, followed by its contents in bulk.
+     *
+     * @param  data   The bytes from which to take the frame contents.
+     * @param  offset The index of the first byte of the frame contents.
+     * @param  length The number of bytes of frame contents.
+     * @param  out    The buffer into which to write the encoded frame.
+     * @return The number of bytes written, or
+     *         <code>DataLinkLayer.FRAME_OVERFLOW</code> if the frame did not
+     *         fit.
+     * @throws RuntimeException if the contents are too long for the length
+     *                          field.
+     */
+    public int encode (byte[] data, int offset, int length, ByteBuffer out) {
+
+	if (length > MAX_LENGTH) {
+	    throw new RuntimeException("Frame too long for length framing");
+	}
+
+	int start = out.position();
+	try {
+
+	    out.put(SYNC);
+	    out.put((byte)(length >>> 8));
+	    out.put((byte)length);
+	    out.put((byte)headerCrc(length));
+	    out.put(data, offset, length);
+
+	} catch (BufferOverflowException e) {
+	    out.position(start);
+	    return DataLinkLayer.FRAME_OVERFLOW;
+	}
+
+	return out.position() - start;
+
+    } // encode ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The encoded frame is always the contents plus the header.
+     *
+     * @param  length The number of bytes of frame contents.
+     * @return The size of the encoded frame.
+     */
+    public int maxEncodedLength (int length) {
+
+	return length + HEADER_LENGTH;
+
+    } // maxEncodedLength ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Consume one received byte.  While hunting, the byte extends the
+     * candidate header; within a frame, it is simply stored.
+     *
+     * @param data The byte received.
+     */
+    public void receive (byte data) {
+
+	// Within a frame, take the contents as they come.
+	if (remaining > 0) {
+	    frame[length++] = data;
+	    remaining -= 1;
+	    if (remaining == 0) {
+		deliverFrame();
+	    }
+	    return;
+	}
+
+	// Otherwise, build up a candidate header.
+	header[headerLength++] = data;
+	if ((headerLength <= SYNC.length) &&
+	    (data != SYNC[headerLength - 1])) {
+	    resync();
+	    return;
+	}
+	if (headerLength < HEADER_LENGTH) {
+	    return;
+	}
+
+	// A complete header must pass its CRC and fit within the client's
+	// largest frame.
+	int frameLength = (((header[LENGTH_INDEX] & 0xFF) << 8) |
+			   (header[LENGTH_INDEX + 1] & 0xFF));
+	if ((headerCrc(frameLength) != (header[CRC_INDEX] & 0xFF)) ||
+	    (frameLength > frame.length)) {
+	    if (debug) {
+		System.out.println("LengthFraming.receive(): Bad header");
+	    }
+	    resync();
+	    return;
+	}
+
+	headerLength = 0;
+	length       = 0;
+	remaining    = frameLength;
+
+    } // receive ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Consume a run of received bytes.  The header is still built up a byte
+     * at a time, but once it is validated, the contents it announces are
+     * copied in bulk.
+     *
+     * @param data   The bytes received.
+     * @param offset The index of the first byte to consume.
+     * @param length The number of bytes to consume.
+     */
+    public void receive (byte[] data, int offset, int length) {
+
+	int end = offset + length;
+	while (offset < end) {
+	    if (remaining == 0) {
+		receive(data[offset++]);
+		continue;
+	    }
+	    int count = Math.min(remaining, end - offset);
+	    System.arraycopy(data, offset, frame, this.length, count);
+	    this.length += count;
+	    remaining   -= count;
+	    offset      += count;
+	    if (remaining == 0) {
+		deliverFrame();
+	    }
+	}
+
+    } // receive ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Discard the candidate header up to the next place that a sync word
+    // could begin, after its first byte.
+    private void resync () {
+
+	int next = 1;
+	while ((next < headerLength) && (header[next] != SYNC[0])) {
+	    next += 1;
+	}
+	headerLength -= next;
+	System.arraycopy(header, next, header, 0, headerLength);
+
+	// What remains must still agree with the sync word.
+	for (int i = 0; i < Math.min(headerLength, SYNC.length); i += 1) {
+	    if (header[i] != SYNC[i]) {
+		resync();
+		return;
+	    }
+	}
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // The CRC of the sync word and length of a header.
+    private static int headerCrc (int length) {
+
+	int remainder = 0;
+	remainder = CRC_TABLE[(remainder ^ SYNC[0]) & 0xFF];
+	remainder = CRC_TABLE[(remainder ^ SYNC[1]) & 0xFF];
+	remainder = CRC_TABLE[(remainder ^ (length >>> 8)) & 0xFF];
+	remainder = CRC_TABLE[(remainder ^ length) & 0xFF];
+	return remainder;
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The candidate header being received. */
+    private final byte[] header       = new byte[HEADER_LENGTH];
+
+    /** The number of bytes of the candidate header received. */
+    private int          headerLength = 0;
+
+    /** The number of bytes of the current frame's contents yet to arrive. */
+    private int          remaining    = 0;
+
+    /** The sync word that begins every header. */
+    private static final byte[] SYNC = { (byte)0x1A, (byte)0xCF };
+
+    /** The position of the length within a header. */
+    private static final int LENGTH_INDEX  = 2;
+
+    /** The position of the CRC within a header. */
+    private static final int CRC_INDEX     = 4;
+
+    /** The size of a header. */
+    private static final int HEADER_LENGTH = 5;
+
+    /** The longest frame contents that the length can describe. */
+    private static final int MAX_LENGTH    = 0xFFFF;
+
+    /** The CRC remainder table, with the CRC layer's generator. */
+    private static final int[] CRC_TABLE =
+	CRCDataLinkLayer.buildCrcTable(0b111010101, 8);
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class LengthFraming
+// =============================================================================
@@ -59,7 +59,7 @@ public class LowNoiseMedium extends Medium {
 
 	    PhysicalLayer receiver = clientIterator.next();
 	    if (receiver != sender) {
-		receiver.receive(bit);
+		receiver.receive(sender.station(), bit);
 	    }
 
 	}
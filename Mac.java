@@ -0,0 +1,662 @@
+// =============================================================================
+// IMPORTS
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Map;
+import java.util.Random;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * A medium access control protocol, by which many stations share a single
+ * channel, and a discrete-event simulation of the stations contending under
+ * it.  Frames arrive at the stations as a Poisson process, each at a station
+ * chosen at random, and wait in its queue; the protocol decides when the
+ * frame at the head of each queue goes onto the channel, and what happens
+ * when transmissions overlap.
+ *
+ * The simulation follows frames, not bits, so that it runs thousands of
+ * stations at once.  Time is counted in bit times.  Each station has at most
+ * one pending event, the time at which it next tries to transmit, and the
+ * stations are kept in a heap ordered by that time, beside the next arrival
+ * and the next change of the channel.  Stations that collide retry after a
+ * binary exponential backoff, and give up on a frame after too many tries.
+ *
+ * @file   Mac.java
+ * @author Ikram Gabiyev
+ * @date   October 2026
+ */
+public abstract class Mac {
+// =============================================================================
+
+
+
+    // =========================================================================
+    // PUBLIC METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Create the requested protocol type, configured by the given options,
+     * and return it.
+     *
+     * @param  type    The subclass of which to create an instance.
+     * @param  options The settings to pass to <code>configure()</code>.
+     * @return The newly created protocol.
+     * @throws RuntimeException if the given type is not a valid subclass.
+     */
+    public static Mac create (String type, Map<String, String> options) {
+
+	// Look up the class by name.
+	String   className = type + "Mac";
+	Class<?> macClass  = null;
+	try {
+	    macClass = Class.forName(className);
+	} catch (ClassNotFoundException e) {
+	    throw new RuntimeException("Unknown MAC subclass " + className);
+	}
+
+	// Make one of these objects, and then see if it really is a Mac
+	// subclass.
+	Object o = null;
+	try {
+	    o = macClass.getDeclaredConstructor().newInstance();
+	} catch (NoSuchMethodException | InstantiationException |
+		 InvocationTargetException e) {
+	    throw new RuntimeException("Could not instantiate " + className);
+	} catch (IllegalAccessException e) {
+	    throw new RuntimeException("Could not access " + className);
+	}
+	Mac mac = null;
+	try {
+	    mac = (Mac)o;
+	} catch (ClassCastException e) {
+	    throw new RuntimeException(className +
+				       " is not a subclass of Mac");
+	}
+
+	mac.configure(options);
+	return mac;
+
+    } // create ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Apply the settings given as options.
+     *
+     * @param  options The settings, each optional:  <code>stations</code>,
+     *                 the number of stations sharing the channel;
+     *                 <code>load</code>, the offered load, in frames per
+     *                 frame time over all stations; <code>duration</code>,
+     *                 the length of the run, in frame times;
+     *                 <code>frameBits</code>, the length of every frame, in
+     *                 bits; and <code>seed</code>, the seed of the random
+     *                 choices, for a run that can be repeated.
+     * @throws RuntimeException if a setting is malformed or out of range.
+     */
+    protected void configure (Map<String, String> options) {
+
+	stations  = (int)number(options, "stations",  DEFAULT_STATIONS);
+	load      = number(options, "load",      DEFAULT_LOAD);
+	duration  = number(options, "duration",  DEFAULT_DURATION);
+	frameBits = (long)number(options, "frameBits", DEFAULT_FRAME_BITS);
+	if ((stations < 1) || (load <= 0) || (duration <= 0) ||
+	    (frameBits < 1)) {
+	    throw new RuntimeException("Expected positive stations, load, " +
+				       "duration and frameBits");
+	}
+
+	String seed = options.get("seed");
+	if (seed != null) {
+	    try {
+		random.setSeed(Long.parseLong(seed.trim()));
+	    } catch (NumberFormatException e) {
+		throw new RuntimeException("Expected a numeric seed, not " +
+					   seed);
+	    }
+	}
+
+    } // configure ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Run the simulation for its whole duration.  Frames still queued at the
+     * end are neither delivered nor dropped.
+     */
+    public void run () {
+
+	queued   = new int[stations];
+	tries    = new int[stations];
+	headTime = new long[stations];
+	due      = new long[stations];
+	heap     = new int[stations];
+	position = new int[stations];
+	for (int station = 0; station < stations; station += 1) {
+	    position[station] = UNSCHEDULED;
+	}
+
+	long end          = (long)(duration * frameBits);
+	long nextArrival  = nextArrival(0);
+	while (true) {
+
+	    // Take the earliest event, the channel's first on a tie, so that
+	    // the channel is settled before stations look at it, and arrivals
+	    // last.
+	    long time = nextArrival;
+	    if (size > 0) {
+		time = Math.min(time, due[heap[0]]);
+	    }
+	    time = Math.min(time, channelDue);
+	    if (time > end) {
+		break;
+	    }
+
+	    if (channelDue == time) {
+		channelDue = NEVER;
+		channelEvent(time);
+	    } else if ((size > 0) && (due[heap[0]] == time)) {
+		int station = pop();
+		attempt(station, time);
+	    } else {
+		int station = random.nextInt(stations);
+		nextArrival = nextArrival(time);
+		queued[station] += 1;
+		if (queued[station] == 1) {
+		    headTime[station] = time;
+		    tries[station]    = 0;
+		    attempt(station, time);
+		}
+	    }
+
+	}
+	elapsed = end;
+
+    } // run ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return The number of stations sharing the channel.
+     */
+    public int stations () {
+
+	return stations;
+
+    } // stations ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return The offered load, in frames per frame time.
+     */
+    public double load () {
+
+	return load;
+
+    } // load ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return The number of frames delivered without collision.
+     */
+    public long delivered () {
+
+	return delivered;
+
+    } // delivered ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return The number of frames given up after too many collisions.
+     */
+    public long dropped () {
+
+	return dropped;
+
+    } // dropped ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return The number of transmissions begun, whether they succeeded or
+     *         collided.
+     */
+    public long transmissions () {
+
+	return transmissions;
+
+    } // transmissions ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return The number of collisions, each of two or more transmissions.
+     */
+    public long collisions () {
+
+	return collisions;
+
+    } // collisions ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return The fraction of transmissions that collided.
+     */
+    public double collisionRate () {
+
+	return (transmissions == 0) ? 0 :
+	    (double)collided / transmissions;
+
+    } // collisionRate ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return The fraction of the run during which the channel carried frames
+     *         that were delivered.
+     */
+    public double utilisation () {
+
+	return (elapsed == 0) ? 0 :
+	    (double)(delivered * frameBits) / elapsed;
+
+    } // utilisation ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return The mean time, in frame times, from a frame reaching the head
+     *         of its station's queue to the end of its delivery.
+     */
+    public double meanDelay () {
+
+	return (delivered == 0) ? 0 :
+	    (double)delayTotal / delivered / frameBits;
+
+    } // meanDelay ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // PROTECTED METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * A station has a frame at the head of its queue, and is ready to try to
+     * send it at the given time.
+     *
+     * @param station The station ready to send.
+     * @param time    The current time.
+     */
+    protected abstract void attempt (int station, long time);
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The channel has reached the time set in <code>channelDue</code>, which
+     * is reset before this call.
+     *
+     * @param time The current time.
+     */
+    protected abstract void channelEvent (long time);
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Have a station try to send at a later time, replacing any try it has
+     * pending.
+     *
+     * @param station The station.
+     * @param time    The time of its next try.
+     */
+    protected void schedule (int station, long time) {
+
+	due[station] = time;
+	int slot = position[station];
+	if (slot == UNSCHEDULED) {
+	    slot     = size;
+	    size    += 1;
+	    heap[slot] = station;
+	    position[station] = slot;
+	}
+	siftUp(slot);
+	siftDown(position[station]);
+
+    } // schedule ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Record the start of a transmission by a station.
+     */
+    protected void transmitted () {
+
+	transmissions += 1;
+
+    } // transmitted ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * A station's frame has been delivered, so move on to its next one.
+     *
+     * @param  station The station whose frame was delivered.
+     * @param  time    The time at which the delivery ended.
+     * @return Whether the station has another frame to send.
+     */
+    protected boolean deliver (int station, long time) {
+
+	delivered  += 1;
+	delayTotal += time - headTime[station];
+	return next(station, time);
+
+    } // deliver ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Record a collision among the given transmissions, and have each of
+     * their stations back off, retrying a random number of backoff units
+     * after the given time:  between none and one fewer than two to the
+     * power of its number of collisions, capped.  A station that has tried
+     * too often gives up on its frame and goes on at once with its next.
+     *
+     * @param colliders The stations whose transmissions collided.
+     * @param count     The number of stations in <code>colliders</code>.
+     * @param time      The time from which to back off.
+     * @param unit      The length of a backoff unit, in bit times.
+     */
+    protected void collide (int[] colliders, int count, long time,
+			    long unit) {
+
+	collisions += 1;
+	collided   += count;
+	for (int i = 0; i < count; i += 1) {
+	    int station = colliders[i];
+	    tries[station] += 1;
+	    if (tries[station] >= maxTries()) {
+		dropped += 1;
+		if (next(station, time)) {
+		    schedule(station, time);
+		}
+	    } else {
+		int exponent = Math.min(tries[station], backoffLimit());
+		schedule(station,
+			 time + unit * random.nextInt(1 << exponent));
+	    }
+	}
+
+    } // collide ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return The number of collisions of a frame after which it is given
+     *         up.  By default, sixteen, as on Ethernet.
+     */
+    protected int maxTries () {
+
+	return MAX_TRIES;
+
+    } // maxTries ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return The number of collisions after which backoff stops growing.
+     *         By default, ten, as on Ethernet, which spreads no more than
+     *         1024 stations apart.
+     */
+    protected int backoffLimit () {
+
+	return BACKOFF_LIMIT;
+
+    } // backoffLimit ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // PRIVATE METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Read a numeric option, or its default if it is absent.
+    private static double number (Map<String, String> options,
+				  String              name,
+				  double              value) {
+
+	String setting = options.get(name);
+	if (setting == null) {
+	    return value;
+	}
+	try {
+	    return Double.parseDouble(setting.trim());
+	} catch (NumberFormatException e) {
+	    throw new RuntimeException("Expected a number for " + name +
+				       ", not " + setting);
+	}
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // The time of the arrival after one at the given time, the gaps between
+    // arrivals being exponentially distributed at the offered load.
+    private long nextArrival (long time) {
+
+	double gap = -Math.log(1 - random.nextDouble()) * frameBits / load;
+	return time + Math.max(1, Math.round(gap));
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Retire the head of a station's queue, returning whether another frame
+    // has taken its place.
+    private boolean next (int station, long time) {
+
+	queued[station] -= 1;
+	tries[station]   = 0;
+	headTime[station] = time;
+	return queued[station] > 0;
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Remove and return the station with the earliest try.
+    private int pop () {
+
+	int station = heap[0];
+	position[station] = UNSCHEDULED;
+	size -= 1;
+	if (size > 0) {
+	    heap[0] = heap[size];
+	    position[heap[0]] = 0;
+	    siftDown(0);
+	}
+	return station;
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Restore the heap order above and below a slot.
+    private void siftUp (int slot) {
+
+	int station = heap[slot];
+	while (slot > 0) {
+	    int parent = (slot - 1) >>> 1;
+	    if (due[heap[parent]] <= due[station]) {
+		break;
+	    }
+	    heap[slot] = heap[parent];
+	    position[heap[slot]] = slot;
+	    slot = parent;
+	}
+	heap[slot] = station;
+	position[station] = slot;
+
+    }
+
+    private void siftDown (int slot) {
+
+	int station = heap[slot];
+	while (true) {
+	    int child = 2 * slot + 1;
+	    if (child >= size) {
+		break;
+	    }
+	    if ((child + 1 < size) && (due[heap[child + 1]] < due[heap[child]])) {
+		child += 1;
+	    }
+	    if (due[station] <= due[heap[child]]) {
+		break;
+	    }
+	    heap[slot] = heap[child];
+	    position[heap[slot]] = slot;
+	    slot = child;
+	}
+	heap[slot] = station;
+	position[station] = slot;
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The number of stations sharing the channel. */
+    protected int    stations;
+
+    /** The offered load, in frames per frame time. */
+    protected double load;
+
+    /** The length of the run, in frame times. */
+    protected double duration;
+
+    /** The length of every frame, in bits. */
+    protected long   frameBits;
+
+    /** The time of the next change of the channel, or <code>NEVER</code>. */
+    protected long   channelDue = NEVER;
+
+    /** The source of random choices. */
+    protected final Random random = new Random();
+
+    /** The number of frames waiting at each station, the head included. */
+    private int[]  queued;
+
+    /** The number of collisions of the frame at the head of each station. */
+    private int[]  tries;
+
+    /** The time at which each station's head frame reached the head. */
+    private long[] headTime;
+
+    /** The time of each station's pending try. */
+    private long[] due;
+
+    /** The stations with a pending try, as a heap ordered by its time. */
+    private int[]  heap;
+
+    /** Where each station is in the heap, or <code>UNSCHEDULED</code>. */
+    private int[]  position;
+
+    /** The number of stations in the heap. */
+    private int    size = 0;
+
+    /** The counts and times gathered by the run. */
+    private long   delivered     = 0;
+    private long   dropped       = 0;
+    private long   transmissions = 0;
+    private long   collisions    = 0;
+    private long   collided      = 0;
+    private long   delayTotal    = 0;
+    private long   elapsed       = 0;
+
+    /** A time later than any run reaches. */
+    protected static final long NEVER = Long.MAX_VALUE;
+
+    /** The position of a station with no pending try. */
+    private static final int UNSCHEDULED = -1;
+
+    /** The number of tries after which a frame is given up. */
+    private static final int MAX_TRIES = 16;
+
+    /** The number of collisions after which backoff stops growing. */
+    private static final int BACKOFF_LIMIT = 10;
+
+    /** The settings used when no option is given. */
+    private static final double DEFAULT_STATIONS   = 100;
+    private static final double DEFAULT_LOAD       = 1.0;
+    private static final double DEFAULT_DURATION   = 100000;
+    private static final double DEFAULT_FRAME_BITS = 12000;
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class Mac
+// =============================================================================
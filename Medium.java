@@ -6,6 +6,7 @@ import java.util.LinkedList;
 import java.util.Queue;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 // =============================================================================
 
 
@@ -34,8 +35,8 @@ public abstract class Medium {
     public static Medium create (String type) {
 
 	// Look up the class by name.
-	String className   = type + "Medium";
-	Class  mediumClass = null;
+	String   className   = type + "Medium";
+	Class<?> mediumClass = null;
 	try {
 	    mediumClass = Class.forName(className);
 	} catch (ClassNotFoundException e) {
@@ -46,8 +47,9 @@ public abstract class Medium {
 	// Medium subclass.
 	Object o = null;
 	try {
-	    o = mediumClass.newInstance();
-	} catch (InstantiationException e) {
+	    o = mediumClass.getDeclaredConstructor().newInstance();
+	} catch (NoSuchMethodException | InstantiationException |
+		 InvocationTargetException e) {
 	    throw new RuntimeException("Could not instantiate " + className);
 	} catch (IllegalAccessException e) {
 	    throw new RuntimeException("Could not access " + className);
@@ -103,6 +105,64 @@ public abstract class Medium {
 
 
 
+    // =========================================================================
+    /**
+     * Push out any bits that a sender's transmissions have left buffered,
+     * returning once the other clients have received them.  Media that
+     * deliver each bit as it is transmitted have nothing to do.
+     *
+     * @param sender The client physical layer whose bits to push out.
+     */
+    public void flush (PhysicalLayer sender) {
+
+    } // flush ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Start a thread to run a task of a concurrent medium:  a virtual thread
+     * if the runtime provides them, and a daemon platform thread if not.
+     *
+     * @param task The task to run.
+     * @param name The name of a platform thread.
+     */
+    protected static void startThread (Runnable task, String name) {
+
+	if (START_VIRTUAL != null) {
+	    try {
+		START_VIRTUAL.invoke(null, task);
+		return;
+	    } catch (ReflectiveOperationException e) {
+		// Fall through to a platform thread.
+	    }
+	}
+
+	Thread thread = new Thread(task, name);
+	thread.setDaemon(true);
+	thread.start();
+
+    } // startThread ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Find the runtime's method to start a virtual thread, if it has one.
+    private static Method findStartVirtual () {
+
+	try {
+	    return Thread.class.getMethod("startVirtualThread", Runnable.class);
+	} catch (NoSuchMethodException e) {
+	    return null;
+	}
+
+    }
+    // =========================================================================
+
+
+
     // =========================================================================
     // DATA MEMBERS
 
@@ -111,6 +171,9 @@ public abstract class Medium {
 
     /** Whether to emit debugging information. */
     protected static final boolean debug = false;
+
+    /** The runtime's method to start a virtual thread, or <code>null</code>. */
+    private static final Method START_VIRTUAL = findStartVirtual();
     // =========================================================================
     
 
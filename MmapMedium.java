@@ -0,0 +1,399 @@
+// =============================================================================
+// IMPORTS
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.LockSupport;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * A perfect medium between two clients that may live in separate processes.
+ * The clients share a memory-mapped file holding two lanes, one for each
+ * direction, each a single-producer, single-consumer ring of words of bits.
+ * Reads and writes of the ring go straight to the mapped memory through a
+ * <code>VarHandle</code>:  the words themselves with plain accesses, and each
+ * lane's head and tail, on cache lines of their own, with acquire and
+ * release ordering.  A sender publishes its tail once per batch of words,
+ * and a receiver takes every word available at once, so a transfer costs no
+ * system call and little cache traffic.
+ *
+ * The file is named by the system property <code>MmapMedium.path</code>.
+ * Each process sets <code>MmapMedium.side</code> to <code>0</code> or
+ * <code>1</code>, and registers a single client; side 0 must start first,
+ * as it clears the file.  The simulator holds a single host when given a
+ * role, so that a transfer runs as
+ * <code>java -DMmapMedium.side=0 Simulator -role receive Mmap ...</code>
+ * and then
+ * <code>java -DMmapMedium.side=1 Simulator -role send Mmap ...</code>.
+ * Without the property, one process registers both clients, which take the
+ * sides in turn.
+ *
+ * @file   MmapMedium.java
+ * @author Ikram Gabiyev
+ * @date   October 2026
+ */
+public class MmapMedium extends Medium {
+// =============================================================================
+
+
+
+    // =========================================================================
+    // PUBLIC METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The constructor.  Map the shared file, and if this process is side 0,
+     * or holds both sides, clear the lanes and mark the file ready; otherwise
+     * wait for side 0 to do so.
+     *
+     * @throws RuntimeException if the file cannot be mapped, or the side is
+     *                          not 0 or 1.
+     */
+    public MmapMedium () {
+
+	String path = System.getProperty("MmapMedium.path",
+					 new File(System.getProperty("java.io.tmpdir"),
+						  "MmapMedium.ring").getPath());
+	String side = System.getProperty("MmapMedium.side");
+	if ((side != null) && !side.equals("0") && !side.equals("1")) {
+	    throw new RuntimeException("Expected MmapMedium.side 0 or 1, not " +
+				       side);
+	}
+	fixedSide = (side == null) ? -1 : Integer.parseInt(side);
+
+	try (RandomAccessFile file = new RandomAccessFile(path, "rw")) {
+	    if (file.length() < FILE_LENGTH) {
+		file.setLength(FILE_LENGTH);
+	    }
+	    memory = file.getChannel().map(FileChannel.MapMode.READ_WRITE,
+					   0,
+					   FILE_LENGTH);
+	} catch (IOException e) {
+	    throw new RuntimeException("Could not map " + path);
+	}
+
+	if (fixedSide != 1) {
+	    LONGS.setRelease(memory, READY_OFFSET, 0L);
+	    for (int lane = 0; lane < LANES; lane += 1) {
+		LONGS.setRelease(memory, headOffset(lane), 0L);
+		LONGS.setRelease(memory, tailOffset(lane), 0L);
+	    }
+	    LONGS.setRelease(memory, READY_OFFSET, READY);
+	} else {
+	    while ((long)LONGS.getAcquire(memory, READY_OFFSET) != READY) {
+		LockSupport.parkNanos(PARK_NANOS);
+	    }
+	}
+
+    } // MmapMedium ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Register a client of this process, giving it the next side, and start
+     * its receiving thread.
+     *
+     * @param  client The physical layer of a stack to connect to this medium.
+     * @throws RuntimeException if this process has no side left to give.
+     */
+    public synchronized void register (PhysicalLayer client) {
+
+	if (senders.containsKey(client)) {
+	    return;
+	}
+
+	int side;
+	if (fixedSide >= 0) {
+	    if (!senders.isEmpty()) {
+		throw new RuntimeException("MmapMedium connects one client " +
+					   "per process; give each process " +
+					   "a role");
+	    }
+	    side = fixedSide;
+	} else {
+	    if (senders.size() == LANES) {
+		throw new RuntimeException("MmapMedium connects two clients");
+	    }
+	    side = senders.size();
+	}
+
+	super.register(client);
+	senders.put(client, new Sender(side));
+	startThread(new Receiver(client, LANES - 1 - side), "mmap-receiver");
+
+    } // register ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Add a bit to the sender's current word, writing the word into its lane
+     * once it is full.
+     *
+     * @param sender The client physical layer sending the bit.
+     * @param bit The value to be sent, where <code>false</code> sends a
+     *            <code>0</code> bit, and <code>true</code> sends a
+     *            <code>1</code> bit.
+     * @throws RuntimeException if the sender is not registered with this
+     *                          medium.
+     */
+    public void transmit (PhysicalLayer sender, boolean bit) {
+
+	Sender state = senders.get(sender);
+	if (state == null) {
+	    throw new RuntimeException("Unregistered sender on the medium");
+	}
+
+	state.word = (state.word << 1) | (bit ? 1 : 0);
+	if (state.word < 0) {
+	    state.write();
+	}
+
+    } // transmit ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Write out the sender's partial word, publish its tail, and wait until
+     * the other side has received everything in the lane.
+     *
+     * @param sender The client physical layer whose bits to push out.
+     */
+    public void flush (PhysicalLayer sender) {
+
+	Sender state = senders.get(sender);
+	if (state == null) {
+	    return;
+	}
+
+	if (state.word != EMPTY_WORD) {
+	    state.write();
+	}
+	state.publish();
+	while ((long)LONGS.getAcquire(memory, headOffset(state.lane)) <
+	       state.tail) {
+	    Thread.yield();
+	}
+
+    } // flush ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // The offset of a lane's head, its tail, and its first word.
+    private static int headOffset (int lane) {
+
+	return LANES_OFFSET + lane * LANE_LENGTH;
+
+    }
+
+    private static int tailOffset (int lane) {
+
+	return headOffset(lane) + CACHE_LINE;
+
+    }
+
+    private static int wordOffset (int lane, long index) {
+
+	return headOffset(lane) + 2 * CACHE_LINE +
+	    ((int)index & MASK) * Long.BYTES;
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * A sender's lane, partial word, and unpublished tail.  Used only by the
+     * sending thread.
+     */
+    private class Sender {
+
+	public Sender (int lane) {
+	    this.lane = lane;
+	}
+
+	// Write the word into the lane, waiting for room if the lane is full,
+	// and publish the tail once a batch is written.
+	public void write () {
+	    if (tail - cachedHead == CAPACITY) {
+		cachedHead = (long)LONGS.getAcquire(memory, headOffset(lane));
+		while (tail - cachedHead == CAPACITY) {
+		    publish();
+		    Thread.onSpinWait();
+		    cachedHead = (long)LONGS.getAcquire(memory,
+							headOffset(lane));
+		}
+	    }
+	    LONGS.set(memory, wordOffset(lane, tail), word);
+	    tail += 1;
+	    word  = EMPTY_WORD;
+	    if (tail - published >= BATCH) {
+		publish();
+	    }
+	}
+
+	// Make every word written visible to the receiver.
+	public void publish () {
+	    if (published != tail) {
+		LONGS.setRelease(memory, tailOffset(lane), tail);
+		published = tail;
+	    }
+	}
+
+	/** The lane into which this sender writes. */
+	public final int lane;
+
+	/** The bits sent but not yet written, behind a leading 1. */
+	public long      word       = EMPTY_WORD;
+
+	/** The index of the next word to write. */
+	public long      tail       = 0;
+
+	/** The tail last made visible to the receiver. */
+	public long      published  = 0;
+
+	/** The receiver's head when last read. */
+	public long      cachedHead = 0;
+
+    } // class Sender
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * A client's receiving thread, which takes every word available in its
+     * lane at once and delivers their bits in order.
+     */
+    private class Receiver implements Runnable {
+
+	public Receiver (PhysicalLayer client, int lane) {
+	    this.client = client;
+	    this.lane   = lane;
+	}
+
+	public void run () {
+	    long head = (long)LONGS.getAcquire(memory, headOffset(lane));
+	    int  idle = 0;
+	    while (true) {
+		long tail = (long)LONGS.getAcquire(memory, tailOffset(lane));
+		if (head == tail) {
+		    if (idle < SPINS) {
+			idle += 1;
+			Thread.onSpinWait();
+		    } else {
+			LockSupport.parkNanos(PARK_NANOS);
+		    }
+		    continue;
+		}
+		for (; head < tail; head += 1) {
+		    deliver((long)LONGS.get(memory, wordOffset(lane, head)));
+		}
+		LONGS.setRelease(memory, headOffset(lane), head);
+		idle = 0;
+	    }
+	}
+
+	// Deliver the bits of a word, most significant first, below its
+	// leading 1.
+	private void deliver (long word) {
+	    int count = (Long.SIZE - 1) - Long.numberOfLeadingZeros(word);
+	    for (int bit = count - 1; bit >= 0; bit -= 1) {
+		client.receive(((word >>> bit) & 1) != 0);
+	    }
+	}
+
+	/** The client to which to deliver bits. */
+	private final PhysicalLayer client;
+
+	/** The lane from which this receiver reads. */
+	private final int           lane;
+
+    } // class Receiver
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The shared file, mapped. */
+    private final MappedByteBuffer memory;
+
+    /** The side of this process, or -1 if it holds both. */
+    private final int              fixedSide;
+
+    /** The sending state of each client of this process. */
+    private final Map<PhysicalLayer, Sender> senders =
+	new ConcurrentHashMap<PhysicalLayer, Sender>();
+
+    /** A word holding no bits:  only the leading 1 that marks its length. */
+    private static final long EMPTY_WORD   = 1L;
+
+    /** The mark of a file cleared and ready for use. */
+    private static final long READY        = 0x4D4D41504D454449L;
+
+    /** The number of lanes, one per side. */
+    private static final int  LANES        = 2;
+
+    /** The size of a cache line, which no two shared fields share. */
+    private static final int  CACHE_LINE   = 64;
+
+    /** The number of words in each lane, a power of two. */
+    private static final int  CAPACITY     = 1 << 14;
+
+    /** The mask that reduces an index to a lane position. */
+    private static final int  MASK         = CAPACITY - 1;
+
+    /** The number of words a sender writes between publishing its tail. */
+    private static final int  BATCH        = 64;
+
+    /** The layout of the file:  a header line, then the lanes, each a head
+     *  line, a tail line, and the words. */
+    private static final int  READY_OFFSET = 0;
+    private static final int  LANES_OFFSET = CACHE_LINE;
+    private static final int  LANE_LENGTH  = 2 * CACHE_LINE +
+					     CAPACITY * Long.BYTES;
+    private static final int  FILE_LENGTH  = LANES_OFFSET +
+					     LANES * LANE_LENGTH;
+
+    /** The passes over an empty lane before a receiver sleeps between
+     *  looks. */
+    private static final int  SPINS        = 1000;
+
+    /** The time for which an idle thread sleeps before looking again. */
+    private static final long PARK_NANOS   = 50000;
+
+    /** Access to the longs of the mapped file. */
+    private static final VarHandle LONGS =
+	MethodHandles.byteBufferViewVarHandle(long[].class,
+					      ByteOrder.nativeOrder());
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class MmapMedium
+// =============================================================================
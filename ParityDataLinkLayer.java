@@ -1,8 +1,15 @@
 // =============================================================================
 // IMPORTS
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.Map;
 import java.util.Queue;
 // =============================================================================
 
@@ -17,6 +24,12 @@ import java.util.Queue;
  *
  * A data link layer that uses start/stop tags and byte packing to frame the
  * data, and that performs parity byte error management.
+ *
+ * In the packed parity mode, each frame instead carries a vertical parity bit
+ * for every data byte, packed eight to a byte, and a longitudinal parity byte
+ * that is the exclusive-or of all of the data bytes.  A single flipped bit
+ * then shows up in exactly one row and one column, which locate it, and so it
+ * is corrected rather than the frame discarded.
  */
 public class ParityDataLinkLayer extends DataLinkLayer {
 // =============================================================================
@@ -25,98 +38,196 @@ public class ParityDataLinkLayer extends DataLinkLayer {
 
     // =========================================================================
     /**
-     * Embed a raw sequence of bytes into a framed sequence.
+     * The number of raw data bytes carried by each frame.
      *
-     * @param  data The raw sequence of bytes to be framed.
-     * @return A complete frame.
+     * @return The number of data bytes per frame.
      */
-    protected byte[] createFrame (byte[] data) {
+    protected int frameSize () {
 
-		Queue<Byte> framingData = new LinkedList<Byte>();
-		
-		int currentByteIndex = 0;
-		//while there is still some raw data
-		while (currentByteIndex < data.length) 
-		{
-			//storing the number of 1 bits
-			int numOfOneBits = 0;
+		return packed ? packedFrameSize : frameSize;
 
-			//add a start tag to framingData => will have all frames in it
-			framingData.add(startTag);
-			//System.out.println("<start>");
-			
-			//look into the raw data 8 times
+    } // frameSize ()
+    // =========================================================================
 
-			for(int j = 0; j < frameSize; j++)
-			{
-				if (currentByteIndex < data.length) 
-				{
-					// If the current data byte is itself a metadata tag, then precede
-					// it with an escape tag.
-					//	consider parity bytes as metadata
-					byte currentByte = data[currentByteIndex];
-					
-					
-					
-					if ((currentByte == startTag) ||
-					(currentByte == stopTag) ||
-					(currentByte == escapeTag) ||
-					(currentByte == evenParityByte) ||
-					(currentByte == oddParityByte)) {
-
-						//add an escape tag before the special raw byte
-						framingData.add(escapeTag);
-						//System.out.println("<esc>");
-					}
-
-					// Add the data byte itself.
-					framingData.add(currentByte);
-					//System.out.println("[raw]");
-					//count and add 1 bits' count
-					numOfOneBits += Integer.bitCount((int)currentByte);
-
-					//incrementing the currentByteIndex
-					//if I took the raw data
-					currentByteIndex++;
-				}
-			}
 
-			//add the correct parity byte
-			//if we get even num of 1 bits
-			if (numOfOneBits % 2 == 0)
-			{
-				framingData.add(evenParityByte);
-				//System.out.println("<even par>");
-			}
 
-			// if the num of 1 bits is odd
-			else
-			{
-				framingData.add(oddParityByte);
-				//System.out.println("<odd par>");
+    // =========================================================================
+    /**
+     * Each frame's parity depends on its own data alone, so frames may be
+     * encoded in parallel, but packed parity is built in a shared buffer.
+     *
+     * @return <code>true</code> unless parity is packed.
+     */
+    protected boolean encodesConcurrently () {
+
+		return !packed;
+
+    } // encodesConcurrently ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Each frame is checked against its own parity, so frames may be checked
+     * in parallel.
+     *
+     * @return <code>true</code>, always.
+     */
+    protected boolean checksConcurrently () {
+
+		return true;
+
+    } // checksConcurrently ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Frames begin with their data, which is left alone by the check unless
+     * packed parity corrects it.
+     *
+     * @return <code>true</code> unless parity is packed.
+     */
+    protected boolean readsHeaderUnchecked () {
+
+		return !packed;
+
+    } // readsHeaderUnchecked ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Apply named settings to this layer.
+     *
+     * @param options The settings, by name.  In addition to those of every
+     *                data link layer, <code>parity</code> selects the parity
+     *                mode:  <code>byte</code> or <code>packed</code>, the
+     *                latter optionally followed by the number of data bytes
+     *                per frame, as <code>packed,16</code>.
+     */
+    protected void configure (Map<String, String> options) {
+
+		String mode = options.get("parity");
+		if (mode != null) {
+			setParityMode(mode);
+		}
+
+		// The framing depends on the frame size, so it comes after.
+		super.configure(options);
+
+    } // configure ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Choose how parity is carried.  Must be done before the layer is first
+     * used.
+     *
+     * @param mode <code>byte</code> for a single parity byte per frame, or
+     *             <code>packed</code> for packed vertical and longitudinal
+     *             parity, which corrects single-bit errors.  Packed parity
+     *             may be followed by a comma and the number of data bytes per
+     *             frame:  the fewer, the fewer frames hold two flipped bits
+     *             and are lost.
+     * @throws RuntimeException if the mode is not recognized, or the frame
+     *                          size is out of range.
+     */
+    public void setParityMode (String mode) {
+
+		String[] fields = mode.split(",");
+		if (fields.length == 1 && mode.equals(BYTE_PARITY)) {
+			packed = false;
+		} else if (fields.length <= 2 && fields[0].equals(PACKED_PARITY)) {
+			packed = true;
+			if (fields.length == 2) {
+				setPackedFrameSize(fields[1].trim());
 			}
+		} else {
+			throw new RuntimeException("Unknown parity mode " + mode);
+		}
+
+    } // setParityMode ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Embed a portion of a raw sequence of bytes into a single frame, writing
+     * it directly into the given buffer.
+     *
+     * @param  data   The raw sequence of bytes from which to frame.
+     * @param  offset The index of the first byte to place in the frame.
+     * @param  length The number of bytes to place in the frame.
+     * @param  out    The buffer into which to write the frame.
+     * @return The number of bytes written, or <code>FRAME_OVERFLOW</code> if
+     *         the frame did not fit.
+     */
+    protected int encodeFrame (byte[]     data,
+			       int        offset,
+			       int        length,
+			       ByteBuffer out) {
+
+		if (packed) {
+			return encodePackedFrame(data, offset, length, out);
+		}
+
+		int start = out.position();
+		try {
+
+			//add a start tag
+			out.put(startTag);
+
+			// Add the raw data, escaping any metadata tag within it.
+			//	consider parity bytes as metadata
+			stuffer.stuff(data, offset, length, out);
+
+			//add the correct parity byte
+			out.put(hasEvenParity(data, offset, length) ?
+				evenParityByte : oddParityByte);
 
 			// End with a stop tag.
-			framingData.add(stopTag);
-			//System.out.println("<stop>");
-			
+			out.put(stopTag);
+
 			/**
 			 * The Frame Structure
 			 * <start> --- <esc> --- <parity byte> <stop> 
 			 */
-		}
 
-		// Convert to the desired byte array.
-		byte[] framedData = new byte[framingData.size()];
-		Iterator<Byte>  i = framingData.iterator();
-		int             j = 0;
-		while (i.hasNext()) {
-			framedData[j++] = i.next();
+		} catch (BufferOverflowException e) {
+			out.position(start);
+			return FRAME_OVERFLOW;
 		}
-		
-		return framedData;
+
+		return out.position() - start;
 	
-    } // createFrame ()
+    } // encodeFrame ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The largest frame for the given amount of data:  every byte escaped,
+     * plus the start tag, parity byte, and stop tag.
+     *
+     * @param  length The number of data bytes in the frame.
+     * @return The worst-case size of the framed data.
+     */
+    protected int maxFrameLength (int length) {
+
+		if (packed) {
+			return (2 * (length + packedCheckLength(length))) + 2;
+		}
+		return (2 * length) + 3;
+
+    } // maxFrameLength ()
     // =========================================================================
 
 
@@ -181,7 +292,8 @@ public class ParityDataLinkLayer extends DataLinkLayer {
 					// complete frame.
 					return null;
 				}
-			} else if (current == evenParityByte || current == oddParityByte){
+			} else if (!packed &&
+				   (current == evenParityByte || current == oddParityByte)){
 
 				//if we get even num of 1 bits
 				if ( (numOfOneBits % 2 == 0) && (current == evenParityByte) )
@@ -241,24 +353,345 @@ public class ParityDataLinkLayer extends DataLinkLayer {
 			j += 1;
 		}
 
+		// Packed parity travels with the data, and is checked like a
+		// framing's.
+		if (packed) {
+			return acceptFrame(extractedData, extractedData.length);
+		}
+
 		if (stopTagFound == true && paritySatisfied == false)
 		{
+			reportCorruptedFrame(extractedData, extractedData.length);
+			return null;
+		}
+
+		return extractedData;
+    } // processFrame ()
+    // ===============================================================
+
+
+
+    // ===============================================================
+    /**
+     * Parity takes a single check byte per frame, or when packed, a byte of
+     * vertical parity per eight data bytes plus the longitudinal parity byte.
+     *
+     * @return The number of check bytes per frame.
+     */
+    protected int checkLength () {
+
+		return packed ? packedCheckLength(maxContentsLength()) : 1;
+
+    } // checkLength ()
+    // ===============================================================
+
+
+
+    // ===============================================================
+    /**
+     * Append the parity byte for a frame's data, for use with a framing.
+     *
+     * @param  frame  The frame contents, with room for the parity byte.
+     * @param  length The number of data bytes in the frame.
+     * @return The number of check bytes written.
+     */
+    protected int writeCheck (byte[] frame, int length) {
+
+		if (packed) {
+			return writePackedParity(frame, 0, length, frame, length);
+		}
+
+		frame[length] = (hasEvenParity(frame, 0, length) ?
+				 evenParityByte : oddParityByte);
+		return 1;
+
+    } // writeCheck ()
+    // ===============================================================
+
+
+
+    // ===============================================================
+    /**
+     * Verify the parity byte that ends a frame delimited by a framing.
+     *
+     * @param  frame  The frame contents, data followed by the parity byte.
+     * @param  length The number of bytes of frame contents.
+     * @return The data of the frame, or <code>null</code> if its parity is
+     *         wrong.
+     */
+    protected byte[] checkFrame (byte[] frame, int length) {
+
+		if (length < 1) {
+			return null;
+		}
+		if (packed) {
+			return checkPackedFrame(frame, length);
+		}
+
+		int  dataLength = length - 1;
+		byte expected   = (hasEvenParity(frame, 0, dataLength) ?
+				   evenParityByte : oddParityByte);
+		if (frame[dataLength] != expected) {
+			reportCorruptedFrame(frame, dataLength);
+			return null;
+		}
+
+		return Arrays.copyOf(frame, dataLength);
+
+    } // checkFrame ()
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Set the number of data bytes per packed parity frame, which with the
+    // longest header must fit one word of vertical parity.
+    private void setPackedFrameSize (String size) {
+
+		int bytes;
+		try {
+			bytes = Integer.parseInt(size);
+		} catch (NumberFormatException e) {
+			throw new RuntimeException("Expected a packed frame size, " +
+						   "not " + size);
+		}
+		if (bytes < 1 || bytes > MAX_PACKED_FRAME_SIZE) {
+			throw new RuntimeException("Packed frame size must be from 1 " +
+						   "to " + MAX_PACKED_FRAME_SIZE);
+		}
+		packedFrameSize = bytes;
+
+    }
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Announce that a frame was discarded, showing its data.
+    private void reportCorruptedFrame (byte[] data, int length) {
+
+		// Frames may be checked concurrently, so hold the output whole.
+		synchronized (System.out) {
 			System.out.println("");
 			System.out.println("Error occured");
 			System.out.println("***** Corrupted Frame *****");
-			for (int k = 0; k < extractedData.length; k++)
+			for (int k = 0; k < length; k++)
 			{
-				System.out.print((char) extractedData[k]);
+				System.out.print((char) data[k]);
 			}
 			System.out.println("");
 			System.out.println("***************************");
 			System.out.println("");
+		}
+
+    }
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Frame data followed by its packed parity, escaping both.
+    private int encodePackedFrame (byte[]     data,
+				   int        offset,
+				   int        length,
+				   ByteBuffer out) {
+
+		int start = out.position();
+		try {
+
+			out.put(startTag);
+			packedStuffer.stuff(data, offset, length, out);
+			int checks = writePackedParity(data, offset, length,
+						       packedChecks, 0);
+			packedStuffer.stuff(packedChecks, 0, checks, out);
+			out.put(stopTag);
+
+			/**
+			 * The Frame Structure
+			 * <start> --- <esc> --- <vertical> <longitudinal> <stop>
+			 */
+
+		} catch (BufferOverflowException e) {
+			out.position(start);
+			return FRAME_OVERFLOW;
+		}
 
+		return out.position() - start;
+
+    }
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Verify the packed parity that follows a frame's data, correcting a
+    // single flipped bit.  Each difference is a word with a bit set for
+    // every row or column whose parity is wrong.
+    private byte[] checkPackedFrame (byte[] frame, int length) {
+
+		// The data length is whatever leaves exactly room for its parity.
+		int dataLength = (length - 1) - ((length - 1 + 8) / 9);
+		int vertical   = (dataLength + 7) / 8;
+		if (dataLength < 0 ||
+		    dataLength + packedCheckLength(dataLength) != length) {
+			reportCorruptedFrame(frame, length);
 			return null;
 		}
 
-		return extractedData;
-    } // processFrame ()
+		long rows    = (byteParities(frame, 0, dataLength) ^
+				readBits(frame, dataLength, vertical));
+		int  columns = ((columnParity(frame, 0, dataLength) ^
+				 frame[dataLength + vertical]) & 0xFF);
+		int  row     = Long.numberOfTrailingZeros(rows);
+
+		if (Long.bitCount(rows) == 1 && Integer.bitCount(columns) == 1 &&
+		    row < dataLength) {
+
+			// One row and one column:  a single flipped data bit.
+			frame[row] ^= (byte) columns;
+			if (debug) {
+				System.out.printf("ParityDataLinkLayer.checkFrame(): " +
+						  "Corrected byte %d\n",
+						  row);
+			}
+
+		} else if (Long.bitCount(rows) + Integer.bitCount(columns) > 1) {
+
+			// A flip in the parity alone leaves a single difference;
+			// anything more is beyond repair.
+			reportCorruptedFrame(frame, dataLength);
+			return null;
+
+		}
+
+		return Arrays.copyOf(frame, dataLength);
+
+    }
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Write the packed parity of a range of bytes:  the vertical parity
+    // bits, least significant first, then the longitudinal parity byte.
+    // Returns the number of bytes written.
+    private static int writePackedParity (byte[] data,
+					  int    offset,
+					  int    length,
+					  byte[] out,
+					  int    outOffset) {
+
+		long rows     = byteParities(data, offset, length);
+		int  vertical = (length + 7) / 8;
+		for (int k = 0; k < vertical; k++) {
+			out[outOffset + k] = (byte) (rows >>> (8 * k));
+		}
+		out[outOffset + vertical] = (byte) columnParity(data, offset, length);
+
+		return vertical + 1;
+
+    }
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The number of packed parity bytes for the given amount of data.
+    private static int packedCheckLength (int length) {
+
+		return ((length + 7) / 8) + 1;
+
+    }
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The parity of each byte in a range, as one bit per byte.  For each
+    // whole word, the bits of every byte are folded into its lowest bit,
+    // and a multiplication gathers those eight bits into the top byte.
+    private static long byteParities (byte[] data, int offset, int length) {
+
+		long rows = 0;
+		int  end  = offset + length;
+		int  i    = offset;
+		for (; i + Long.BYTES <= end; i += Long.BYTES) {
+			long word = (long)LONGS.get(data, i);
+			word ^= word >>> 4;
+			word ^= word >>> 2;
+			word ^= word >>> 1;
+			word &= LOW_BITS;
+			rows |= ((word * GATHER) >>> 56) << (i - offset);
+		}
+		for (; i < end; i++) {
+			rows |= (long)(Integer.bitCount(data[i] & 0xFF) & 1) << (i - offset);
+		}
+
+		return rows;
+
+    }
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The exclusive-or of every byte in a range, folded a word at a time.
+    private static int columnParity (byte[] data, int offset, int length) {
+
+		long folded = 0;
+		int  end    = offset + length;
+		int  i      = offset;
+		for (; i + Long.BYTES <= end; i += Long.BYTES) {
+			folded ^= (long)LONGS.get(data, i);
+		}
+		folded ^= folded >>> 32;
+		folded ^= folded >>> 16;
+		folded ^= folded >>> 8;
+		for (; i < end; i++) {
+			folded ^= data[i];
+		}
+
+		return (int)folded & 0xFF;
+
+    }
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Read packed bits, least significant first, from a number of bytes.
+    private static long readBits (byte[] data, int offset, int count) {
+
+		long bits = 0;
+		for (int k = 0; k < count; k++) {
+			bits |= (long)(data[offset + k] & 0xFF) << (8 * k);
+		}
+
+		return bits;
+
+    }
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Determine whether a range of bytes holds an even number of 1 bits,
+    // folding whole words together so that only one count is needed.
+    private static boolean hasEvenParity (byte[] data, int offset, int length) {
+
+		long folded = 0;
+		int  end    = offset + length;
+		int  i      = offset;
+		for (; i + Long.BYTES <= end; i += Long.BYTES) {
+			folded ^= (long)LONGS.get(data, i);
+		}
+		for (; i < end; i++) {
+			folded ^= data[i] & 0xFF;
+		}
+
+		return Long.bitCount(folded) % 2 == 0;
+
+    }
     // ===============================================================
 
 
@@ -292,6 +725,51 @@ public class ParityDataLinkLayer extends DataLinkLayer {
 	//The parity bytes
 	private final byte oddParityByte = 0b01010101;
 	private final byte evenParityByte = 0b00101010;
+
+	// The escaper of tags and parity bytes within the data.
+	private final ByteStuffer stuffer = new ByteStuffer(escapeTag,
+							     startTag,
+							     stopTag,
+							     escapeTag,
+							     evenParityByte,
+							     oddParityByte);
+
+	// Whether parity is packed, rather than a single byte.
+	private boolean packed = false;
+
+	// The number of data bytes per packed parity frame.
+	private int packedFrameSize = DEFAULT_PACKED_FRAME_SIZE;
+
+	// The packed parity of the frame being sent.
+	private final byte[] packedChecks = new byte[packedCheckLength(Long.SIZE)];
+
+	// The escaper of tags alone, for packed parity frames.
+	private final ByteStuffer packedStuffer = new ByteStuffer(escapeTag,
+								   startTag,
+								   stopTag,
+								   escapeTag);
+
+	// The parity modes.
+	public static final String BYTE_PARITY   = "byte";
+	public static final String PACKED_PARITY = "packed";
+
+	// With packed parity, one 64-bit word of vertical parity covers a frame,
+	// header and all.
+	private static final int MAX_PACKED_FRAME_SIZE = Long.SIZE - MAX_HEADER_LENGTH;
+
+	// The packed frame size unless chosen:  short enough that on a noisy
+	// medium few frames hold two flipped bits.
+	private static final int DEFAULT_PACKED_FRAME_SIZE = 16;
+
+	// The lowest bit of each byte of a word, and the multiplier that gathers
+	// those bits into the top byte.
+	private static final long LOW_BITS = 0x0101010101010101L;
+	private static final long GATHER   = 0x0102040810204080L;
+
+	// A view of a byte array as words, for folding parity.
+	private static final VarHandle LONGS =
+		MethodHandles.byteArrayViewVarHandle(long[].class,
+						     ByteOrder.LITTLE_ENDIAN);
     // ===============================================================
 
 
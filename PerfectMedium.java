@@ -50,7 +50,7 @@ public class PerfectMedium extends Medium {
 	    
 	    PhysicalLayer receiver = clientIterator.next();
 	    if (receiver != sender) {
-		receiver.receive(bit);
+		receiver.receive(sender.station(), bit);
 	    }
 
 	}
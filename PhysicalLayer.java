@@ -1,3 +1,11 @@
+// =============================================================================
+// IMPORTS
+
+import java.util.concurrent.atomic.AtomicInteger;
+// =============================================================================
+
+
+
 // =============================================================================
 /**
  * Transmits bits across a medium.
@@ -37,14 +45,53 @@ public class PhysicalLayer {
 
     // =========================================================================
     /**
-     * The constructor.  Attach the new physical layer to the given medium.
+     * Create a physical layer with the given station, and connect it to the
+     * given medium.  Stations in separate processes sharing a medium are
+     * numbered apart this way.
+     *
+     * @param medium  The medium on which this physical layer will transmit
+     *                and receive.
+     * @param station The number that identifies this physical layer.
+     * @return the newly created physical layer.
+     */
+    public static PhysicalLayer create (Medium medium, int station) {
+
+	return new PhysicalLayer(medium, station);
+
+    } // create ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The constructor.  Attach the new physical layer to the given medium,
+     * as the next station of this process.
      *
      * @param medium The medium through which this physical layer will signal.
      */
     public PhysicalLayer (Medium medium) {
 
+	this(medium, nextStation.getAndIncrement());
+
+    } // PhysicalLayer ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The constructor.  Attach the new physical layer, with the given station,
+     * to the given medium.
+     *
+     * @param medium  The medium through which this physical layer will signal.
+     * @param station The number that identifies this physical layer.
+     */
+    public PhysicalLayer (Medium medium, int station) {
+
 	// Connect the client to the media.
-	this.medium = medium;
+	this.station = station;
+	this.medium  = medium;
 	medium.register(this);
 
     } // PhysicalLayer ()
@@ -82,6 +129,7 @@ public class PhysicalLayer {
      */
     public void send (boolean bit) {
 
+	bitsSent += 1;
 	medium.transmit(this, bit);
 
     } // send ()
@@ -89,6 +137,20 @@ public class PhysicalLayer {
 
 
 
+    // =========================================================================
+    /**
+     * Push out any bits the medium holds from this layer, returning once they
+     * are received.
+     */
+    public void flush () {
+
+	medium.flush(this);
+
+    } // flush ()
+    // =========================================================================
+
+
+
     // =========================================================================
     /**
      * Called by the medium to deliver a bit, which is then in turn delivered to
@@ -105,6 +167,86 @@ public class PhysicalLayer {
 
 
 
+    // ===============================================================
+    /**
+     * Called by a medium that delivers soft decisions, passing the
+     * log-likelihood ratio of a bit on to the client data link layer.
+     *
+     * @param llr The log-likelihood ratio of the bit received, the log of the
+     *            probability that it is a <code>1</code> over the probability
+     *            that it is a <code>0</code>.
+     */
+    public void receive (double llr) {
+
+	client.receive(llr);
+
+    }
+    // ===============================================================
+
+
+
+    // ===============================================================
+    /**
+     * Called by a medium that knows which client sent each bit, so that the
+     * client data link layer may keep the bits of each sender apart.
+     *
+     * @param source The station of the physical layer that sent the bit.
+     * @param bit    The bit received from the medium.
+     */
+    public void receive (int source, boolean bit) {
+
+	client.receive(source, bit);
+
+    }
+    // ===============================================================
+
+
+
+    // ===============================================================
+    /**
+     * Called by a medium that delivers soft decisions and knows which client
+     * sent each bit.
+     *
+     * @param source The station of the physical layer that sent the bit.
+     * @param llr    The log-likelihood ratio of the bit received.
+     */
+    public void receive (int source, double llr) {
+
+	client.receive(source, llr);
+
+    }
+    // ===============================================================
+
+
+
+    // ===============================================================
+    /**
+     * @return The number that identifies this physical layer, unique among
+     *         those in this process unless given, and by which media name
+     *         the sender of the bits they deliver.
+     */
+    public int station () {
+
+	return station;
+
+    } // station ()
+    // ===============================================================
+
+
+
+    // ===============================================================
+    /**
+     * @return The number of bits sent through this layer so far.
+     */
+    public long bitsSent () {
+
+	return bitsSent;
+
+    } // bitsSent ()
+    // ===============================================================
+
+
+
     // ===============================================================
     // DATA MEMBERS
 
@@ -113,6 +255,15 @@ public class PhysicalLayer {
 
     /** The data link layer above this physical layer. */
     private DataLinkLayer client;
+
+    /** The number of bits sent. */
+    private long bitsSent = 0;
+
+    /** The number that identifies this physical layer. */
+    private final int station;
+
+    /** The station of the next physical layer created. */
+    private static final AtomicInteger nextStation = new AtomicInteger(1);
     // ===============================================================
 
 
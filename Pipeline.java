@@ -0,0 +1,194 @@
+// =============================================================================
+// IMPORTS
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.function.Consumer;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * An ordered chain of stages.  Sent bytes pass through the stages first to
+ * last, and received bytes last to first.  Each stage writes into a buffer
+ * of its own for each direction, allocated once and reused:  the stage fills
+ * it, the next stage drains it, and the first stage goes on.  A deep pipeline
+ * thus holds two buffers per stage rather than copying the whole data once
+ * per stage.
+ *
+ * @file   Pipeline.java
+ * @author Ikram Gabiyev
+ * @date   October 2026
+ */
+public class Pipeline {
+// =============================================================================
+
+
+
+    // =========================================================================
+    // PUBLIC METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Create a pipeline of the given stage types.
+     *
+     * @param  types The types of the stages, in the order that sent bytes
+     *               pass through them.
+     * @return The newly created pipeline.
+     * @throws RuntimeException if a type is not a valid stage.
+     */
+    public static Pipeline create (List<String> types) {
+
+	Stage[] stages = new Stage[types.size()];
+	for (int i = 0; i < stages.length; i += 1) {
+	    stages[i] = Stage.create(types.get(i).trim());
+	}
+	return new Pipeline(stages);
+
+    } // create ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The constructor.
+     *
+     * @param stages The stages, in the order that sent bytes pass through
+     *               them.
+     */
+    public Pipeline (Stage[] stages) {
+
+	this.stages         = stages.clone();
+	this.encodedBuffers = new ByteBuffer[stages.length];
+	this.decodedBuffers = new ByteBuffer[stages.length];
+	for (int i = 0; i < stages.length; i += 1) {
+	    encodedBuffers[i] = ByteBuffer.allocate(BUFFER_SIZE);
+	    decodedBuffers[i] = ByteBuffer.allocate(BUFFER_SIZE);
+	}
+
+    } // Pipeline ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Pass bytes being sent through every stage, and finish each stage in
+     * turn once its input ends.
+     *
+     * @param in   The bytes to send, from its position to its limit.
+     * @param sink The consumer of the output of the last stage, which must
+     *             consume all of each buffer given to it.
+     */
+    public void encode (ByteBuffer in, Consumer<ByteBuffer> sink) {
+
+	encode(0, in, true, sink);
+
+    } // encode ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Pass bytes received back through every stage.
+     *
+     * @param in   The bytes received, from its position to its limit.
+     * @param sink The consumer of the output of the first stage, which must
+     *             consume all of each buffer given to it.
+     */
+    public void decode (ByteBuffer in, Consumer<ByteBuffer> sink) {
+
+	decode(stages.length - 1, in, sink);
+
+    } // decode ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Run the given stage over its input, passing each buffer of its output
+    // on to the rest of the pipeline.  The stage goes on while it has input
+    // left, or has filled its output and so may have more to give.  If the
+    // input is the last, the stage is finished, and the next stage is told
+    // that its input is the last only with the stage's final output.
+    private void encode (int                  index,
+			 ByteBuffer           in,
+			 boolean              last,
+			 Consumer<ByteBuffer> sink) {
+
+	if (index == stages.length) {
+	    sink.accept(in);
+	    return;
+	}
+
+	Stage      stage = stages[index];
+	ByteBuffer out   = encodedBuffers[index];
+	boolean    more;
+	do {
+	    stage.encode(in, out);
+	    more = in.hasRemaining() || !out.hasRemaining();
+	    if (!more && last) {
+		more = !stage.finish(out);
+	    }
+	    out.flip();
+	    encode(index + 1, out, last && !more, sink);
+	    out.clear();
+	} while (more);
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Run the given stage over received input, passing each buffer of its
+    // output back toward the first stage.
+    private void decode (int index, ByteBuffer in, Consumer<ByteBuffer> sink) {
+
+	if (index < 0) {
+	    sink.accept(in);
+	    return;
+	}
+
+	Stage      stage = stages[index];
+	ByteBuffer out   = decodedBuffers[index];
+	boolean    more;
+	do {
+	    stage.decode(in, out);
+	    more = in.hasRemaining() || !out.hasRemaining();
+	    out.flip();
+	    decode(index - 1, out, sink);
+	    out.clear();
+	} while (more);
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The stages, in the order that sent bytes pass through them. */
+    private final Stage[]      stages;
+
+    /** The buffers into which each stage writes its output, when sending
+     *  and when receiving. */
+    private final ByteBuffer[] encodedBuffers;
+    private final ByteBuffer[] decodedBuffers;
+
+    /** The size of each stage's output buffer. */
+    private static final int   BUFFER_SIZE = 4096;
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class Pipeline
+// =============================================================================
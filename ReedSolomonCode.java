@@ -0,0 +1,361 @@
+// =============================================================================
+// IMPORTS
+
+import java.util.Arrays;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * A systematic Reed-Solomon code over GF(256).  A codeword is the data
+ * followed by <code>n - k</code> parity bytes, and up to
+ * <code>(n - k) / 2</code> bytes anywhere in it, however many of their bits
+ * are wrong, can be corrected.  Shorter codewords (a shortened code) are
+ * handled by treating the missing leading data bytes as zeros.
+ *
+ * Encoding divides by the generator polynomial with a byte-wide shift
+ * register.  Decoding first computes the syndromes; if they are all zero, the
+ * codeword is intact and nothing more is done.  Otherwise, Berlekamp-Massey
+ * finds the error locator polynomial, a Chien search finds its roots and so
+ * the positions in error, and Forney's formula gives the error values.  Every
+ * multiplication by a fixed element, in the shift register and in the
+ * syndromes, is a single lookup in a precomputed row of products.
+ *
+ * @file   ReedSolomonCode.java
+ * @author Ikram Gabiyev
+ * @date   October 2026
+ */
+public class ReedSolomonCode {
+// =============================================================================
+
+
+
+    // =========================================================================
+    // PUBLIC METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The constructor.
+     *
+     * @param  n The number of bytes in a full codeword, at most 255.
+     * @param  k The number of data bytes in a full codeword.
+     * @throws RuntimeException if the parameters do not describe a code.
+     */
+    public ReedSolomonCode (int n, int k) {
+
+	if ((k < 1) || (n <= k) || (n > GaloisField.ORDER)) {
+	    throw new RuntimeException("Invalid Reed-Solomon code (" + n +
+				       ", " + k + ")");
+	}
+	this.n      = n;
+	this.k      = k;
+	this.parity = n - k;
+
+	// The generator has roots alpha^0 through alpha^(parity - 1).  Its
+	// coefficients are kept highest degree first, omitting the leading 1.
+	int[] generator = new int[] { 1 };
+	for (int i = 0; i < parity; i += 1) {
+	    int[] product = new int[generator.length + 1];
+	    int   root    = GaloisField.power(i);
+	    for (int j = 0; j < generator.length; j += 1) {
+		product[j]     ^= generator[j];
+		product[j + 1] ^= GaloisField.multiply(generator[j], root);
+	    }
+	    generator = product;
+	}
+	generatorTables = new byte[parity][];
+	for (int i = 0; i < parity; i += 1) {
+	    generatorTables[i] = GaloisField.multiplicationTable(generator[i + 1]);
+	}
+
+	// Evaluating at each root is a repeated multiplication by it.
+	rootTables = new byte[parity][];
+	for (int i = 0; i < parity; i += 1) {
+	    rootTables[i] = GaloisField.multiplicationTable(GaloisField.power(i));
+	}
+
+	register  = new int[parity];
+	syndromes = new int[parity];
+
+    } // ReedSolomonCode ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return The number of data bytes in a full codeword.
+     */
+    public int dataLength () {
+
+	return k;
+
+    } // dataLength ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return The number of parity bytes in every codeword.
+     */
+    public int parityLength () {
+
+	return parity;
+
+    } // parityLength ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Compute the parity bytes for some data, writing them just after it.
+     *
+     * @param  codeword The data, beginning at index 0, with room for the parity
+     *                  bytes after it.
+     * @param  length   The number of data bytes, at most <code>k</code>.
+     */
+    public synchronized void encode (byte[] codeword, int length) {
+
+	// Shift each data byte through the register of remainders.
+	Arrays.fill(register, 0);
+	for (int i = 0; i < length; i += 1) {
+	    int feedback = (codeword[i] ^ register[0]) & 0xFF;
+	    for (int j = 0; j < parity - 1; j += 1) {
+		register[j] = register[j + 1] ^ (generatorTables[j][feedback] & 0xFF);
+	    }
+	    register[parity - 1] = generatorTables[parity - 1][feedback] & 0xFF;
+	}
+
+	for (int j = 0; j < parity; j += 1) {
+	    codeword[length + j] = (byte)register[j];
+	}
+
+    } // encode ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Correct a codeword in place.
+     *
+     * @param  codeword The received codeword, data followed by parity.
+     * @param  length   The number of bytes in the codeword, including parity.
+     * @return The number of bytes corrected, or <code>-1</code> if there are
+     *         too many errors to correct.
+     */
+    public synchronized int decode (byte[] codeword, int length) {
+
+	if ((length <= parity) || (length > n)) {
+	    return -1;
+	}
+
+	// Evaluate the codeword at each root of the generator.  An intact
+	// codeword is a multiple of the generator, so all are zero.
+	boolean intact = true;
+	for (int i = 0; i < parity; i += 1) {
+	    byte[] table    = rootTables[i];
+	    int    syndrome = 0;
+	    for (int j = 0; j < length; j += 1) {
+		syndrome = (table[syndrome] & 0xFF) ^ (codeword[j] & 0xFF);
+	    }
+	    syndromes[i] = syndrome;
+	    intact      &= (syndrome == 0);
+	}
+	if (intact) {
+	    return 0;
+	}
+
+	// Find the error locator, whose roots are the inverses of the error
+	// locations.
+	int[] locator = findErrorLocator();
+	int   errors  = degree(locator);
+	if (2 * errors > parity) {
+	    return -1;
+	}
+
+	// The byte at index j carries the coefficient of x^(length - 1 - j).
+	// Search every index for a root, and correct each as it is found.
+	int[] evaluator = findErrorEvaluator(locator);
+	int   found     = 0;
+	for (int j = 0; j < length; j += 1) {
+	    int exponent = length - 1 - j;
+	    int xInverse = GaloisField.power(-exponent);
+	    if (evaluate(locator, xInverse) != 0) {
+		continue;
+	    }
+
+	    // Forney:  the error value is X * Omega(1/X) / Lambda'(1/X).
+	    int numerator   = GaloisField.multiply(GaloisField.power(exponent),
+						   evaluate(evaluator, xInverse));
+	    int denominator = evaluateDerivative(locator, xInverse);
+	    if (denominator == 0) {
+		return -1;
+	    }
+	    codeword[j] ^= (byte)GaloisField.divide(numerator, denominator);
+	    found       += 1;
+	}
+
+	// If the roots do not all lie within the codeword, it is too damaged
+	// for the locator to be trusted.
+	return (found == errors) ? found : -1;
+
+    } // decode ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Berlekamp-Massey:  the shortest linear recurrence that generates the
+    // syndromes, as polynomial coefficients from the constant term upwards.
+    private int[] findErrorLocator () {
+
+	int[] locator  = new int[parity + 1];
+	int[] previous = new int[parity + 1];
+	locator[0]  = 1;
+	previous[0] = 1;
+	int length          = 0;
+	int shift           = 1;
+	int lastDiscrepancy = 1;
+
+	for (int r = 0; r < parity; r += 1) {
+
+	    // How far the current recurrence is from predicting this syndrome.
+	    int discrepancy = syndromes[r];
+	    for (int i = 1; i <= length; i += 1) {
+		discrepancy ^= GaloisField.multiply(locator[i], syndromes[r - i]);
+	    }
+	    if (discrepancy == 0) {
+		shift += 1;
+		continue;
+	    }
+
+	    // Cancel the discrepancy with a shifted multiple of the previous
+	    // recurrence, lengthening the current one if need be.
+	    int[] saved = locator.clone();
+	    int   scale = GaloisField.divide(discrepancy, lastDiscrepancy);
+	    for (int i = 0; i + shift <= parity; i += 1) {
+		locator[i + shift] ^= GaloisField.multiply(scale, previous[i]);
+	    }
+	    if (2 * length <= r) {
+		length          = r + 1 - length;
+		previous        = saved;
+		lastDiscrepancy = discrepancy;
+		shift           = 1;
+	    } else {
+		shift += 1;
+	    }
+
+	}
+
+	return locator;
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // The error evaluator, Omega(x) = S(x) Lambda(x) mod x^parity, where S(x)
+    // has the syndromes as its coefficients.
+    private int[] findErrorEvaluator (int[] locator) {
+
+	int[] evaluator = new int[parity];
+	for (int i = 0; i < parity; i += 1) {
+	    for (int j = 0; j <= i; j += 1) {
+		evaluator[i] ^= GaloisField.multiply(syndromes[i - j], locator[j]);
+	    }
+	}
+	return evaluator;
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Evaluate a polynomial, given from the constant term upwards.
+    private static int evaluate (int[] polynomial, int x) {
+
+	int result = 0;
+	for (int i = polynomial.length - 1; i >= 0; i -= 1) {
+	    result = GaloisField.multiply(result, x) ^ polynomial[i];
+	}
+	return result;
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Evaluate the formal derivative of a polynomial.  In a field of
+    // characteristic 2, only the odd powers survive differentiation.
+    private static int evaluateDerivative (int[] polynomial, int x) {
+
+	int result = 0;
+	int xSquared = GaloisField.multiply(x, x);
+	for (int i = polynomial.length - 1; i >= 1; i -= 1) {
+	    if (i % 2 == 1) {
+		result = GaloisField.multiply(result, xSquared) ^ polynomial[i];
+	    }
+	}
+	return result;
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // The degree of a polynomial, given from the constant term upwards.
+    private static int degree (int[] polynomial) {
+
+	int degree = polynomial.length - 1;
+	while ((degree > 0) && (polynomial[degree] == 0)) {
+	    degree -= 1;
+	}
+	return degree;
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The number of bytes in a full codeword. */
+    private final int      n;
+
+    /** The number of data bytes in a full codeword. */
+    private final int      k;
+
+    /** The number of parity bytes in a codeword. */
+    private final int      parity;
+
+    /** The products with each coefficient of the generator, after the
+     *  leading one, highest degree first. */
+    private final byte[][] generatorTables;
+
+    /** The products with each root of the generator. */
+    private final byte[][] rootTables;
+
+    /** The remainders of the codeword being encoded. */
+    private final int[]    register;
+
+    /** The syndromes of the codeword being decoded. */
+    private final int[]    syndromes;
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class ReedSolomonCode
+// =============================================================================
@@ -0,0 +1,265 @@
+// =============================================================================
+// IMPORTS
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * A data link layer that protects each frame with a Reed-Solomon code, and so
+ * corrects bursts of errors that span several bytes.  Each frame carries up to
+ * <code>k</code> data bytes followed by <code>n - k</code> parity bytes, and
+ * up to <code>(n - k) / 2</code> damaged bytes per frame are repaired.  Frames
+ * are delimited just as by the dumb layer.  The code is chosen with the
+ * <code>rs</code> option, as <code>n,k</code>.
+ *
+ * @file   ReedSolomonDataLinkLayer.java
+ * @author Ikram Gabiyev
+ * @date   October 2026
+ */
+public class ReedSolomonDataLinkLayer extends DumbDataLinkLayer {
+// =============================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Apply named settings to this layer.
+     *
+     * @param options The settings, by name.  In addition to those of every
+     *                data link layer, <code>rs</code> gives the code as
+     *                <code>n,k</code>.
+     * @throws RuntimeException if the code is malformed or invalid.
+     */
+    protected void configure (Map<String, String> options) {
+
+	String rs = options.get("rs");
+	if (rs != null) {
+	    String[] parameters = rs.split(",");
+	    if (parameters.length != 2) {
+		throw new RuntimeException("Expected rs as n,k, not " + rs);
+	    }
+	    try {
+		setCode(Integer.parseInt(parameters[0].trim()),
+			Integer.parseInt(parameters[1].trim()));
+	    } catch (NumberFormatException e) {
+		throw new RuntimeException("Expected rs as n,k, not " + rs);
+	    }
+	}
+
+	// The framing depends on the size of the code, so it comes after.
+	super.configure(options);
+
+    } // configure ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Choose the code.  Must be done before the layer is first used.
+     *
+     * @param n The number of bytes in a full codeword, at most 255.
+     * @param k The number of data bytes in a full codeword.
+     */
+    public void setCode (int n, int k) {
+
+	code      = new ReedSolomonCode(n, k);
+	codewords = new byte[n];
+
+    } // setCode ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Each frame carries one codeword's worth of data, less any header, which
+     * the code protects with the data.
+     *
+     * @return The number of data bytes per frame.
+     */
+    protected int frameSize () {
+
+	return code.dataLength() - headerLength();
+
+    } // frameSize ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Append the parity bytes to a portion of the data, and frame the
+     * resulting codeword.
+     *
+     * @param  data   The raw sequence of bytes from which to frame.
+     * @param  offset The index of the first byte to place in the frame.
+     * @param  length The number of bytes to place in the frame.
+     * @param  out    The buffer into which to write the frame.
+     * @return The number of bytes written, or <code>FRAME_OVERFLOW</code> if
+     *         the frame did not fit.
+     */
+    protected int encodeFrame (byte[]     data,
+			       int        offset,
+			       int        length,
+			       ByteBuffer out) {
+
+	System.arraycopy(data, offset, codewords, 0, length);
+	code.encode(codewords, length);
+	return super.encodeFrame(codewords,
+				 0,
+				 length + code.parityLength(),
+				 out);
+
+    } // encodeFrame ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The largest frame for the given amount of data and its parity.
+     *
+     * @param  length The number of data bytes in the frame.
+     * @return The worst-case size of the framed data.
+     */
+    protected int maxFrameLength (int length) {
+
+	return super.maxFrameLength(length + code.parityLength());
+
+    } // maxFrameLength ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Extract the codeword of a complete frame, if there is one, and correct
+     * it.
+     *
+     * @return If the buffer contains a complete frame whose errors could all
+     *         be corrected, the original data; <code>null</code> otherwise.
+     */
+    protected byte[] processFrame () {
+
+	byte[] codeword = super.processFrame();
+	if (codeword == null) {
+	    return null;
+	}
+	return checkFrame(codeword, codeword.length);
+
+    } // processFrame ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The parity bytes are the check bytes under a framing.
+     *
+     * @return The number of check bytes per frame.
+     */
+    protected int checkLength () {
+
+	return code.parityLength();
+
+    } // checkLength ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Append the parity bytes for a frame's data, for use with a framing.
+     *
+     * @param  frame  The frame contents, with room for the parity.
+     * @param  length The number of data bytes in the frame.
+     * @return The number of parity bytes written.
+     */
+    protected int writeCheck (byte[] frame, int length) {
+
+	code.encode(frame, length);
+	return code.parityLength();
+
+    } // writeCheck ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Correct a received codeword, and extract its data.  The codeword is
+     * corrected in place.
+     *
+     * @param  frame  The codeword, data followed by parity.
+     * @param  length The number of bytes in the codeword.
+     * @return The data of the frame, or <code>null</code> if it held too many
+     *         errors to correct.
+     */
+    protected byte[] checkFrame (byte[] frame, int length) {
+
+	int corrected = code.decode(frame, length);
+	if (corrected < 0) {
+	    System.out.println("");
+	    System.out.println("Error occured");
+	    System.out.println("***** Uncorrectable Frame *****");
+	    System.out.println("");
+	    return null;
+	}
+	if (debug && (corrected > 0)) {
+	    System.out.printf("ReedSolomonDataLinkLayer.checkFrame(): " +
+			      "Corrected %d bytes\n",
+			      corrected);
+	}
+
+	byte[] extractedData = new byte[length - code.parityLength()];
+	System.arraycopy(frame, 0, extractedData, 0, extractedData.length);
+	return extractedData;
+
+    } // checkFrame ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The check may correct any byte of a frame, its header included, so the
+     * header is read only once corrected.
+     *
+     * @return <code>false</code>, always.
+     */
+    protected boolean readsHeaderUnchecked () {
+
+	return false;
+
+    } // readsHeaderUnchecked ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The code by which frames are protected, by default RS(40, 32). */
+    private ReedSolomonCode code      = new ReedSolomonCode(DEFAULT_N,
+							    DEFAULT_K);
+
+    /** The codeword of the frame being sent. */
+    private byte[]          codewords = new byte[DEFAULT_N];
+
+    /** The default number of bytes in a codeword. */
+    private static final int DEFAULT_N = 40;
+
+    /** The default number of data bytes in a codeword. */
+    private static final int DEFAULT_K = 32;
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class ReedSolomonDataLinkLayer
+// =============================================================================
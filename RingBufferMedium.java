@@ -0,0 +1,446 @@
+// =============================================================================
+// IMPORTS
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * A perfect shared bus on which any number of hosts send and receive
+ * concurrently.  All transmissions go through one preallocated ring of
+ * slots, each holding a word of one sender's bits.  A sender claims the
+ * next slot by compare-and-swap on the shared claim sequence, fills it, and
+ * marks it available; no lock is ever taken.  Every attached client has its
+ * own consumer, with its own cursor, that reads every slot available since
+ * its last read in one batch and delivers the bits of each slot sent by
+ * another client.  A sender may not claim a slot that the slowest consumer
+ * has not yet read.
+ *
+ * Receivers hear the words of concurrent senders interleaved, as on a bus
+ * with no collisions; arbitrating for the bus is left to the hosts.
+ *
+ * The sequences are padded out to their own cache lines, so that one
+ * thread's updates do not evict another's.  Waiting, for slots to read or to
+ * claim, is by the strategy named by the system property
+ * <code>RingBufferMedium.wait</code>:  <code>spin</code>, <code>yield</code>,
+ * or <code>park</code>, the default.
+ *
+ * @file   RingBufferMedium.java
+ * @author Ikram Gabiyev
+ * @date   October 2026
+ */
+public class RingBufferMedium extends Medium {
+// =============================================================================
+
+
+
+    // =========================================================================
+    // PUBLIC METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The constructor.  Mark every slot as not yet available.
+     */
+    public RingBufferMedium () {
+
+	Arrays.fill(available, -1);
+
+    } // RingBufferMedium ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Register the given client, and start its consumer, which hears only
+     * what is sent from now on.
+     *
+     * @param client The physical layer of a stack to connect to this medium.
+     */
+    public synchronized void register (PhysicalLayer client) {
+
+	if (senders.containsKey(client)) {
+	    return;
+	}
+
+	int      index    = client.station();
+	Consumer consumer = new Consumer(client, index, claimed.get());
+	super.register(client);
+	consumers.add(consumer);
+	senders.put(client, new Sender(index));
+	startThread(consumer, "ring-consumer");
+
+    } // register ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Add a bit to the sender's current word, publishing the word to the
+     * ring once it is full.
+     *
+     * @param sender The client physical layer sending the bit.
+     * @param bit The value to be sent, where <code>false</code> sends a
+     *            <code>0</code> bit, and <code>true</code> sends a
+     *            <code>1</code> bit.
+     * @throws RuntimeException if the sender is not registered with this
+     *                          medium.
+     */
+    public void transmit (PhysicalLayer sender, boolean bit) {
+
+	Sender state = senders.get(sender);
+	if (state == null) {
+	    throw new RuntimeException("Unregistered sender on the medium");
+	}
+
+	state.word = (state.word << 1) | (bit ? 1 : 0);
+	if (state.word < 0) {
+	    publish(state);
+	}
+
+    } // transmit ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Publish the sender's partial word, and wait until every consumer has
+     * read past all that the sender has published.
+     *
+     * @param sender The client physical layer whose bits to push out.
+     */
+    public void flush (PhysicalLayer sender) {
+
+	Sender state = senders.get(sender);
+	if (state == null) {
+	    return;
+	}
+
+	if (state.word != EMPTY_WORD) {
+	    publish(state);
+	}
+	int attempts = 0;
+	while (minimumSequence(state.published) < state.published) {
+	    attempts = WAIT.idle(attempts);
+	}
+
+    } // flush ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Claim a slot, fill it with the sender's word, and mark it available.
+    private void publish (Sender sender) {
+
+	long sequence = claim();
+	int  slot     = (int)sequence & MASK;
+	words[slot]   = sender.word;
+	sources[slot] = sender.index;
+	AVAILABLE.setRelease(available, slot, (int)(sequence >>> SHIFT));
+
+	sender.published = sequence;
+	sender.word      = EMPTY_WORD;
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Claim the next sequence, once the slowest consumer has read the slot it
+    // reuses.  The minimum consumer sequence is cached, so that the
+    // consumers are only scanned when the ring may be full.
+    private long claim () {
+
+	int attempts = 0;
+	while (true) {
+	    long current = claimed.get();
+	    long next    = current + 1;
+	    long wrap    = next - CAPACITY;
+	    if (wrap > gatingCache.get()) {
+		long minimum = minimumSequence(current);
+		if (wrap > minimum) {
+		    attempts = WAIT.idle(attempts);
+		    continue;
+		}
+		gatingCache.setRelease(minimum);
+	    } else if (claimed.compareAndSet(current, next)) {
+		return next;
+	    }
+	}
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // The least sequence read by any consumer, or the given bound if less.
+    private long minimumSequence (long bound) {
+
+	long minimum = bound;
+	for (Consumer consumer : consumers) {
+	    minimum = Math.min(minimum, consumer.sequence.get());
+	}
+	return minimum;
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Whether the slot for a sequence holds that sequence's word.
+    private boolean isAvailable (long sequence) {
+
+	int slot = (int)sequence & MASK;
+	return (int)AVAILABLE.getAcquire(available, slot) ==
+	    (int)(sequence >>> SHIFT);
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The ways to wait, each spinning briefly before it falls back to its
+     * own means.
+     */
+    private enum WaitStrategy {
+
+	SPIN, YIELD, PARK;
+
+	// Wait once more, after the given number of attempts, returning the
+	// number of attempts made.
+	public int idle (int attempts) {
+	    if ((this == SPIN) || (attempts < SPIN_TRIES)) {
+		Thread.onSpinWait();
+	    } else if ((this == YIELD) || (attempts < SPIN_TRIES + YIELD_TRIES)) {
+		Thread.yield();
+	    } else {
+		LockSupport.parkNanos(PARK_NANOS);
+	    }
+	    return (attempts < Integer.MAX_VALUE) ? attempts + 1 : attempts;
+	}
+
+    } // enum WaitStrategy
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * A sequence alone on its cache line.  The fields before and after the
+     * value keep other data from sharing its line.
+     */
+    private static class LeftPadding {
+	protected long p1, p2, p3, p4, p5, p6, p7;
+    }
+
+    private static class Value extends LeftPadding {
+	protected volatile long value;
+    }
+
+    private static class Sequence extends Value {
+
+	public Sequence (long initial) {
+	    value = initial;
+	}
+
+	public long get () {
+	    return value;
+	}
+
+	public void setRelease (long next) {
+	    VALUE.setRelease(this, next);
+	}
+
+	public boolean compareAndSet (long expected, long next) {
+	    return VALUE.compareAndSet(this, expected, next);
+	}
+
+	protected long p9, p10, p11, p12, p13, p14, p15;
+
+	/** Access to the value with explicit memory ordering. */
+	private static final VarHandle VALUE = findValue();
+
+	private static VarHandle findValue () {
+	    try {
+		return MethodHandles.lookup().findVarHandle(Value.class,
+							    "value",
+							    long.class);
+	    } catch (ReflectiveOperationException e) {
+		throw new RuntimeException("Cannot access sequence value");
+	    }
+	}
+
+    } // class Sequence
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * A sender's partial word and last published sequence.  Used only by the
+     * sending thread.
+     */
+    private static class Sender {
+
+	public Sender (int index) {
+	    this.index = index;
+	}
+
+	/** The bits sent but not yet published, behind a leading 1. */
+	public long      word      = EMPTY_WORD;
+
+	/** The sequence of the sender's last published word. */
+	public long      published = -1;
+
+	/** The station that marks the sender's slots. */
+	public final int index;
+
+    } // class Sender
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * A client's consumer, which reads every available slot in a batch and
+     * delivers the bits of those sent by other clients.
+     */
+    private class Consumer implements Runnable {
+
+	public Consumer (PhysicalLayer client, int index, long start) {
+	    this.client   = client;
+	    this.index    = index;
+	    this.sequence = new Sequence(start);
+	}
+
+	public void run () {
+	    long next     = sequence.get() + 1;
+	    int  attempts = 0;
+	    while (true) {
+
+		// Find the last of the slots available in a row.
+		long highest = claimed.get();
+		long last    = next - 1;
+		while ((last < highest) && isAvailable(last + 1)) {
+		    last += 1;
+		}
+		if (last < next) {
+		    attempts = WAIT.idle(attempts);
+		    continue;
+		}
+
+		for (long s = next; s <= last; s += 1) {
+		    int slot = (int)s & MASK;
+		    if (sources[slot] != index) {
+			deliver(sources[slot], words[slot]);
+		    }
+		}
+		sequence.setRelease(last);
+		next     = last + 1;
+		attempts = 0;
+
+	    }
+	}
+
+	// Deliver the bits of a word from the given station, most significant
+	// first, below its leading 1.
+	private void deliver (int source, long word) {
+	    int count = (Long.SIZE - 1) - Long.numberOfLeadingZeros(word);
+	    for (int bit = count - 1; bit >= 0; bit -= 1) {
+		client.receive(source, ((word >>> bit) & 1) != 0);
+	    }
+	}
+
+	/** The last sequence read. */
+	public final Sequence       sequence;
+
+	/** The client to which to deliver bits. */
+	private final PhysicalLayer client;
+
+	/** The station of the client's own slots, which it skips. */
+	private final int           index;
+
+    } // class Consumer
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The word in each slot. */
+    private final long[]     words     = new long[CAPACITY];
+
+    /** The station of the sender of each slot. */
+    private final int[]      sources   = new int[CAPACITY];
+
+    /** The lap of the ring in which each slot was last published. */
+    private final int[]      available = new int[CAPACITY];
+
+    /** The last sequence claimed by any sender. */
+    private final Sequence   claimed     = new Sequence(-1);
+
+    /** The minimum consumer sequence when last scanned. */
+    private final Sequence   gatingCache = new Sequence(-1);
+
+    /** The consumer of each client. */
+    private final List<Consumer> consumers =
+	new CopyOnWriteArrayList<Consumer>();
+
+    /** The sending state of each client. */
+    private final Map<PhysicalLayer, Sender> senders =
+	new ConcurrentHashMap<PhysicalLayer, Sender>();
+
+    /** A word holding no bits:  only the leading 1 that marks its length. */
+    private static final long EMPTY_WORD  = 1L;
+
+    /** The log, base 2, of the number of slots. */
+    private static final int  SHIFT       = 12;
+
+    /** The number of slots. */
+    private static final int  CAPACITY    = 1 << SHIFT;
+
+    /** The mask that reduces a sequence to a slot. */
+    private static final int  MASK        = CAPACITY - 1;
+
+    /** The waits that spin, and then that yield, before falling back. */
+    private static final int  SPIN_TRIES  = 100;
+    private static final int  YIELD_TRIES = 100;
+
+    /** The time for which a parked thread waits before looking again. */
+    private static final long PARK_NANOS  = 50000;
+
+    /** How to wait. */
+    private static final WaitStrategy WAIT = WaitStrategy.valueOf(
+	System.getProperty("RingBufferMedium.wait", "park").toUpperCase());
+
+    /** Access to the availability marks with explicit memory ordering. */
+    private static final VarHandle AVAILABLE =
+	MethodHandles.arrayElementVarHandle(int[].class);
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class RingBufferMedium
+// =============================================================================
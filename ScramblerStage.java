@@ -0,0 +1,121 @@
+// =============================================================================
+// IMPORTS
+
+import java.nio.ByteBuffer;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * A stage that scrambles the bytes a host sends, so that long runs of equal
+ * bits, and the repetitive patterns of idle or padded data, leave as
+ * pseudo-random bits.  The scrambler is self-synchronizing, with the
+ * polynomial 1 + x^-18 + x^-23 of ITU-T V.34:  each bit sent is the data bit
+ * plus the bits sent 18 and 23 places before it, and the descrambler undoes
+ * this from the bits received.  It needs no shared state, so it recovers 23
+ * bits after any lost frame, and each bit in error comes out as three.
+ *
+ * @file   ScramblerStage.java
+ * @author Ikram Gabiyev
+ * @date   October 2026
+ */
+public class ScramblerStage extends Stage {
+// =============================================================================
+
+
+
+    // =========================================================================
+    // PUBLIC METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Scramble bytes being sent.
+     *
+     * @param in  The bytes to scramble.
+     * @param out The buffer into which to write the scrambled bytes.
+     */
+    public void encode (ByteBuffer in, ByteBuffer out) {
+
+	int state = scrambleState;
+	while (in.hasRemaining() && out.hasRemaining()) {
+	    int data      = in.get();
+	    int scrambled = 0;
+	    for (int bit = Byte.SIZE - 1; bit >= 0; bit -= 1) {
+		int sent  = ((data >>> bit) ^ feedback(state)) & 1;
+		state     = ((state << 1) | sent) & STATE_MASK;
+		scrambled = (scrambled << 1) | sent;
+	    }
+	    out.put((byte)scrambled);
+	}
+	scrambleState = state;
+
+    } // encode ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Descramble bytes received.
+     *
+     * @param in  The bytes received.
+     * @param out The buffer into which to write the descrambled bytes.
+     */
+    public void decode (ByteBuffer in, ByteBuffer out) {
+
+	int state = descrambleState;
+	while (in.hasRemaining() && out.hasRemaining()) {
+	    int scrambled = in.get();
+	    int data      = 0;
+	    for (int bit = Byte.SIZE - 1; bit >= 0; bit -= 1) {
+		int sent = (scrambled >>> bit) & 1;
+		data     = (data << 1) | ((sent ^ feedback(state)) & 1);
+		state    = ((state << 1) | sent) & STATE_MASK;
+	    }
+	    out.put((byte)data);
+	}
+	descrambleState = state;
+
+    } // decode ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // The sum of the bits sent 18 and 23 places back, the most recent bit
+    // sent being the lowest bit of the state.
+    private static int feedback (int state) {
+
+	return (state >>> (TAP_NEAR - 1)) ^ (state >>> (TAP_FAR - 1));
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The most recent bits sent, as the scrambler last left them. */
+    private int scrambleState   = 0;
+
+    /** The most recent bits received, as the descrambler last left them. */
+    private int descrambleState = 0;
+
+    /** The delays of the polynomial's taps. */
+    private static final int TAP_NEAR   = 18;
+    private static final int TAP_FAR    = 23;
+
+    /** The bits of the state. */
+    private static final int STATE_MASK = (1 << TAP_FAR) - 1;
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class ScramblerStage
+// =============================================================================
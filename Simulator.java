@@ -1,11 +1,14 @@
 // =============================================================================
 // IMPORTS
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 // =============================================================================
@@ -31,41 +34,187 @@ public class Simulator {
      * The entry point.  Interpret the command-line arguments, aborting if they
      * are invalid.  Set up the layers and start the simulation.
      *
-     * @param args The command-line arguments.
+     * @param args The command-line arguments:  any number of
+     *             <code>-name value</code> options, followed by the medium
+     *             type, the data link layer type, and the data file.
      */
     public static void main (String[] args) {
+
+	// Gather the options that precede the positional arguments.
+	Map<String, String> options  = new HashMap<String, String>();
+	int                 argIndex = 0;
+	while ((argIndex < args.length) && args[argIndex].startsWith("-")) {
+	    if (argIndex + 1 >= args.length) {
+		usage();
+	    }
+	    options.put(args[argIndex].substring(1), args[argIndex + 1]);
+	    argIndex += 2;
+	}
 		
+	// A contention run on a shared channel takes no positional arguments.
+	String macType = options.get("mac");
+	if (macType != null) {
+	    if (args.length != argIndex) {
+		usage();
+	    }
+	    simulateContention(Mac.create(macType, options));
+	    return;
+	}
+
 	// Check the number of arguments passed.
-	if (args.length != 3) {
+	if (args.length - argIndex != 3) {
+	    usage();
+	}
 
-	    System.err.println("Usage: java Simulator "  +
-			       "<medium type> "          +
-			       "<data link layer type> " +
-			       "<transmission data file>");
-	    System.exit(1);
+	// Assign names to the arguments.
+	String mediumType        = args[argIndex];
+	String dataLinkLayerType = args[argIndex + 1];
+	String transmissionPath  = args[argIndex + 2];
 
+	// A comma-separated list of medium types bonds the hosts over several
+	// media, one of each.
+	String[] mediumTypes = mediumType.split(",");
+	Medium[] media       = new Medium[mediumTypes.length];
+	for (int i = 0; i < media.length; i += 1) {
+	    media[i] = Medium.create(mediumTypes[i].trim());
 	}
 
-	// Assign names to the arguments.
-	String mediumType        = args[0];
-	String dataLinkLayerType = args[1];
-	String transmissionPath  = args[2];
-
-	// Create the medium, then the sender and receiver.
-	Medium medium   = Medium.create(mediumType);
-	Host   sender   = new Host(medium, dataLinkLayerType);
-	Host   receiver = new Host(medium, dataLinkLayerType);
+	// A process given a role holds only the sender or only the receiver,
+	// the other being in another process on the same medium.
+	String role = options.get("role");
+	if (role != null) {
+	    simulateRole(role,
+			 media,
+			 dataLinkLayerType,
+			 options,
+			 readFile(transmissionPath));
+	    return;
+	}
+
+	// Create the sender and receiver.  If frames are to carry addresses,
+	// the sender is station 1 and the receiver station 2, each sending to
+	// the other.
+	Map<String, String> senderOptions   = options;
+	Map<String, String> receiverOptions = options;
+	if (Boolean.parseBoolean(options.get("addressed"))) {
+	    senderOptions   = addressed(options, 1, 2);
+	    receiverOptions = addressed(options, 2, 1);
+	}
+	Host   sender   = new Host(media, dataLinkLayerType, senderOptions);
+	Host   receiver = new Host(media, dataLinkLayerType, receiverOptions);
 	
 	// Read the contents of the data to be transmitted into a buffer.
 	byte[] dataToTransmit = readFile(transmissionPath);
 
-	// Perform the simulation!
-	simulate(sender, receiver, dataToTransmit);
+	// Perform the simulation!  In full duplex, each host sends to the other
+	// at once.
+	if (Boolean.parseBoolean(options.get("duplex"))) {
+	    simulateDuplex(sender, receiver, dataToTransmit);
+	} else {
+	    simulate(sender, receiver, dataToTransmit);
+	}
     } // main
     // =========================================================================
 
 
 
+    // =========================================================================
+    /**
+     * Explain the command-line arguments and exit.
+     */
+    private static void usage () {
+
+	System.err.println("Usage: java Simulator "            +
+			   "[-<option> <value>]... "           +
+			   "<medium type>[,<medium type>...] " +
+			   "<data link layer type> "           +
+			   "<transmission data file>");
+	System.err.println("   or: java Simulator "            +
+			   "-mac <MAC type> "                  +
+			   "[-stations <count>] "              +
+			   "[-load <frames per frame time>] "  +
+			   "[-duration <frame times>] "        +
+			   "[-frameBits <bits>] "              +
+			   "[-propagation <bit times>] "       +
+			   "[-seed <number>]");
+	System.err.println("Options: "                         +
+			   "-framing <framing type>, "         +
+			   "-stages <stage type>[,...], "      +
+			   "-compress <true|false>, "          +
+			   "-duplex <true|false>, "            +
+			   "-addressed <true|false>, "         +
+			   "-piggyback <true|false>, "         +
+			   "-weights <weight>[,...], "         +
+			   "-verifiers <count>, "              +
+			   "-interleave <rows>x<columns>, "    +
+			   "-correct <true|false>, "           +
+			   "-parity <byte|packed[,<size>]>, "  +
+			   "-rs <n>,<k>, "                     +
+			   "-erasure <k>,<m>, "                +
+			   "-role <send|receive>, "            +
+			   "-station <number>, "               +
+			   "-peer <number>");
+	System.exit(1);
+
+    } // usage ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Copy the given options, adding a station's address and the address to
+     * which it sends.
+     *
+     * @param  options     The options to copy.
+     * @param  address     The station's address.
+     * @param  destination The address of the station to which it sends.
+     * @return The options for the station.
+     */
+    private static Map<String, String> addressed (Map<String, String> options,
+						  int                 address,
+						  int                 destination) {
+
+	Map<String, String> station = new HashMap<String, String>(options);
+	station.put("address",     Integer.toString(address));
+	station.put("destination", Integer.toString(destination));
+	return station;
+
+    } // addressed ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Read a numeric option, or take the given default if it is absent.
+     *
+     * @param  options      The options.
+     * @param  name         The name of the option.
+     * @param  defaultValue The value if the option is absent.
+     * @return The value of the option.
+     * @throws RuntimeException if the option is not a number.
+     */
+    private static int number (Map<String, String> options,
+			       String              name,
+			       int                 defaultValue) {
+
+	String value = options.get(name);
+	if (value == null) {
+	    return defaultValue;
+	}
+	try {
+	    return Integer.parseInt(value.trim());
+	} catch (NumberFormatException e) {
+	    throw new RuntimeException("Expected a number for " + name +
+				       ", not " + value);
+	}
+
+    } // number ()
+    // =========================================================================
+
+
+
     // =========================================================================
     /**
      * Read the whole contents of a given file, returning it in a byte array.
@@ -121,11 +270,229 @@ public class Simulator {
 	System.out.println("Transmission succeeded: " +
 			   Arrays.equals(data, received));
 
+	// Report the cost of the transmission on the wire.
+	long bits = sender.bitsSent();
+	System.out.println("Payload bytes sent:     " + data.length);
+	System.out.println("Bits on the medium:     " + bits);
+	if (data.length > 0) {
+	    System.out.printf("Bits per payload byte:  %.3f\n",
+			      (double)bits / data.length);
+	}
+	reportLinks("Bytes per link:        ", sender);
+
     } // simulate()
     // =========================================================================
 
 
 
+    // =========================================================================
+    /**
+     * Run one end of a transfer between two processes that share a medium,
+     * such as <code>MmapMedium</code> or <code>SocketMedium</code>.  The
+     * sender sends the data, returning once the medium has delivered it.
+     * The receiver gathers what arrives until it has as much as the data, or
+     * nothing more has come for a while, and checks it against the data.
+     * The receiver must be running before the sender starts.  The sender is
+     * station 1 and the receiver station 2 unless <code>station</code> and
+     * <code>peer</code> say otherwise; if frames are to carry addresses, the
+     * stations are their addresses too.
+     *
+     * @param role              <code>send</code> or <code>receive</code>.
+     * @param media             The media shared with the other process.
+     * @param dataLinkLayerType The type of data link layer to use.
+     * @param options           The options for the host.
+     * @param data              The data to be sent, or to be expected.
+     */
+    private static void simulateRole (String              role,
+				      Medium[]            media,
+				      String              dataLinkLayerType,
+				      Map<String, String> options,
+				      byte[]              data) {
+
+	boolean sending = role.equals(SEND_ROLE);
+	if (!sending && !role.equals(RECEIVE_ROLE)) {
+	    usage();
+	}
+	int station = number(options, "station", sending ? 1 : 2);
+	int peer    = number(options, "peer",    sending ? 2 : 1);
+
+	Map<String, String> hostOptions = new HashMap<String, String>(options);
+	hostOptions.put("station", Integer.toString(station));
+	if (Boolean.parseBoolean(options.get("addressed"))) {
+	    hostOptions = addressed(hostOptions, station, peer);
+	}
+	Host host = new Host(media, dataLinkLayerType, hostOptions);
+
+	if (sending) {
+	    host.send(data);
+	    long bits = host.bitsSent();
+	    System.out.println("Payload bytes sent:     " + data.length);
+	    System.out.println("Bits on the medium:     " + bits);
+	    if (data.length > 0) {
+		System.out.printf("Bits per payload byte:  %.3f\n",
+				  (double)bits / data.length);
+	    }
+	    return;
+	}
+
+	// Wait as long as it takes for the first bytes, but once they come,
+	// stop when the rest stop coming.
+	ByteArrayOutputStream received    = new ByteArrayOutputStream();
+	long                  lastArrival = 0;
+	while (received.size() < data.length) {
+	    byte[] more = host.retrieve();
+	    if (more.length > 0) {
+		received.write(more, 0, more.length);
+		lastArrival = System.currentTimeMillis();
+	    } else if ((received.size() > 0) &&
+		       (System.currentTimeMillis() - lastArrival >
+			QUIET_MILLIS)) {
+		break;
+	    } else {
+		try {
+		    Thread.sleep(POLL_MILLIS);
+		} catch (InterruptedException e) {
+		    throw new RuntimeException("Interrupted awaiting data");
+		}
+	    }
+	}
+	System.out.println("Bytes received:         " + received.size() +
+			   " of " + data.length);
+	System.out.println("Transmission succeeded: " +
+			   Arrays.equals(data, received.toByteArray()));
+
+    } // simulateRole()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Perform the simulation in full duplex, each host transmitting the given
+     * data to the other at the same time, the second on a thread of its own.
+     * Verify that each host fully receives the complete and correct data.
+     *
+     * @param first  One host.
+     * @param second The other host.
+     * @param data   The data to be sent each way.
+     */
+    private static void simulateDuplex (final Host   first,
+					final Host   second,
+					final byte[] data) {
+
+	final RuntimeException[] failure = new RuntimeException[1];
+	Thread reverse = new Thread(() -> {
+		try {
+		    second.send(data);
+		} catch (RuntimeException e) {
+		    failure[0] = e;
+		}
+	    }, "reverse-sender");
+	reverse.start();
+	first.send(data);
+	try {
+	    reverse.join();
+	} catch (InterruptedException e) {
+	    throw new RuntimeException("Interrupted awaiting the reverse sender");
+	}
+	if (failure[0] != null) {
+	    throw failure[0];
+	}
+
+	byte[] forward  = second.retrieve();
+	byte[] backward = first.retrieve();
+	System.out.println("Forward succeeded:      " +
+			   Arrays.equals(data, forward));
+	System.out.println("Reverse succeeded:      " +
+			   Arrays.equals(data, backward));
+
+	// Report the cost of both transmissions on the wire, and what each host
+	// learned of its own from the frames coming back.
+	long bits = first.bitsSent() + second.bitsSent();
+	System.out.println("Payload bytes sent:     " + 2 * data.length);
+	System.out.println("Bits on the medium:     " + bits);
+	if (data.length > 0) {
+	    System.out.printf("Bits per payload byte:  %.3f\n",
+			      (double)bits / (2 * data.length));
+	}
+	if (first.framesSent() > 0) {
+	    System.out.println("Frames acknowledged:    " +
+			       first.framesAcknowledged() + " of " +
+			       first.framesSent() + " forward, " +
+			       second.framesAcknowledged() + " of " +
+			       second.framesSent() + " reverse");
+	}
+	reportLinks("Bytes per link:        ", first);
+	reportLinks("Reverse bytes per link:", second);
+
+    } // simulateDuplex()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Report how a bonded host shared out its traffic among its media.
+     *
+     * @param label The label of the report.
+     * @param host  The host, which is skipped unless it is bonded.
+     */
+    private static void reportLinks (String label, Host host) {
+
+	long[] bytes = host.bytesPerLink();
+	if (bytes != null) {
+	    System.out.println(label + " " + Arrays.toString(bytes));
+	}
+
+    } // reportLinks()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Run a simulation of many stations contending for a shared channel
+     * under a medium access control protocol, and report how well the
+     * channel was used.
+     *
+     * @param mac The protocol, configured with the stations and load.
+     */
+    private static void simulateContention (Mac mac) {
+
+	mac.run();
+	System.out.println("Stations:               " + mac.stations());
+	System.out.printf("Offered load:           %.3f frames per frame time\n",
+			  mac.load());
+	System.out.println("Frames delivered:       " + mac.delivered());
+	System.out.println("Frames dropped:         " + mac.dropped());
+	System.out.println("Collisions:             " + mac.collisions());
+	System.out.printf("Channel utilisation:    %.3f\n", mac.utilisation());
+	System.out.printf("Collision rate:         %.3f of %d transmissions\n",
+			  mac.collisionRate(), mac.transmissions());
+	System.out.printf("Mean access delay:      %.3f frame times\n",
+			  mac.meanDelay());
+
+    } // simulateContention()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The roles of a process that holds one host of a transfer. */
+    private static final String SEND_ROLE    = "send";
+    private static final String RECEIVE_ROLE = "receive";
+
+    /** The time between a receiver's looks for more data. */
+    private static final long   POLL_MILLIS  = 10;
+
+    /** The time without new data after which a receiver stops waiting. */
+    private static final long   QUIET_MILLIS = 10000;
+    // =========================================================================
+
+
+
 // =============================================================================
 } // class Simulator
 // =============================================================================
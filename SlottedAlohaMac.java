@@ -0,0 +1,142 @@
+// =============================================================================
+// IMPORTS
+
+import java.util.Map;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * Slotted ALOHA.  Time is divided into slots of one frame time each, and a
+ * station sends a new frame at the start of the next slot, without listening
+ * first.  A slot with one transmission delivers its frame; a slot with more
+ * is lost to a collision, and its stations back off a whole number of slots.
+ *
+ * @file   SlottedAlohaMac.java
+ * @author Ikram Gabiyev
+ * @date   October 2026
+ */
+public class SlottedAlohaMac extends Mac {
+// =============================================================================
+
+
+
+    // =========================================================================
+    // PROTECTED METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Apply the settings given as options.
+     *
+     * @param  options The settings of <code>Mac</code>.
+     * @throws RuntimeException if a setting is malformed or out of range.
+     */
+    protected void configure (Map<String, String> options) {
+
+	super.configure(options);
+	transmitting = new int[stations];
+
+    } // configure ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Wait for the start of the next slot, or transmit in the slot starting
+     * now.
+     *
+     * @param station The station ready to send.
+     * @param time    The current time.
+     */
+    protected void attempt (int station, long time) {
+
+	long slotStart = (time + frameBits - 1) / frameBits * frameBits;
+	if (slotStart > time) {
+	    schedule(station, slotStart);
+	    return;
+	}
+
+	transmitted();
+	transmitting[transmitters] = station;
+	transmitters += 1;
+	channelDue = time + frameBits;
+
+    } // attempt ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Settle the slot just ended:  deliver a lone frame, or back off the
+     * stations of a collision from the next slot.
+     *
+     * @param time The current time.
+     */
+    protected void channelEvent (long time) {
+
+	if (transmitters == 1) {
+	    if (deliver(transmitting[0], time)) {
+		schedule(transmitting[0], time);
+	    }
+	} else {
+	    collide(transmitting, transmitters, time, frameBits);
+	}
+	transmitters = 0;
+
+    } // channelEvent ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return Never give up on a frame, as ALOHA retransmits until it
+     *         succeeds.
+     */
+    protected int maxTries () {
+
+	return Integer.MAX_VALUE;
+
+    } // maxTries ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return Twenty, well above Ethernet's cap:  with no carrier sense,
+     *         every retransmission costs a whole slot, and a cap that spreads
+     *         over fewer slots than there are stations backlogged keeps the
+     *         channel jammed.
+     */
+    protected int backoffLimit () {
+
+	return BACKOFF_LIMIT;
+
+    } // backoffLimit ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The stations transmitting in the current slot. */
+    private int[] transmitting;
+    private int   transmitters = 0;
+
+    /** The number of collisions after which backoff stops growing. */
+    private static final int BACKOFF_LIMIT = 20;
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class SlottedAlohaMac
+// =============================================================================
@@ -0,0 +1,753 @@
+// =============================================================================
+// IMPORTS
+
+import java.io.File;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * A perfect medium whose clients may live in separate processes, joined by
+ * Unix-domain sockets to a medium daemon.  Each client packs the bits it
+ * sends into words, gathers the words into a direct buffer, and writes the
+ * buffer to its socket whenever it fills.  The daemon, a single thread
+ * around a selector, reads whole words from each client and relays them to
+ * every other, sending each client all its queued buffers in one gathering
+ * write.  Every client has a thread of its own that reads its socket and
+ * delivers the bits.
+ *
+ * The word 0, which holds no bits, begins a control word.  A client flushes
+ * by sending a flush request, which the daemon relays to every other client;
+ * each answers once it has delivered all that came before, and once all have
+ * answered, the daemon tells the sender so.
+ *
+ * The daemon's socket is named by the system property
+ * <code>SocketMedium.path</code>.  Run this class to start a daemon, as in
+ * <code>java SocketMedium</code>; a medium that finds no daemon listening
+ * starts one in its own process.  Each host then runs in a process of its
+ * own, as <code>java Simulator -role receive Socket ...</code> and then
+ * <code>java Simulator -role send Socket ...</code>.
+ *
+ * The daemon holds at most about <code>MAX_QUEUED</code> words for a client
+ * that is slow to read:  while any client is that far behind, the daemon
+ * reads from no client, so that senders wait on their sockets until it
+ * catches up.  A client that takes nothing for <code>STALL_LIMIT</code>
+ * while so far behind is disconnected, so that it cannot hold up the rest.
+ * The receiving thread of a client never waits on its own sender to answer
+ * a flush request, so that every client keeps reading while the daemon
+ * waits.
+ *
+ * @file   SocketMedium.java
+ * @author Ikram Gabiyev
+ * @date   October 2026
+ */
+public class SocketMedium extends Medium {
+// =============================================================================
+
+
+
+    // =========================================================================
+    // PUBLIC METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Run a medium daemon until the process is stopped.
+     *
+     * @param args The command-line arguments, which are unused.
+     */
+    public static void main (String[] args) {
+
+	new Daemon(bind()).run();
+
+    } // main ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The constructor.  Start a daemon in this process if none is listening.
+     */
+    public SocketMedium () {
+
+	try {
+	    SocketChannel.open(ADDRESS).close();
+	} catch (IOException e) {
+	    startThread(new Daemon(bind()), "socket-daemon");
+	}
+
+    } // SocketMedium ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Register the given client, connecting it to the daemon, and start its
+     * receiving thread.
+     *
+     * @param  client The physical layer of a stack to connect to this medium.
+     * @throws RuntimeException if the daemon cannot be reached.
+     */
+    public synchronized void register (PhysicalLayer client) {
+
+	if (senders.containsKey(client)) {
+	    return;
+	}
+
+	SocketChannel channel;
+	try {
+	    channel = SocketChannel.open(ADDRESS);
+	} catch (IOException e) {
+	    throw new RuntimeException("Could not reach medium daemon at " +
+				       ADDRESS);
+	}
+
+	Sender sender = new Sender(channel);
+	super.register(client);
+	senders.put(client, sender);
+	startThread(new Receiver(client, sender), "socket-receiver");
+
+    } // register ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Add a bit to the sender's current word, and the word to its batch once
+     * it is full.
+     *
+     * @param sender The client physical layer sending the bit.
+     * @param bit The value to be sent, where <code>false</code> sends a
+     *            <code>0</code> bit, and <code>true</code> sends a
+     *            <code>1</code> bit.
+     * @throws RuntimeException if the sender is not registered with this
+     *                          medium.
+     */
+    public void transmit (PhysicalLayer sender, boolean bit) {
+
+	Sender state = senders.get(sender);
+	if (state == null) {
+	    throw new RuntimeException("Unregistered sender on the medium");
+	}
+
+	state.word = (state.word << 1) | (bit ? 1 : 0);
+	if (state.word < 0) {
+	    state.add();
+	}
+
+    } // transmit ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Send the sender's batch, with its partial word, and a flush request,
+     * and wait until every other client has received it all.
+     *
+     * @param sender The client physical layer whose bits to push out.
+     */
+    public void flush (PhysicalLayer sender) {
+
+	Sender state = senders.get(sender);
+	if (state == null) {
+	    return;
+	}
+
+	if (state.word != EMPTY_WORD) {
+	    state.add();
+	}
+	state.sendWithControl(FLUSH);
+	state.flushed.acquireUninterruptibly();
+	if (state.lost) {
+	    throw new RuntimeException("Lost the medium daemon");
+	}
+
+    } // flush ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Bind the daemon's socket, replacing any left by a daemon now gone.
+    private static ServerSocketChannel bind () {
+
+	try {
+	    Files.deleteIfExists(ADDRESS.getPath());
+	    ServerSocketChannel server =
+		ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+	    server.bind(ADDRESS);
+	    return server;
+	} catch (IOException e) {
+	    throw new RuntimeException("Could not bind medium daemon at " +
+				       ADDRESS);
+	}
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // A buffer for words, in the order shared by every process on the host.
+    private static ByteBuffer allocate (int words) {
+
+	return ByteBuffer.allocateDirect(words * Long.BYTES)
+	    .order(ByteOrder.nativeOrder());
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * A client's connection to the daemon, and the batch of words it has yet
+     * to write.  Words are added only by the sending thread, but the
+     * receiving thread also writes, to answer flush requests, so writes are
+     * serialized.
+     */
+    private static class Sender {
+
+	public Sender (SocketChannel channel) {
+	    this.channel = channel;
+	}
+
+	// Add the word to the batch, writing the batch once it is full.
+	public void add () {
+	    batch.putLong(word);
+	    word = EMPTY_WORD;
+	    if (!batch.hasRemaining()) {
+		lock.lock();
+		try {
+		    batch.flip();
+		    write(new ByteBuffer[] { batch });
+		    batch.clear();
+		} finally {
+		    lock.unlock();
+		}
+		answerOwed();
+	    }
+	}
+
+	// Write the batch and a control word together.
+	public void sendWithControl (long code) {
+	    lock.lock();
+	    try {
+		batch.flip();
+		control.clear();
+		control.putLong(CONTROL).putLong(code).flip();
+		write(new ByteBuffer[] { batch, control });
+		batch.clear();
+	    } finally {
+		lock.unlock();
+	    }
+	    answerOwed();
+	}
+
+	// Answer a flush request, now if no write is under way, and otherwise
+	// as soon as the write is done, so that the receiving thread never
+	// waits on the sending thread.
+	public void acknowledge () {
+	    owed.incrementAndGet();
+	    answerOwed();
+	}
+
+	// Write every answer owed, unless another thread is writing, in which
+	// case it does so when done.
+	private void answerOwed () {
+	    while ((owed.get() > 0) && lock.tryLock()) {
+		try {
+		    for (int n = owed.getAndSet(0); n > 0; n -= 1) {
+			answer.clear();
+			answer.putLong(CONTROL).putLong(ACKNOWLEDGE).flip();
+			write(new ByteBuffer[] { answer });
+		    }
+		} finally {
+		    lock.unlock();
+		}
+	    }
+	}
+
+	private void write (ByteBuffer[] buffers) {
+	    try {
+		ByteBuffer last = buffers[buffers.length - 1];
+		while (last.hasRemaining()) {
+		    channel.write(buffers);
+		}
+	    } catch (IOException e) {
+		throw new RuntimeException("Lost the medium daemon");
+	    }
+	}
+
+	/** The connection to the daemon. */
+	public final SocketChannel  channel;
+
+	/** Released as the daemon reports each flush complete, or once the
+	 *  daemon is gone. */
+	public final Semaphore      flushed = new Semaphore(0);
+
+	/** Whether the daemon has closed the connection. */
+	public volatile boolean     lost    = false;
+
+	/** The bits sent but not yet batched, behind a leading 1. */
+	public long                 word    = EMPTY_WORD;
+
+	/** The words not yet written. */
+	private final ByteBuffer    batch   = allocate(BATCH);
+
+	/** A control word from the sending thread. */
+	private final ByteBuffer    control = allocate(2);
+
+	/** A control word answering a flush request. */
+	private final ByteBuffer    answer  = allocate(2);
+
+	/** Held while writing to the daemon. */
+	private final ReentrantLock lock    = new ReentrantLock();
+
+	/** The flush requests received but not yet answered. */
+	private final AtomicInteger owed    = new AtomicInteger();
+
+    } // class Sender
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * A client's receiving thread, which reads words from the daemon and
+     * delivers their bits in order.
+     */
+    private static class Receiver implements Runnable {
+
+	public Receiver (PhysicalLayer client, Sender sender) {
+	    this.client = client;
+	    this.sender = sender;
+	}
+
+	public void run () {
+	    ByteBuffer in = allocate(BATCH);
+	    try {
+		while (sender.channel.read(in) >= 0) {
+		    in.flip();
+		    while (in.remaining() >= Long.BYTES) {
+			long word = in.getLong(in.position());
+			if (word != CONTROL) {
+			    deliver(word);
+			} else if (in.remaining() >= 2 * Long.BYTES) {
+			    control(in.getLong(in.position() + Long.BYTES));
+			    in.position(in.position() + Long.BYTES);
+			} else {
+			    break;
+			}
+			in.position(in.position() + Long.BYTES);
+		    }
+		    in.compact();
+		}
+	    } catch (IOException e) {
+		// The daemon is gone, and so is anything more to receive.
+	    }
+
+	    // Wake any flush, which can no longer complete.
+	    sender.lost = true;
+	    sender.flushed.release();
+	}
+
+	// Act on a control word.
+	private void control (long code) {
+	    if (code == FLUSH) {
+		sender.acknowledge();
+	    } else if (code == FLUSHED) {
+		sender.flushed.release();
+	    }
+	}
+
+	// Deliver the bits of a word, most significant first, below its
+	// leading 1.
+	private void deliver (long word) {
+	    int count = (Long.SIZE - 1) - Long.numberOfLeadingZeros(word);
+	    for (int bit = count - 1; bit >= 0; bit -= 1) {
+		client.receive(((word >>> bit) & 1) != 0);
+	    }
+	}
+
+	/** The client to which to deliver bits. */
+	private final PhysicalLayer client;
+
+	/** The same client's sending side, which answers flush requests. */
+	private final Sender        sender;
+
+    } // class Receiver
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The medium daemon, which relays words between connected clients on a
+     * single thread.
+     */
+    private static class Daemon implements Runnable {
+
+	public Daemon (ServerSocketChannel server) {
+	    this.server = server;
+	}
+
+	public void run () {
+	    try {
+		selector = Selector.open();
+		server.configureBlocking(false);
+		server.register(selector, SelectionKey.OP_ACCEPT);
+		while (true) {
+		    selector.select(STALL_LIMIT / 4);
+		    for (SelectionKey key : selector.selectedKeys()) {
+			if (!key.isValid()) {
+			    continue;
+			}
+			if (key.isAcceptable()) {
+			    accept();
+			    continue;
+			}
+			Connection connection = (Connection)key.attachment();
+			if (key.isReadable()) {
+			    read(connection);
+			}
+			if (key.isValid() && key.isWritable()) {
+			    write(connection);
+			}
+		    }
+		    selector.selectedKeys().clear();
+		    dropStalled();
+		}
+	    } catch (IOException e) {
+		throw new RuntimeException("Medium daemon failed");
+	    }
+	}
+
+	// Accept a new client.
+	private void accept () throws IOException {
+	    SocketChannel channel = server.accept();
+	    if (channel == null) {
+		return;
+	    }
+	    channel.configureBlocking(false);
+	    Connection connection = new Connection(channel);
+	    connection.key = channel.register(selector,
+					      SelectionKey.OP_READ,
+					      connection);
+	    connections.put(channel, connection);
+	}
+
+	// Read what a client has sent, relaying its whole words.
+	private void read (Connection source) throws IOException {
+	    ByteBuffer in = source.in;
+	    if (source.channel.read(in) < 0) {
+		close(source);
+		return;
+	    }
+
+	    in.flip();
+	    int start = in.position();
+	    while (in.remaining() >= Long.BYTES) {
+		if (in.getLong(in.position()) != CONTROL) {
+		    in.position(in.position() + Long.BYTES);
+		    continue;
+		}
+		if (in.remaining() < 2 * Long.BYTES) {
+		    break;
+		}
+		relay(source, in, start, in.position());
+		control(source, in.getLong(in.position() + Long.BYTES));
+		in.position(in.position() + 2 * Long.BYTES);
+		start = in.position();
+	    }
+	    relay(source, in, start, in.position());
+	    in.compact();
+	}
+
+	// Queue a run of words for every client but their source.  The run is
+	// copied once, and the copy shared.
+	private void relay (Connection source, ByteBuffer in, int from, int to)
+	    throws IOException {
+	    if (from == to) {
+		return;
+	    }
+	    ByteBuffer words = allocate((to - from) / Long.BYTES);
+	    words.put(in.duplicate().limit(to).position(from)).flip();
+	    for (Connection target : connections.values()) {
+		if (target != source) {
+		    send(target, words.duplicate());
+		}
+	    }
+	}
+
+	// Act on a control word from a client.  A flush request goes to every
+	// other client, each of which is then owed an answer; an answer counts
+	// toward the flush it is owed for, in order.
+	private void control (Connection source, long code)
+	    throws IOException {
+	    if (code == FLUSH) {
+		for (Connection target : connections.values()) {
+		    if (target != source) {
+			target.owed.add(source);
+			source.pending += 1;
+			send(target, controlWord(FLUSH));
+		    }
+		}
+		if (source.pending == 0) {
+		    send(source, controlWord(FLUSHED));
+		} else {
+		    source.flushes += 1;
+		}
+	    } else if (code == ACKNOWLEDGE) {
+		Connection flusher = source.owed.poll();
+		if (flusher != null) {
+		    answered(flusher);
+		}
+	    }
+	}
+
+	// Count an answer to a client's flush, telling the client once every
+	// answer is in.  Flushes by one client complete in order.
+	private void answered (Connection flusher) throws IOException {
+	    flusher.pending -= 1;
+	    if (flusher.pending == 0 && flusher.flushes > 0) {
+		while (flusher.flushes > 0) {
+		    flusher.flushes -= 1;
+		    send(flusher, controlWord(FLUSHED));
+		}
+	    }
+	}
+
+	// Queue a buffer for a client, and write as much as it will take.
+	private void send (Connection target, ByteBuffer buffer)
+	    throws IOException {
+	    if (!target.key.isValid()) {
+		return;
+	    }
+	    target.out.add(buffer);
+	    target.queued += buffer.remaining();
+	    write(target);
+	}
+
+	// Write a client's queued buffers in one gathering write, note whether
+	// it is behind, and watch for room to write again if some remain.
+	private void write (Connection target) throws IOException {
+	    ByteBuffer[] buffers = target.out.toArray(new ByteBuffer[0]);
+	    long         written;
+	    try {
+		written = target.channel.write(buffers);
+	    } catch (IOException e) {
+		close(target);
+		return;
+	    }
+	    target.queued -= written;
+	    if (written > 0) {
+		target.active = System.currentTimeMillis();
+	    }
+	    while (!target.out.isEmpty() && !target.out.peek().hasRemaining()) {
+		target.out.remove();
+	    }
+
+	    // Behind once more than the limit is queued, and caught up once
+	    // half of that is written, so that reading does not stop and start
+	    // with every write.
+	    if (!target.behind && (target.queued > MAX_QUEUED * Long.BYTES)) {
+		setBehind(target, true);
+	    } else if (target.behind &&
+		       (target.queued <= MAX_QUEUED / 2 * Long.BYTES)) {
+		setBehind(target, false);
+	    }
+	    watch(target);
+	}
+
+	// Mark a client behind or caught up.  Reading from every client stops
+	// when the first falls behind, and resumes when the last catches up.
+	private void setBehind (Connection target, boolean behind) {
+	    target.behind  = behind;
+	    behindCount   += behind ? 1 : -1;
+	    if (behindCount == (behind ? 1 : 0)) {
+		for (Connection connection : connections.values()) {
+		    watch(connection);
+		}
+	    }
+	}
+
+	// Watch a client's socket for words to read, unless some client is
+	// behind, and for room to write, if words are queued for it.
+	private void watch (Connection connection) {
+	    if (!connection.key.isValid()) {
+		return;
+	    }
+	    connection.key.interestOps(
+		((behindCount == 0) ? SelectionKey.OP_READ : 0) |
+		(connection.out.isEmpty() ? 0 : SelectionKey.OP_WRITE));
+	}
+
+	// Disconnect every client that is behind and has taken nothing for too
+	// long, so that the rest may go on.
+	private void dropStalled () throws IOException {
+	    if (behindCount == 0) {
+		return;
+	    }
+	    long now = System.currentTimeMillis();
+	    for (Connection connection : connections.values()) {
+		if (connection.behind &&
+		    (now - connection.active > STALL_LIMIT)) {
+		    close(connection);
+		}
+	    }
+	}
+
+	// Drop a client that has gone, or stalled, answering for it any flushes
+	// it owed.
+	private void close (Connection connection) throws IOException {
+	    connection.key.cancel();
+	    connection.channel.close();
+	    connection.out.clear();
+	    connection.queued = 0;
+	    connections.remove(connection.channel);
+	    if (connection.behind) {
+		setBehind(connection, false);
+	    }
+	    for (Connection flusher : connection.owed) {
+		answered(flusher);
+	    }
+	    connection.owed.clear();
+	}
+
+	private static ByteBuffer controlWord (long code) {
+	    ByteBuffer buffer = allocate(2);
+	    buffer.putLong(CONTROL).putLong(code).flip();
+	    return buffer;
+	}
+
+	/** The socket on which clients connect. */
+	private final ServerSocketChannel server;
+
+	/** The selector of every socket. */
+	private Selector                  selector;
+
+	/** Every connected client. */
+	private final Map<SocketChannel, Connection> connections =
+	    new ConcurrentHashMap<SocketChannel, Connection>();
+
+	/** The number of clients behind. */
+	private int                       behindCount = 0;
+
+    } // class Daemon
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The daemon's state for one client.
+     */
+    private static class Connection {
+
+	public Connection (SocketChannel channel) {
+	    this.channel = channel;
+	}
+
+	/** The client's socket. */
+	public final SocketChannel          channel;
+
+	/** The client's selection key. */
+	public SelectionKey                 key;
+
+	/** The words read from the client, the last perhaps partial. */
+	public final ByteBuffer             in      = allocate(BATCH);
+
+	/** The buffers yet to be written to the client. */
+	public final ArrayDeque<ByteBuffer> out     = new ArrayDeque<ByteBuffer>();
+
+	/** The number of bytes in the buffers yet to be written. */
+	public long                         queued  = 0;
+
+	/** Whether too much is queued for the client. */
+	public boolean                      behind  = false;
+
+	/** The time at which the client last took anything written. */
+	public long                         active  = System.currentTimeMillis();
+
+	/** The clients whose flushes this client has yet to answer, in
+	 *  order. */
+	public final ArrayDeque<Connection> owed    = new ArrayDeque<Connection>();
+
+	/** The answers this client's flushes await. */
+	public int                          pending = 0;
+
+	/** The flushes by this client not yet reported complete. */
+	public int                          flushes = 0;
+
+    } // class Connection
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The sending state of each client of this process. */
+    private final Map<PhysicalLayer, Sender> senders =
+	new ConcurrentHashMap<PhysicalLayer, Sender>();
+
+    /** The daemon's socket. */
+    private static final UnixDomainSocketAddress ADDRESS =
+	UnixDomainSocketAddress.of(System.getProperty(
+	    "SocketMedium.path",
+	    new File(System.getProperty("java.io.tmpdir"),
+		     "SocketMedium.sock").getPath()));
+
+    /** A word holding no bits:  only the leading 1 that marks its length. */
+    private static final long EMPTY_WORD  = 1L;
+
+    /** The word, holding not even a leading 1, that begins a control word. */
+    private static final long CONTROL     = 0L;
+
+    /** The control words:  a flush request, its answer by a receiver, and
+     *  the daemon's report that a flush is complete. */
+    private static final long FLUSH       = 1L;
+    private static final long ACKNOWLEDGE = 2L;
+    private static final long FLUSHED     = 3L;
+
+    /** The number of words in a batch. */
+    private static final int  BATCH       = 1024;
+
+    /** The number of words queued for a client beyond which the daemon
+     *  stops reading. */
+    private static final int  MAX_QUEUED  = 1 << 16;
+
+    /** The time, in milliseconds, for which a client behind may take
+     *  nothing before the daemon disconnects it. */
+    private static final long STALL_LIMIT = 5000;
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class SocketMedium
+// =============================================================================
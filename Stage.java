@@ -0,0 +1,129 @@
+// =============================================================================
+// IMPORTS
+
+import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * A stage transforms the stream of bytes that a host sends above its data
+ * link layer, and undoes the transform on the bytes it receives.  Stages are
+ * chained into a <code>Pipeline</code>, which hands each stage's output to the
+ * next through a buffer that it reuses, so that a stage sees its input a
+ * buffer at a time rather than as one whole array.
+ *
+ * Both directions are streaming:  a stage takes as much of its input as it
+ * can, writes what it can of its output, and keeps anything else it needs
+ * for the next call.  Each call must either consume all of the input or fill
+ * the output.
+ *
+ * @file   Stage.java
+ * @author Ikram Gabiyev
+ * @date   October 2026
+ */
+public abstract class Stage {
+// =============================================================================
+
+
+
+    // =========================================================================
+    // PUBLIC METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Create the requested stage type and return it.
+     *
+     * @param  type The subclass of which to create an instance.
+     * @return The newly created stage.
+     * @throws RuntimeException if the given type is not a valid subclass.
+     */
+    public static Stage create (String type) {
+
+	// Look up the class by name.
+	String   className  = type + "Stage";
+	Class<?> stageClass = null;
+	try {
+	    stageClass = Class.forName(className);
+	} catch (ClassNotFoundException e) {
+	    throw new RuntimeException("Unknown stage subclass " + className);
+	}
+
+	// Make one of these objects, and then see if it really is a Stage
+	// subclass.
+	Object o = null;
+	try {
+	    o = stageClass.getDeclaredConstructor().newInstance();
+	} catch (NoSuchMethodException | InstantiationException |
+		 InvocationTargetException e) {
+	    throw new RuntimeException("Could not instantiate " + className);
+	} catch (IllegalAccessException e) {
+	    throw new RuntimeException("Could not access " + className);
+	}
+	Stage stage = null;
+	try {
+	    stage = (Stage)o;
+	} catch (ClassCastException e) {
+	    throw new RuntimeException(className +
+				       " is not a subclass of Stage");
+	}
+
+	return stage;
+
+    } // create ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Transform bytes being sent.  Return once all of the input is consumed
+     * or the output is full.
+     *
+     * @param in  The bytes to transform, from its position to its limit.
+     * @param out The buffer into which to write the transformed bytes.
+     */
+    public abstract void encode (ByteBuffer in, ByteBuffer out);
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Write out anything held back at the end of the bytes being sent.  By
+     * default, a stage holds nothing back.
+     *
+     * @param  out The buffer into which to write.
+     * @return <code>true</code> once nothing more is held back;
+     *         <code>false</code> if the output filled first.
+     */
+    public boolean finish (ByteBuffer out) {
+
+	return true;
+
+    } // finish ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Undo the transform on bytes received.  Return once all of the input is
+     * consumed or the output is full.
+     *
+     * @param in  The bytes received, from its position to its limit.
+     * @param out The buffer into which to write the restored bytes.
+     */
+    public abstract void decode (ByteBuffer in, ByteBuffer out);
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class Stage
+// =============================================================================
@@ -0,0 +1,211 @@
+// =============================================================================
+// IMPORTS
+
+import java.util.function.IntFunction;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * A map from <code>int</code> keys to values that boxes no keys and may be
+ * used from many threads at once.  The keys are spread over a fixed number
+ * of stripes, each an open-addressing table with linear probing under a lock
+ * of its own, so that threads working with different keys seldom contend.
+ * Entries are never removed.
+ *
+ * @file   StripedIntMap.java
+ * @author Ikram Gabiyev
+ * @date   October 2026
+ */
+public class StripedIntMap<V> {
+// =============================================================================
+
+
+
+    // =========================================================================
+    // PUBLIC METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The constructor.
+     */
+    public StripedIntMap () {
+
+	stripes = new Stripe[STRIPES];
+	for (int i = 0; i < STRIPES; i += 1) {
+	    stripes[i] = new Stripe();
+	}
+
+    } // StripedIntMap ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @param  key The key to look up.
+     * @return The value for the key, or <code>null</code> if there is none.
+     */
+    @SuppressWarnings("unchecked")
+    public V get (int key) {
+
+	int    hash   = hash(key);
+	Stripe stripe = stripes[hash & (STRIPES - 1)];
+	synchronized (stripe) {
+	    return (V)stripe.get(key, hash >>> STRIPE_BITS);
+	}
+
+    } // get ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Return the value for a key, first adding one made by the given function
+     * if there is none.  The function is called under the stripe's lock.
+     *
+     * @param  key     The key to look up.
+     * @param  create  The maker of a value for a key not yet present.
+     * @return The value for the key.
+     */
+    @SuppressWarnings("unchecked")
+    public V computeIfAbsent (int key, IntFunction<? extends V> create) {
+
+	int    hash   = hash(key);
+	Stripe stripe = stripes[hash & (STRIPES - 1)];
+	synchronized (stripe) {
+	    V value = (V)stripe.get(key, hash >>> STRIPE_BITS);
+	    if (value == null) {
+		value = create.apply(key);
+		stripe.put(key, hash >>> STRIPE_BITS, value);
+	    }
+	    return value;
+	}
+
+    } // computeIfAbsent ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return The number of keys in the map.
+     */
+    public int size () {
+
+	int size = 0;
+	for (Stripe stripe : stripes) {
+	    synchronized (stripe) {
+		size += stripe.size;
+	    }
+	}
+	return size;
+
+    } // size ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // Mix the bits of a key, so that consecutive keys spread over the
+    // stripes and the slots.
+    private static int hash (int key) {
+
+	int h = key * 0x9E3779B9;
+	return h ^ (h >>> 16);
+
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * One stripe's table.  A slot is occupied exactly when its value is not
+     * <code>null</code>.  The values are those of the map, held as objects so
+     * that the stripes need no type of their own.
+     */
+    private static class Stripe {
+
+	// The value for a key, or null.
+	public Object get (int key, int hash) {
+	    int mask = keys.length - 1;
+	    for (int slot = hash & mask; values[slot] != null;
+		 slot = (slot + 1) & mask) {
+		if (keys[slot] == key) {
+		    return values[slot];
+		}
+	    }
+	    return null;
+	}
+
+	// Add a key known to be absent, growing the table once it is three
+	// quarters full.
+	public void put (int key, int hash, Object value) {
+	    if (4 * (size + 1) > 3 * keys.length) {
+		grow();
+	    }
+	    int mask = keys.length - 1;
+	    int slot = hash & mask;
+	    while (values[slot] != null) {
+		slot = (slot + 1) & mask;
+	    }
+	    keys[slot]   = key;
+	    values[slot] = value;
+	    size += 1;
+	}
+
+	private void grow () {
+	    int[]    oldKeys   = keys;
+	    Object[] oldValues = values;
+	    keys   = new int[2 * oldKeys.length];
+	    values = new Object[2 * oldKeys.length];
+	    size   = 0;
+	    for (int i = 0; i < oldKeys.length; i += 1) {
+		if (oldValues[i] != null) {
+		    put(oldKeys[i], hash(oldKeys[i]) >>> STRIPE_BITS,
+			oldValues[i]);
+		}
+	    }
+	}
+
+	/** The key in each slot. */
+	private int[]    keys   = new int[INITIAL_SLOTS];
+
+	/** The value in each slot, or <code>null</code> if the slot is free. */
+	private Object[] values = new Object[INITIAL_SLOTS];
+
+	/** The number of occupied slots. */
+	public int       size   = 0;
+
+    } // class Stripe
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The stripes, chosen by the low bits of a key's hash. */
+    private final Stripe[] stripes;
+
+    /** The log, base 2, of the number of stripes. */
+    private static final int STRIPE_BITS   = 4;
+
+    /** The number of stripes. */
+    private static final int STRIPES       = 1 << STRIPE_BITS;
+
+    /** The number of slots in a new stripe, a power of two. */
+    private static final int INITIAL_SLOTS = 8;
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class StripedIntMap
+// =============================================================================